@@ -1,6 +1,7 @@
 package com.laytonsmith.abstraction;
 
 import com.laytonsmith.PureUtilities.DaemonManager;
+import com.laytonsmith.core.events.Driver;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -40,6 +41,16 @@ public abstract class AbstractConvertor implements Convertor{
 		return (T) callable.call();
 	}				
 
+	/**
+	 * By default, the server sends every event anyways, so there is nothing
+	 * to do.
+	 * @param type
+	 * @param listening 
+	 */
+	public void SetListening(Driver type, boolean listening) {
+		
+	}
+
 	public MCWorldCreator getWorldCreator(String worldName) {
 		throw new UnsupportedOperationException("Not supported.");
 	}
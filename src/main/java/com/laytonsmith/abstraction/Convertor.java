@@ -5,6 +5,7 @@ import com.laytonsmith.PureUtilities.DaemonManager;
 import com.laytonsmith.abstraction.blocks.MCMaterial;
 import com.laytonsmith.abstraction.enums.MCTone;
 import com.laytonsmith.commandhelper.CommandHelperPlugin;
+import com.laytonsmith.core.events.Driver;
 import java.util.concurrent.Callable;
 
 /**
@@ -35,6 +36,20 @@ public interface Convertor {
     public MCItemStack GetItemStack(int type, int qty);
 
     public void Startup(CommandHelperPlugin chp);
+
+	/**
+	 * Called when something starts or stops listening for events of this type,
+	 * see {@link com.laytonsmith.core.events.EventUtils#IsListening}. While
+	 * nothing is listening, the server doesn't need to send these events at all.
+	 * <p>
+	 * If any extension has an {@link com.laytonsmith.annotations.event} handler,
+	 * every driver is listened to, for as long as the handler is loaded. Drivers
+	 * don't say which event classes they trigger, so there is no way to tell which
+	 * drivers a handler actually needs.
+	 * @param type
+	 * @param listening 
+	 */
+	public void SetListening(Driver type, boolean listening);
     
     public int LookupItemId(String materialName);
 
@@ -6,6 +6,7 @@ import com.laytonsmith.PureUtilities.ClassDiscovery;
 import com.laytonsmith.PureUtilities.DaemonManager;
 import com.laytonsmith.annotations.convert;
 import com.laytonsmith.commandhelper.CommandHelperPlugin;
+import com.laytonsmith.core.events.Driver;
 
 
 /**
@@ -82,6 +83,12 @@ public final class StaticLayer {
     public static void Startup(CommandHelperPlugin chp) {
         convertor.Startup(chp);
     }
+
+    public static void SetListening(Driver type, boolean listening) {
+        if(convertor != null){
+            convertor.SetListening(type, listening);
+        }
+    }
     
     /**
      * Returns the data value of the specified material name, or -1 if none was found.
@@ -14,6 +14,7 @@ import com.laytonsmith.abstraction.enums.MCTone;
 import com.laytonsmith.annotations.convert;
 import com.laytonsmith.commandhelper.CommandHelperPlugin;
 import com.laytonsmith.core.Static;
+import com.laytonsmith.core.events.Driver;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
@@ -28,7 +29,6 @@ import org.bukkit.block.Block;
 import org.bukkit.block.DoubleChest;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.entity.*;
-import org.bukkit.event.Listener;
 import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.*;
@@ -103,15 +103,23 @@ public class BukkitConvertor extends AbstractConvertor {
     public static final BukkitWeatherListener WeatherListener = new BukkitWeatherListener();
     public static final BukkitWorldListener WorldListener = new BukkitWorldListener();
 
+    /**
+     * The handlers in the listeners above are registered with Bukkit one at a
+     * time, only while something is listening for the drivers they trigger.
+     */
+    private static BukkitDriverListeners driverListeners = null;
+
     public void Startup(CommandHelperPlugin chp) {
-        chp.registerEvent((Listener)BlockListener);
-        chp.registerEvent((Listener)EntityListener);
-        chp.registerEvent((Listener)InventoryListener);
-        chp.registerEvent((Listener)PlayerListener);
-        chp.registerEvent((Listener)ServerListener);
-        chp.registerEvent((Listener)VehicleListener);
-        chp.registerEvent((Listener)WeatherListener);
-        chp.registerEvent((Listener)WorldListener);        
+        driverListeners = new BukkitDriverListeners(chp, BlockListener, EntityListener,
+                InventoryListener, PlayerListener, ServerListener, VehicleListener,
+                WeatherListener, WorldListener);
+    }
+
+    @Override
+    public void SetListening(Driver type, boolean listening) {
+        if(driverListeners != null){
+            driverListeners.update(type);
+        }
     }
 
     public int LookupItemId(String materialName) {
@@ -19,6 +19,7 @@ import org.bukkit.event.block.SignChangeEvent;
  */
 public class BukkitBlockListener implements Listener{
 	@EventHandler(priority=EventPriority.LOWEST)
+	@TriggersDriver(Driver.SIGN_CHANGED)
     public void onSignChange(SignChangeEvent e){
 		BukkitBlockEvents.BukkitMCSignChangeEvent mce = new BukkitBlockEvents.BukkitMCSignChangeEvent(e);
 		EventUtils.TriggerExternal(mce);
@@ -26,6 +27,7 @@ public class BukkitBlockListener implements Listener{
     }
 	
 	@EventHandler(priority=EventPriority.LOWEST)
+	@TriggersDriver(Driver.BLOCK_PLACE)
     public void onBlockPlace(BlockPlaceEvent e){
 		BukkitBlockEvents.BukkitMCBlockPlaceEvent bpe = new BukkitBlockEvents.BukkitMCBlockPlaceEvent(e);
 		EventUtils.TriggerExternal(bpe);
@@ -33,6 +35,7 @@ public class BukkitBlockListener implements Listener{
     }
 	
 	@EventHandler(priority=EventPriority.LOWEST)
+	@TriggersDriver(Driver.BLOCK_BREAK)
     public void onBlockBreak(BlockBreakEvent e){
 		BukkitBlockEvents.BukkitMCBlockBreakEvent bbe = new BukkitBlockEvents.BukkitMCBlockBreakEvent(e);
 		EventUtils.TriggerExternal(bbe);
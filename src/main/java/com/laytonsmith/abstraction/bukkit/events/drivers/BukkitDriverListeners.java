@@ -0,0 +1,155 @@
+package com.laytonsmith.abstraction.bukkit.events.drivers;
+
+import com.laytonsmith.core.events.Driver;
+import com.laytonsmith.core.events.EventUtils;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.RegisteredListener;
+
+/**
+ * Registers the event handlers in the Bukkit listeners one at a time, instead of
+ * all at once, so that each handler is only registered while one of the drivers
+ * it triggers is being listened to. Otherwise, Bukkit would call every handler
+ * for every event, and each one would build a wrapper for the event, even if
+ * nothing has been bound to it.
+ *
+ * @author Layton
+ */
+public class BukkitDriverListeners {
+
+	private final Plugin plugin;
+	private final Map<Driver, List<Handler>> handlers = new EnumMap<Driver, List<Handler>>(Driver.class);
+
+	public BukkitDriverListeners(Plugin plugin, Listener... listeners) {
+		this.plugin = plugin;
+		for (Listener listener : listeners) {
+			for (Method m : listener.getClass().getMethods()) {
+				EventHandler eh = m.getAnnotation(EventHandler.class);
+				if (eh == null) {
+					continue;
+				}
+				Class<?>[] params = m.getParameterTypes();
+				HandlerList list = params.length == 1 ? getHandlerList(params[0]) : null;
+				if (list == null) {
+					Logger.getLogger(BukkitDriverListeners.class.getName()).log(Level.SEVERE,
+							"Could not register the event handler " + m.getName() + " in " + listener.getClass().getName());
+					continue;
+				}
+				TriggersDriver triggers = m.getAnnotation(TriggersDriver.class);
+				Handler h = new Handler(listener, m, eh, list, triggers == null ? new Driver[0] : triggers.value());
+				if (h.drivers.length == 0) {
+					//We don't know what it triggers, so it has to always be registered
+					h.setRegistered(true);
+				}
+				for (Driver type : h.drivers) {
+					if (!handlers.containsKey(type)) {
+						handlers.put(type, new ArrayList<Handler>());
+					}
+					handlers.get(type).add(h);
+				}
+			}
+		}
+		for (Driver type : handlers.keySet()) {
+			update(type);
+		}
+	}
+
+	/**
+	 * Registers or unregisters the handlers that trigger this driver, depending
+	 * on whether or not each of them still has a driver that's being listened
+	 * to.
+	 *
+	 * @param type
+	 */
+	public void update(Driver type) {
+		if (!handlers.containsKey(type)) {
+			return;
+		}
+		for (Handler h : handlers.get(type)) {
+			boolean listening = false;
+			for (Driver d : h.drivers) {
+				if (EventUtils.IsListening(d)) {
+					listening = true;
+					break;
+				}
+			}
+			h.setRegistered(listening);
+		}
+	}
+
+	/**
+	 * Returns the handler list for this event type, which may be declared by a
+	 * superclass, or null if there isn't one.
+	 */
+	private static HandlerList getHandlerList(Class<?> c) {
+		for (; c != null && Event.class.isAssignableFrom(c); c = c.getSuperclass()) {
+			try {
+				Method m = c.getDeclaredMethod("getHandlerList");
+				m.setAccessible(true);
+				return (HandlerList) m.invoke(null);
+			} catch (NoSuchMethodException ex) {
+				//Try the superclass
+			} catch (IllegalAccessException ex) {
+				return null;
+			} catch (InvocationTargetException ex) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	private class Handler {
+
+		private final Driver[] drivers;
+		private final HandlerList list;
+		private final RegisteredListener registeredListener;
+		private boolean registered = false;
+
+		private Handler(Listener listener, final Method method, EventHandler eh, HandlerList list, Driver[] drivers) {
+			this.drivers = drivers;
+			this.list = list;
+			final Class<?> eventClass = method.getParameterTypes()[0];
+			EventExecutor executor = new EventExecutor() {
+				public void execute(Listener listener, Event event) throws EventException {
+					if (!eventClass.isInstance(event)) {
+						//Subclasses of the event that share its handler list end up here too
+						return;
+					}
+					try {
+						method.invoke(listener, event);
+					} catch (InvocationTargetException ex) {
+						throw new EventException(ex.getCause());
+					} catch (IllegalAccessException ex) {
+						throw new EventException(ex);
+					}
+				}
+			};
+			registeredListener = new RegisteredListener(listener, executor, eh.priority(), plugin, eh.ignoreCancelled());
+		}
+
+		private void setRegistered(boolean registered) {
+			if (registered == this.registered) {
+				return;
+			}
+			if (registered) {
+				list.register(registeredListener);
+			} else {
+				list.unregister(registeredListener);
+			}
+			this.registered = registered;
+		}
+	}
+}
@@ -31,6 +31,7 @@ import org.bukkit.event.player.PlayerPickupItemEvent;
 public class BukkitEntityListener implements Listener{
 
 	@EventHandler(priority=EventPriority.LOWEST)
+	@TriggersDriver(Driver.CREATURE_SPAWN)
 	public void onSpawn(CreatureSpawnEvent event) {
 		BukkitEntityEvents.BukkitMCCreatureSpawnEvent cse = new BukkitEntityEvents.BukkitMCCreatureSpawnEvent(event);
 		EventUtils.TriggerExternal(cse);
@@ -38,6 +39,7 @@ public class BukkitEntityListener implements Listener{
 	}
 	
 	@EventHandler(priority=EventPriority.LOWEST)
+	@TriggersDriver(Driver.PLAYER_INTERACT_ENTITY)
 	public void onClickEnt(PlayerInteractEntityEvent event) {
 		BukkitEntityEvents.BukkitMCPlayerInteractEntityEvent piee = new BukkitEntityEvents.BukkitMCPlayerInteractEntityEvent(event);
 		EventUtils.TriggerExternal(piee);
@@ -45,6 +47,7 @@ public class BukkitEntityListener implements Listener{
 	}
 	
     @EventHandler(priority=EventPriority.LOWEST)
+    @TriggersDriver(Driver.ITEM_DROP)
     public void onItemDrop(PlayerDropItemEvent event) {
 		BukkitEntityEvents.BukkitMCPlayerDropItemEvent pdie = new BukkitEntityEvents.BukkitMCPlayerDropItemEvent(event);
         EventUtils.TriggerExternal(pdie);
@@ -52,6 +55,7 @@ public class BukkitEntityListener implements Listener{
     }
     
 	@EventHandler(priority=EventPriority.LOWEST)
+	@TriggersDriver(Driver.ITEM_PICKUP)
     public void onItemPickup(PlayerPickupItemEvent event) {
 		BukkitEntityEvents.BukkitMCPlayerPickupItemEvent ppie = new BukkitEntityEvents.BukkitMCPlayerPickupItemEvent(event);
 		EventUtils.TriggerExternal(ppie);
@@ -59,6 +63,7 @@ public class BukkitEntityListener implements Listener{
 	}
 	
 	@EventHandler(priority=EventPriority.LOWEST)
+	@TriggersDriver({Driver.ENTITY_DEATH, Driver.PLAYER_DEATH})
 	public void onEntityDeath(EntityDeathEvent event) {
 		BukkitEntityEvents.BukkitMCEntityDeathEvent ede;
 		if (event instanceof PlayerDeathEvent) {
@@ -74,6 +79,7 @@ public class BukkitEntityListener implements Listener{
 	}
     
     @EventHandler(priority=EventPriority.LOWEST)
+    @TriggersDriver(Driver.TARGET_ENTITY)
     public void onTargetLiving(EntityTargetEvent event) {
 		BukkitEntityEvents.BukkitMCTargetEvent ete = new BukkitEntityEvents.BukkitMCTargetEvent(event);
 		EventUtils.TriggerExternal(ete);
@@ -81,6 +87,7 @@ public class BukkitEntityListener implements Listener{
     }
     
 	@EventHandler(priority=EventPriority.LOWEST)
+	@TriggersDriver({Driver.ENTITY_DAMAGE, Driver.ENTITY_DAMAGE_PLAYER})
 	public void onEntityDamage(EntityDamageEvent event) {
 		BukkitEntityEvents.BukkitMCEntityDamageEvent ede;
 		if (event instanceof EntityDamageByEntityEvent) {
@@ -98,6 +105,7 @@ public class BukkitEntityListener implements Listener{
 	}
 	
 	@EventHandler(priority=EventPriority.LOWEST)
+	@TriggersDriver(Driver.PROJECTILE_HIT)
 	public void onPHit(ProjectileHitEvent event) {
 		BukkitEntityEvents.BukkitMCProjectileHitEvent phe = 
 				new BukkitEntityEvents.BukkitMCProjectileHitEvent(event);
@@ -106,6 +114,7 @@ public class BukkitEntityListener implements Listener{
 	}
 	
 	@EventHandler(priority= EventPriority.LOWEST)
+	@TriggersDriver(Driver.ENTITY_ENTER_PORTAL)
 	public void onPortalEnter(EntityPortalEnterEvent event) {
 		BukkitEntityEvents.BukkitMCEntityEnterPortalEvent pe = new BukkitEntityEvents.BukkitMCEntityEnterPortalEvent(event);
 		EventUtils.TriggerExternal(pe);
@@ -113,6 +122,7 @@ public class BukkitEntityListener implements Listener{
 	}
 	
 	@EventHandler(priority= EventPriority.LOWEST)
+	@TriggersDriver(Driver.ENTITY_EXPLODE)
 	public void onExplode(EntityExplodeEvent event) {
 		BukkitEntityEvents.BukkitMCEntityExplodeEvent ee = new BukkitEntityEvents.BukkitMCEntityExplodeEvent(event);
 		EventUtils.TriggerExternal(ee);
@@ -120,6 +130,7 @@ public class BukkitEntityListener implements Listener{
 	}
 	
 	@EventHandler(priority = EventPriority.LOWEST)
+	@TriggersDriver(Driver.ITEM_SPAWN)
 	public void onItemSpawn(ItemSpawnEvent event) {
 		BukkitEntityEvents.BukkitMCItemSpawnEvent is = new BukkitEntityEvents.BukkitMCItemSpawnEvent(event);
 		EventUtils.TriggerExternal(is);
@@ -22,6 +22,7 @@ import org.bukkit.event.inventory.InventoryOpenEvent;
 public class BukkitInventoryListener implements Listener{
     
 	@EventHandler(priority=EventPriority.LOWEST)
+	@TriggersDriver(Driver.INVENTORY_CLICK)
 	public void onInvClick(InventoryClickEvent event) {
 		BukkitMCInventoryClickEvent ice = new BukkitInventoryEvents.BukkitMCInventoryClickEvent(event);
 		EventUtils.TriggerExternal(ice);
@@ -29,6 +30,7 @@ public class BukkitInventoryListener implements Listener{
 	}
 
 	@EventHandler(priority=EventPriority.LOWEST)
+	@TriggersDriver(Driver.INVENTORY_DRAG)
 	public void onInvDrag(InventoryDragEvent event) {
 		BukkitMCInventoryDragEvent ide = new BukkitInventoryEvents.BukkitMCInventoryDragEvent(event);
 		EventUtils.TriggerExternal(ide);
@@ -36,6 +38,7 @@ public class BukkitInventoryListener implements Listener{
 	}
 	
 	@EventHandler(priority=EventPriority.LOWEST)
+	@TriggersDriver(Driver.INVENTORY_OPEN)
 	public void onInvOpen(InventoryOpenEvent event) {
 		BukkitMCInventoryOpenEvent ioe = new BukkitInventoryEvents.BukkitMCInventoryOpenEvent(event);
 		EventUtils.TriggerExternal(ioe);
@@ -43,6 +46,7 @@ public class BukkitInventoryListener implements Listener{
 	}
 	
 	@EventHandler(priority=EventPriority.LOWEST)
+	@TriggersDriver(Driver.INVENTORY_CLOSE)
 	public void onInvClose(InventoryCloseEvent event) {
 		BukkitMCInventoryCloseEvent ice = new BukkitInventoryEvents.BukkitMCInventoryCloseEvent(event);
 		EventUtils.TriggerExternal(ice);
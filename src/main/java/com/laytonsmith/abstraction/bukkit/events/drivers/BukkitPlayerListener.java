@@ -25,6 +25,7 @@ import org.bukkit.event.player.*;
 public class BukkitPlayerListener implements Listener {
 
     @EventHandler(priority = EventPriority.LOWEST)
+    @TriggersDriver(Driver.PLAYER_KICK)
     public void onPlayerKick(PlayerKickEvent e) {
 		BukkitPlayerEvents.BukkitMCPlayerKickEvent pke = new BukkitPlayerEvents.BukkitMCPlayerKickEvent(e);
         EventUtils.TriggerExternal(pke);
@@ -32,6 +33,7 @@ public class BukkitPlayerListener implements Listener {
     }
 	
 	@EventHandler(priority = EventPriority.LOWEST)
+	@TriggersDriver(Driver.PLAYER_BED_EVENT)
     public void onPlayerBedEnter(PlayerBedEnterEvent e) {
 		BukkitPlayerEvents.BukkitMCPlayerBedEvent be = new BukkitPlayerEvents.BukkitMCPlayerBedEvent(e);
         EventUtils.TriggerExternal(be);
@@ -39,6 +41,7 @@ public class BukkitPlayerListener implements Listener {
     }
 	
 	@EventHandler(priority = EventPriority.LOWEST)
+	@TriggersDriver(Driver.PLAYER_BED_EVENT)
     public void onPlayerBedLeave(PlayerBedLeaveEvent e) {
 		BukkitPlayerEvents.BukkitMCPlayerBedEvent be = new BukkitPlayerEvents.BukkitMCPlayerBedEvent(e);
         EventUtils.TriggerExternal(be);
@@ -46,6 +49,7 @@ public class BukkitPlayerListener implements Listener {
     }
     
 	@EventHandler(priority = EventPriority.LOWEST)
+	@TriggersDriver(Driver.PLAYER_LOGIN)
 	public void onPlayerLogin(PlayerLoginEvent e) {
 		BukkitPlayerEvents.BukkitMCPlayerLoginEvent ple = new BukkitPlayerEvents.BukkitMCPlayerLoginEvent(e);
 		EventUtils.TriggerExternal(ple);
@@ -53,6 +57,7 @@ public class BukkitPlayerListener implements Listener {
 	}
 
 	@EventHandler(priority = EventPriority.LOWEST)
+	@TriggersDriver(Driver.PLAYER_PRELOGIN)
 	public void onPlayerPreLogin(PlayerPreLoginEvent e) {
 		BukkitPlayerEvents.BukkitMCPlayerPreLoginEvent pple = new BukkitPlayerEvents.BukkitMCPlayerPreLoginEvent(e);
 		EventUtils.TriggerExternal(pple);
@@ -60,6 +65,7 @@ public class BukkitPlayerListener implements Listener {
 	}
 
 	@EventHandler(priority = EventPriority.LOWEST)
+	@TriggersDriver(Driver.PLAYER_JOIN)
 	public void onPlayerJoin(PlayerJoinEvent e) {
 		BukkitPlayerEvents.BukkitMCPlayerJoinEvent pje = new BukkitPlayerEvents.BukkitMCPlayerJoinEvent(e);
 		EventUtils.TriggerExternal(pje);
@@ -67,6 +73,7 @@ public class BukkitPlayerListener implements Listener {
 	}
 
 	@EventHandler(priority = EventPriority.LOWEST)
+	@TriggersDriver(Driver.PLAYER_INTERACT)
 	public void onPlayerInteract(PlayerInteractEvent e) {
 		BukkitPlayerEvents.BukkitMCPlayerInteractEvent pie = new BukkitPlayerEvents.BukkitMCPlayerInteractEvent(e);
 		EventUtils.TriggerExternal(pie);
@@ -75,6 +82,7 @@ public class BukkitPlayerListener implements Listener {
 	}
 
 	@EventHandler(priority = EventPriority.LOWEST)
+	@TriggersDriver(Driver.PLAYER_SPAWN)
 	public void onPlayerRespawn(PlayerRespawnEvent event) {
 		BukkitPlayerEvents.BukkitMCPlayerRespawnEvent pre = new BukkitPlayerEvents.BukkitMCPlayerRespawnEvent(event);
 		EventUtils.TriggerExternal(pre);
@@ -82,6 +90,7 @@ public class BukkitPlayerListener implements Listener {
 	}
 
 	@EventHandler(priority = EventPriority.LOWEST, ignoreCancelled=true)
+	@TriggersDriver(Driver.PLAYER_CHAT)
 	public void onPlayerChat(final AsyncPlayerChatEvent event) {
 		if(CommandHelperPlugin.self.interpreterListener
                 .isInInterpreterMode(event.getPlayer().getName())){
@@ -179,6 +188,7 @@ public class BukkitPlayerListener implements Listener {
 	}
 
 	@EventHandler(priority = EventPriority.LOWEST)
+	@TriggersDriver(Driver.PLAYER_QUIT)
 	public void onPlayerQuit(PlayerQuitEvent event) {
 		BukkitPlayerEvents.BukkitMCPlayerQuitEvent pqe = new BukkitPlayerEvents.BukkitMCPlayerQuitEvent(event);
 		EventUtils.TriggerExternal(pqe);
@@ -186,6 +196,7 @@ public class BukkitPlayerListener implements Listener {
 	}
 
 	@EventHandler(priority = EventPriority.LOWEST)
+	@TriggersDriver(Driver.WORLD_CHANGED)
 	public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
 		BukkitMCPlayer currentPlayer = (BukkitMCPlayer) Static.GetPlayer(event.getPlayer().getName(), Target.UNKNOWN);
 		//Apparently this happens sometimes, so prevent it
@@ -197,6 +208,7 @@ public class BukkitPlayerListener implements Listener {
 	}
 
 	@EventHandler(priority = EventPriority.LOWEST)
+	@TriggersDriver(Driver.PLAYER_TELEPORT)
 	public void onPlayerTeleport(PlayerTeleportEvent event) {
 		if (event.getFrom().equals(event.getTo())) {
 			return;
@@ -209,6 +221,7 @@ public class BukkitPlayerListener implements Listener {
 	
 
 	@EventHandler(priority = EventPriority.LOWEST)
+	@TriggersDriver(Driver.PLAYER_PORTAL_TRAVEL)
 	public void onPortalEnter(PlayerPortalEvent event) {
 		BukkitPlayerEvents.BukkitMCPlayerPortalEvent pe = new BukkitPlayerEvents.BukkitMCPlayerPortalEvent(event);
 		EventUtils.TriggerExternal(pe);
@@ -216,6 +229,7 @@ public class BukkitPlayerListener implements Listener {
 	}
 
 	@EventHandler(priority = EventPriority.LOWEST)
+	@TriggersDriver(Driver.PLAYER_CONSUME)
 	public void onConsume(PlayerItemConsumeEvent event) {
 		BukkitPlayerEvents.BukkitMCPlayerItemConsumeEvent pic = 
 				new BukkitPlayerEvents.BukkitMCPlayerItemConsumeEvent(event);
@@ -224,6 +238,7 @@ public class BukkitPlayerListener implements Listener {
 	}
 	
 	@EventHandler(priority= EventPriority.LOWEST)
+	@TriggersDriver(Driver.PLAYER_FISH)
 	public void onFish(PlayerFishEvent event) {
 		BukkitPlayerEvents.BukkitMCPlayerFishEvent fish = new BukkitPlayerEvents.BukkitMCPlayerFishEvent(event);
 		EventUtils.TriggerExternal(fish);
@@ -231,6 +246,7 @@ public class BukkitPlayerListener implements Listener {
 	}
 	
 	@EventHandler(priority= EventPriority.LOWEST)
+	@TriggersDriver(Driver.GAMEMODE_CHANGE)
 	public void onGamemodeChange(PlayerGameModeChangeEvent event) {
 		BukkitPlayerEvents.BukkitMCGamemodeChangeEvent e = new BukkitPlayerEvents.BukkitMCGamemodeChangeEvent(event);
 		EventUtils.TriggerExternal(e);
@@ -238,6 +254,7 @@ public class BukkitPlayerListener implements Listener {
 	}
 	
 	@EventHandler(priority= EventPriority.LOWEST)
+	@TriggersDriver(Driver.TAB_COMPLETE)
 	public void onChatTab(PlayerChatTabCompleteEvent event) {
 		BukkitPlayerEvents.BukkitMCChatTabCompleteEvent e = new BukkitPlayerEvents.BukkitMCChatTabCompleteEvent(event);
 		EventUtils.TriggerExternal(e);
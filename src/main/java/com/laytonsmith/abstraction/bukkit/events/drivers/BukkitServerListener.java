@@ -23,6 +23,7 @@ public class BukkitServerListener implements Listener{
 	}
 	
 	@EventHandler(priority= EventPriority.LOWEST)
+	@TriggersDriver(Driver.SERVER_PING)
 	public void onPing(ServerListPingEvent event) {
 		BukkitMiscEvents.BukkitMCServerPingEvent pe = new BukkitMiscEvents.BukkitMCServerPingEvent(event);
 		EventUtils.TriggerExternal(pe);
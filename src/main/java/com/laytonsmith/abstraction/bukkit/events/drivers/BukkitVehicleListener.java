@@ -25,6 +25,7 @@ import com.laytonsmith.core.events.EventUtils;
 public class BukkitVehicleListener implements Listener{
     
 	@EventHandler(priority= EventPriority.LOWEST)
+	@TriggersDriver(Driver.VEHICLE_ENTER)
 	public void onEnter(VehicleEnterEvent event) {
 		BukkitMCVehicleEnterEvent vee = new BukkitMCVehicleEnterEvent(event);
 		EventUtils.TriggerExternal(vee);
@@ -39,6 +40,7 @@ public class BukkitVehicleListener implements Listener{
 	}
 	
 	@EventHandler(priority= EventPriority.LOWEST)
+	@TriggersDriver(Driver.VEHICLE_COLLIDE)
 	public void onBlockCollide(VehicleBlockCollisionEvent event) {
 		if (event.getVehicle() instanceof Pig && !((Pig) event.getVehicle()).hasSaddle()) {
 			return;
@@ -49,6 +51,7 @@ public class BukkitVehicleListener implements Listener{
 	}
 
 	@EventHandler(priority= EventPriority.LOWEST)
+	@TriggersDriver(Driver.VEHICLE_COLLIDE)
 	public void onEntityCollide(VehicleEntityCollisionEvent event) {
 		if (event.getVehicle().getPassenger() != event.getEntity()) {
 			BukkitMCVehicleEntityCollideEvent vec = new BukkitMCVehicleEntityCollideEvent(event);
@@ -0,0 +1,22 @@
+package com.laytonsmith.abstraction.bukkit.events.drivers;
+
+import com.laytonsmith.core.events.Driver;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Tags a Bukkit event handler with the drivers it triggers. The handler is only
+ * registered with Bukkit while at least one of these drivers is being listened
+ * to, see {@link BukkitDriverListeners}. A handler without this annotation is
+ * always registered.
+ *
+ * @author Layton
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface TriggersDriver {
+
+	Driver[] value();
+}
@@ -1,6 +1,7 @@
 package com.laytonsmith.core;
 
 import com.laytonsmith.PureUtilities.ClassDiscovery;
+import com.laytonsmith.PureUtilities.StringUtils;
 import com.laytonsmith.PureUtilities.TermColors;
 import com.laytonsmith.abstraction.MCBlockCommandSender;
 import com.laytonsmith.abstraction.MCCommandSender;
@@ -8,6 +9,7 @@ import com.laytonsmith.abstraction.MCPlayer;
 import com.laytonsmith.abstraction.StaticLayer;
 import com.laytonsmith.abstraction.enums.MCChatColor;
 import com.laytonsmith.commandhelper.CommandHelperPlugin;
+import com.laytonsmith.core.compiler.ParseTreeCache;
 import com.laytonsmith.core.constructs.Target;
 import com.laytonsmith.core.environments.CommandHelperEnvironment;
 import com.laytonsmith.core.environments.Environment;
@@ -30,6 +32,13 @@ import com.sk89q.util.StringUtil;
 import java.io.*;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
@@ -52,6 +61,30 @@ public class AliasCore {
 	private File mainFile;
 	//AliasConfig config;
 	private List<Script> scripts;
+	/**
+	 * An index of the aliases in scripts, which is rebuilt whenever scripts is
+	 * replaced.
+	 */
+	private AliasIndex index;
+	/**
+	 * The environment the .ms files were run in by the last full reload, and
+	 * the files, in the order they were run. When only some of them change,
+	 * they're run again in the same environment, so they still see the procs
+	 * the other files defined.
+	 */
+	private Environment msEnvironment;
+	private List<File> msFiles = new ArrayList<File>();
+	/**
+	 * Watches the script files when hot reloading is on. There is at most one,
+	 * and it is stopped at the start of each reload, and when the server shuts
+	 * down.
+	 */
+	private ScriptWatcher watcher;
+	/**
+	 * Whether the shutdown hook that stops the watcher is registered. Running
+	 * the shutdown hooks also removes them, so the hook clears this when it runs.
+	 */
+	private boolean watcherHook = false;
 	static final Logger logger = Logger.getLogger("Minecraft");
 	private Set<String> echoCommand = new HashSet<String>();
 	private PermissionsResolver perms;
@@ -106,6 +139,10 @@ public class AliasCore {
 		if (scripts == null) {
 			throw ConfigRuntimeException.CreateUncatchableException("Cannot run alias commands, no config file is loaded", Target.UNKNOWN);
 		}
+		if (index == null) {
+			//The last reload didn't finish, so index whatever it got to
+			index = new AliasIndex(scripts, Prefs.CaseSensitive());
+		}
 
 		boolean match = false;
 		try { //catch RuntimeException
@@ -117,7 +154,7 @@ public class AliasCore {
 			}
 
 			//Global aliases override personal ones, so check the list first
-			for (Script s : scripts) {
+			for (Script s : index.getCandidates(command)) {
 				try {
 					if (s.match(command)) {
 						this.addPlayerReference(player);
@@ -246,6 +283,7 @@ public class AliasCore {
 	 * errors, otherwise, null.
 	 */
 	public final void reload(MCPlayer player) {
+		stopWatcher();
 		try {
 			StaticLayer.GetConvertor().runShutdownHooks();
 			CHLog.initialize(parent.chDirectory);
@@ -268,6 +306,7 @@ public class AliasCore {
 			Scheduling.ClearScheduledRunners();
 			EventUtils.UnregisterAll();
 			IncludeCache.clearCache(); //Clear the include cache, so it re-pulls files
+			MethodScriptCompiler.ClearAutoIncludes();
 			if (!aliasConfig.exists()) {
 				aliasConfig.getParentFile().mkdirs();
 				aliasConfig.createNewFile();
@@ -295,7 +334,10 @@ public class AliasCore {
 			}
 
 			Prefs.init(prefFile);
+			ParseTreeCache.Initialize(Prefs.UseCompileCache() ? new File(parent.chDirectory, "compile-cache") : null);
+			IncludeCache.SetMemoryBudget(Prefs.IncludeCacheSize() * 1024L * 1024L);
 			scripts = new ArrayList<Script>();
+			index = null;
 
 			LocalPackage localPackages = new LocalPackage();
 
@@ -314,12 +356,32 @@ public class AliasCore {
 			autoIncludes = localPackages.getAutoIncludes();
 
 			ProfilePoint compilerMS = parent.profiler.start("Compilation of MS files in Local Packages", LogLevel.VERBOSE);
+			msEnvironment = env;
+			msFiles = new ArrayList<File>();
+			for (LocalPackage.FileInfo fi : localPackages.getMSFiles()) {
+				msFiles.add(fi.file());
+			}
 			localPackages.compileMS(player, env);
 			compilerMS.stop();
 			ProfilePoint compilerMSA = parent.profiler.start("Compilation of MSA files in Local Packages", LogLevel.VERBOSE);
 			localPackages.compileMSA(scripts, player);
+			index = new AliasIndex(scripts, Prefs.CaseSensitive());
 			compilerMSA.stop();
 
+			if (Prefs.HotReload()) {
+				watcher = new ScriptWatcher(this, prefFile, mainFile, aliasConfig, auxAliases);
+				watcher.start();
+				if (!watcherHook) {
+					watcherHook = true;
+					StaticLayer.GetConvertor().addShutdownHook(new Runnable() {
+						public void run() {
+							watcherHook = false;
+							stopWatcher();
+						}
+					});
+				}
+			}
+
 		} catch (IOException ex) {
 			logger.log(Level.SEVERE, "[CommandHelper]: Path to config file is not correct/accessable. Please"
 					+ " check the location and try loading the plugin again.");
@@ -335,6 +397,113 @@ public class AliasCore {
 		}
 	}
 
+	/**
+	 * Stops the script watcher, if there is one.
+	 */
+	private void stopWatcher() {
+		if (watcher != null) {
+			watcher.stop();
+			watcher = null;
+		}
+	}
+
+	/**
+	 * Reloads only the given files, which have changed, been added, or been
+	 * deleted since they were last loaded. The aliases from .msa files are
+	 * recompiled and swapped in for the old ones, and the binds and intervals
+	 * set in .ms files are cleared before the files are run again. Aliases,
+	 * binds and intervals from all the other files are left alone. If any of
+	 * the files can't be reloaded on their own, such as preferences,
+	 * auto_include.ms files, zipped packages, new .ms files, or files that are
+	 * included by (or include) other files, everything is reloaded instead.
+	 * <p>
+	 * The changed .ms files are run in the environment that the last full reload
+	 * ran them in, in the same order, so the procs from the files that haven't
+	 * changed are still defined.
+	 *
+	 * @param files
+	 */
+	public final void reloadChanged(Set<File> files) {
+		Set<File> msa = new HashSet<File>();
+		List<File> ms = new ArrayList<File>();
+		for (File f : files) {
+			String name = f.getName();
+			if (f.equals(prefFile) || name.endsWith(".mslp") || name.equals("auto_include.ms")) {
+				reload(null);
+				return;
+			} else if (f.equals(mainFile) || name.endsWith(".ms")) {
+				if (IncludeCache.IsShared(f)) {
+					reload(null);
+					return;
+				}
+				if (f.equals(mainFile) || !InLibrary(f)) {
+					if (msEnvironment == null || !msFiles.contains(f)) {
+						//We don't know where a full reload would run it
+						reload(null);
+						return;
+					}
+					ms.add(f);
+				}
+			} else if (f.equals(aliasConfig) || (name.endsWith(".msa") && !InLibrary(f))) {
+				msa.add(f);
+			}
+			//Anything else isn't a script, so it doesn't matter to us
+		}
+		if (msa.isEmpty() && ms.isEmpty()) {
+			return;
+		}
+		CHLog.GetLogger().Log(CHLog.Tags.GENERAL, LogLevel.INFO, "Reloading changed files: " + StringUtils.Join(files, ", "), Target.UNKNOWN);
+		try {
+			if (!ms.isEmpty()) {
+				LocalPackage localPackages = new LocalPackage();
+				for (File f : msFiles) {
+					if (!ms.contains(f)) {
+						continue;
+					}
+					EventUtils.UnregisterEvents(f);
+					Scheduling.ClearScheduledRunners(f);
+					if (f.exists()) {
+						localPackages.appendMS(file_get_contents(f.getAbsolutePath()), f);
+					}
+				}
+				localPackages.compileMS(null, msEnvironment);
+			}
+			if (!msa.isEmpty()) {
+				LocalPackage localPackages = new LocalPackage();
+				for (File f : msa) {
+					if (f.exists()) {
+						localPackages.appendMSA(file_get_contents(f.getAbsolutePath()), f);
+					}
+				}
+				//The new list is built up on the side, and swapped in all at once
+				List<Script> newScripts = new ArrayList<Script>();
+				for (Script s : scripts) {
+					if (!msa.contains(s.getFile())) {
+						newScripts.add(s);
+					}
+				}
+				localPackages.compileMSA(newScripts, null);
+				index = new AliasIndex(newScripts, Prefs.CaseSensitive());
+				scripts = newScripts;
+			}
+		} catch (IOException ex) {
+			logger.log(Level.SEVERE, "[CommandHelper]: Could not read a changed file, so it was not reloaded.", ex);
+		}
+	}
+
+	/**
+	 * Returns true if the file is inside a .library folder, which means it
+	 * isn't loaded on its own, it's only ever included.
+	 */
+	private static boolean InLibrary(File f) {
+		for (File parent = f.getParentFile(); parent != null; parent = parent.getParentFile()) {
+			if (parent.getName().endsWith(".library")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Returns the contents of a file as a string. Accepts the file location as
 	 * a string.
@@ -482,31 +651,125 @@ public class AliasCore {
 			ms.add(new FileInfo(s, path));
 		}
 
-		public void compileMSA(List<Script> scripts, MCPlayer player) {
+		/**
+		 * The result of compiling one MSA file. errors holds the compile error (or
+		 * null) for each of the scripts.
+		 */
+		private static class MSAResult {
 
-			for (FileInfo fi : msa) {
-				List<Script> tempScripts;
-				try {
-					tempScripts = MethodScriptCompiler.preprocess(MethodScriptCompiler.lex(fi.contents, fi.file, false));
-					for (Script s : tempScripts) {
-						try {
+			List<Script> scripts;
+			List<ConfigCompileException> errors = new ArrayList<ConfigCompileException>();
+		}
+
+		/**
+		 * Runs the tasks, in parallel if it's worthwhile, and returns the results
+		 * in the same order as the tasks. Exceptions thrown by a task are rethrown
+		 * when the result of that particular task is fetched.
+		 * <p>
+		 * The pool is made for each reload and shut down straight after. That costs
+		 * a thread per core, which is nothing next to compiling a package, and it
+		 * means no threads sit idle between reloads, or need stopping on shutdown.
+		 */
+		private static <T> List<Future<T>> compileAll(List<Callable<T>> tasks) {
+			int threads = java.lang.Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+			if (threads <= 1) {
+				List<Future<T>> results = new ArrayList<Future<T>>();
+				for (Callable<T> task : tasks) {
+					FutureTask<T> f = new FutureTask<T>(task);
+					f.run();
+					results.add(f);
+				}
+				return results;
+			}
+			ExecutorService service = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				int count = 0;
+
+				public synchronized Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "CommandHelper Compiler " + (++count));
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			try {
+				return service.invokeAll(tasks);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(ex);
+			} finally {
+				service.shutdown();
+			}
+		}
+
+		/**
+		 * Returns the result of the finished task, rethrowing whatever it threw.
+		 */
+		private static <T> T result(Future<T> f) throws ConfigCompileException {
+			try {
+				return f.get();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(ex);
+			} catch (ExecutionException ex) {
+				Throwable cause = ex.getCause();
+				if (cause instanceof ConfigCompileException) {
+					throw (ConfigCompileException) cause;
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new RuntimeException(cause);
+			}
+		}
+
+		public void compileMSA(List<Script> scripts, MCPlayer player) {
+			//Lexing and compiling each file is independent of the others, so that's done in parallel.
+			//Checking for ambiguous aliases and reporting errors is done afterwards, in file order,
+			//so the results are the same as if everything had been done in order.
+			List<Callable<MSAResult>> tasks = new ArrayList<Callable<MSAResult>>();
+			for (final FileInfo fi : msa) {
+				tasks.add(new Callable<MSAResult>() {
+
+					public MSAResult call() throws ConfigCompileException {
+						MSAResult result = new MSAResult();
+						result.scripts = MethodScriptCompiler.preprocess(MethodScriptCompiler.lex(fi.contents, fi.file, false));
+						for (Script s : result.scripts) {
 							try {
 								s.compile();
-								s.checkAmbiguous((ArrayList<Script>) scripts);
-								scripts.add(s);
+								result.errors.add(null);
 							} catch (ConfigCompileException e) {
-								ConfigRuntimeException.React(e, "Compile error in script. Compilation will attempt to continue, however.", player);
+								result.errors.add(e);
+							} catch (RuntimeException ee) {
+								throw new RuntimeException("While processing a script, "
+										+ "(" + fi.file() + ") an unexpected exception occurred. (No further information"
+										+ " is available, unfortunately.)", ee);
 							}
-						} catch (RuntimeException ee) {
-							throw new RuntimeException("While processing a script, "
-									+ "(" + fi.file() + ") an unexpected exception occurred. (No further information"
-									+ " is available, unfortunately.)", ee);
 						}
+						return result;
 					}
+				});
+			}
+			List<Future<MSAResult>> results = compileAll(tasks);
+			for (int f = 0; f < msa.size(); f++) {
+				MSAResult result;
+				try {
+					result = result(results.get(f));
 				} catch (ConfigCompileException e) {
-					ConfigRuntimeException.React(e, "Could not compile file " + fi.file + " compilation will halt.", player);
+					ConfigRuntimeException.React(e, "Could not compile file " + msa.get(f).file + " compilation will halt.", player);
 					return;
 				}
+				for (int i = 0; i < result.scripts.size(); i++) {
+					Script s = result.scripts.get(i);
+					try {
+						if (result.errors.get(i) != null) {
+							throw result.errors.get(i);
+						}
+						s.checkAmbiguous((ArrayList<Script>) scripts);
+						scripts.add(s);
+					} catch (ConfigCompileException e) {
+						ConfigRuntimeException.React(e, "Compile error in script. Compilation will attempt to continue, however.", player);
+					}
+				}
 			}
 			int errors = 0;
 			for (Script s : scripts) {
@@ -528,11 +791,25 @@ public class AliasCore {
 		}
 
 		public void compileMS(MCPlayer player, Environment env) {
-			for (FileInfo fi : ms) {
+			//The files are all compiled up front, in parallel, but they're still run
+			//one at a time, in order.
+			List<Callable<ParseTree>> tasks = new ArrayList<Callable<ParseTree>>();
+			for (final FileInfo fi : ms) {
+				tasks.add(new Callable<ParseTree>() {
+
+					public ParseTree call() throws ConfigCompileException {
+						return ParseTreeCache.Compile(fi.contents, fi.file);
+					}
+				});
+			}
+			List<Future<ParseTree>> trees = compileAll(tasks);
+			for (int i = 0; i < ms.size(); i++) {
+				FileInfo fi = ms.get(i);
 				boolean exception = false;
 				try {
+					ParseTree tree = result(trees.get(i));
 					MethodScriptCompiler.registerAutoIncludes(env, null);
-					MethodScriptCompiler.execute(MethodScriptCompiler.compile(MethodScriptCompiler.lex(fi.contents, fi.file, true)), env, null, null);
+					MethodScriptCompiler.executeSilently(tree, env, null);
 				} catch (ConfigCompileException e) {
 					exception = true;
 					ConfigRuntimeException.React(e, fi.file.getAbsolutePath() + " could not be compiled, due to a compile error.", player);
@@ -0,0 +1,129 @@
+package com.laytonsmith.core;
+
+import com.laytonsmith.core.constructs.Construct;
+import com.laytonsmith.core.constructs.Variable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Finds the aliases that a command might run, without having to match the
+ * command against every alias. The aliases are kept in a tree keyed on the
+ * literal words at the start of their signatures, (the command itself, and any
+ * words after it, up to the first variable) so only the aliases whose leading
+ * words are actually in the command need to be matched.
+ *
+ * @author Layton
+ */
+public class AliasIndex {
+
+	private final boolean caseSensitive;
+	private final Node root;
+
+	private class Node {
+
+		/**
+		 * The aliases whose leading words end at this node, with their
+		 * position in the original list.
+		 */
+		private final List<Integer> positions = new ArrayList<Integer>();
+		private final List<Script> scripts = new ArrayList<Script>();
+		private final Map<String, Node> children;
+
+		private Node() {
+			if (caseSensitive) {
+				children = new HashMap<String, Node>();
+			} else {
+				//This compares the same way as String.equalsIgnoreCase, which is what Script.match uses
+				children = new TreeMap<String, Node>(String.CASE_INSENSITIVE_ORDER);
+			}
+		}
+	}
+
+	/**
+	 * Indexes the given aliases. Aliases that failed to compile are left out,
+	 * since they can never match anything.
+	 *
+	 * @param scripts The aliases, in the order they should be tried
+	 * @param caseSensitive Whether or not commands are case sensitive, see
+	 * {@link Prefs#CaseSensitive()}
+	 */
+	public AliasIndex(List<Script> scripts, boolean caseSensitive) {
+		this.caseSensitive = caseSensitive;
+		this.root = new Node();
+		for (int i = 0; i < scripts.size(); i++) {
+			Script s = scripts.get(i);
+			List<Construct> signature = s.getCompiledSignature();
+			if (signature == null) {
+				continue;
+			}
+			Node node = root;
+			for (Construct c : signature) {
+				if (c instanceof Variable) {
+					break;
+				}
+				Node child = node.children.get(c.val());
+				if (child == null) {
+					child = new Node();
+					node.children.put(c.val(), child);
+				}
+				node = child;
+			}
+			node.positions.add(i);
+			node.scripts.add(s);
+		}
+	}
+
+	/**
+	 * Returns the aliases that may match this command, in the same order as
+	 * they were in the original list. Each of these still needs to be checked
+	 * with {@link Script#match(String)}, but no alias that isn't in this list
+	 * can match.
+	 *
+	 * @param command
+	 * @return
+	 */
+	public List<Script> getCandidates(String command) {
+		List<Node> found = new ArrayList<Node>();
+		Node node = root;
+		for (String word : command.split(" ")) {
+			if (!node.scripts.isEmpty()) {
+				found.add(node);
+			}
+			node = node.children.get(word);
+			if (node == null) {
+				break;
+			}
+		}
+		if (node != null && !node.scripts.isEmpty()) {
+			found.add(node);
+		}
+		if (found.isEmpty()) {
+			return Collections.emptyList();
+		}
+		if (found.size() == 1) {
+			return Collections.unmodifiableList(found.get(0).scripts);
+		}
+		//Merge them back into the original order, since the first alias that
+		//matches wins.
+		List<Script> candidates = new ArrayList<Script>();
+		int[] next = new int[found.size()];
+		while (true) {
+			int best = -1;
+			for (int i = 0; i < found.size(); i++) {
+				if (next[i] < found.get(i).positions.size()
+						&& (best == -1 || found.get(i).positions.get(next[i]) < found.get(best).positions.get(next[best]))) {
+					best = i;
+				}
+			}
+			if (best == -1) {
+				return candidates;
+			}
+			candidates.add(found.get(best).scripts.get(next[best]));
+			next[best]++;
+		}
+	}
+}
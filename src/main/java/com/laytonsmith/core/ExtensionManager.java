@@ -6,6 +6,7 @@ import com.laytonsmith.abstraction.StaticLayer;
 import com.laytonsmith.annotations.shutdown;
 import com.laytonsmith.annotations.startup;
 import com.laytonsmith.core.constructs.Target;
+import com.laytonsmith.core.events.EventUtils;
 import java.io.File;
 import java.lang.reflect.Method;
 import java.net.MalformedURLException;
@@ -51,6 +52,9 @@ public class ExtensionManager {
 	 */
 	public static void Startup(){
 		
+		//The extensions may have changed, so their event handlers need to be looked up again
+		EventUtils.RefreshExternalHandlers();
+		
 		for(Method m : ClassDiscovery.GetMethodsWithAnnotation(startup.class)){
 			if(m.getParameterTypes().length != 0){
 				//Error, but skip this one, don't throw an exception ourselves, just log it.
@@ -54,6 +54,7 @@ public class Main {
 	private static final ArgumentParser apiMode;
 	private static final ArgumentParser examplesMode;
 	private static final ArgumentParser optimizerTestMode;
+	private static final ArgumentParser benchmarkMode;
 
 	static {
 		ArgumentSuite suite = new ArgumentSuite()
@@ -120,6 +121,13 @@ public class Main {
 				+ " tool, but could be used as an obfuscation tool as well.")
 				.addArgument("File path", "file", true);
 		suite.addMode("optimizer-test", optimizerTestMode);
+		benchmarkMode = ArgumentParser.GetParser()
+				.addDescription("Compiles the given source file, and runs it repeatedly, reporting how long each run took. If no"
+				+ " file is given, a built in suite of scripts is run instead. This is meant as a development tool, for"
+				+ " comparing the performance of the interpreter before and after a change.")
+				.addArgument('i', "iterations", ArgumentParser.Type.NUMBER, "10", "The number of times to run each script", "iterations", false)
+				.addArgument("File path", "[file]", false);
+		suite.addMode("benchmark", benchmarkMode);
 
 		ARGUMENT_SUITE = suite;
 	}
@@ -280,6 +288,12 @@ public class Main {
 				String optimized = OptimizationUtilities.optimize(plain, source);
 				System.out.println(optimized);
 				System.exit(0);
+			} else if (mode == benchmarkMode) {
+				Implementation.setServerType(Implementation.Type.SHELL);
+				CHLog.initialize(jarFolder);
+				Security.setSecurityEnabled(false);
+				Benchmark.start(parsedArgs.getStringArgument(), parsedArgs.getNumberArgument("iterations").intValue());
+				System.exit(0);
 			} else if (mode == helpMode) {
 				String modeForHelp = null;
 				if (parsedArgs != null) {
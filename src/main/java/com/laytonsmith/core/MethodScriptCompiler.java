@@ -2,6 +2,7 @@ package com.laytonsmith.core;
 
 import com.laytonsmith.core.Optimizable.OptimizationOption;
 import com.laytonsmith.core.compiler.FileOptions;
+import com.laytonsmith.core.compiler.TypeInference;
 import com.laytonsmith.core.constructs.*;
 import com.laytonsmith.core.constructs.Token.TType;
 import com.laytonsmith.core.environments.Environment;
@@ -32,662 +33,509 @@ public final class MethodScriptCompiler {
 	}
 
 	public static List<Token> lex(String config, File file, boolean inPureMScript) throws ConfigCompileException {
-		config = config.replaceAll("\r\n", "\n");
-		config = config + "\n";
-		List<Token> token_list = new ArrayList<Token>();
-		//Set our state variables
-		boolean state_in_quote = false;
-		int quoteLineNumberStart = 1;
-		boolean in_smart_quote = false;
-		int smartQuoteLineNumberStart = 1;
-		boolean in_comment = false;
-		int commentLineNumberStart = 1;
-		boolean comment_is_block = false;
-		boolean in_opt_var = false;
-		boolean inCommand = (inPureMScript?false:true);
-		boolean inMultiline = false;
-		StringBuilder buf = new StringBuilder();
-		int line_num = 1;
-		int column = 1;
-		int lastColumn = 0;
-		Target target = Target.UNKNOWN;
-		//first we lex
-		for (int i = 0; i < config.length(); i++) {
-			Character c = config.charAt(i);
-			Character c2 = null;
-			Character c3 = null;
-			if (i < config.length() - 1) {
-				c2 = config.charAt(i + 1);
+		return new Lexer(config, file, inPureMScript).lex();
+	}
+
+	/**
+	 * The lexer works directly on a char array, and keeps all its state in
+	 * primitives, so that nothing is allocated per character. Targets are only
+	 * created for the tokens that are actually emitted.
+	 */
+	private static final class Lexer {
+
+		private final char[] config;
+		private final int length;
+		private final File file;
+		private final boolean inPureMScript;
+		private final List<Token> token_list = new ArrayList<Token>();
+		private char[] buf = new char[64];
+		private int bufLength = 0;
+		private int line_num = 1;
+		private int column = 1;
+
+		private Lexer(String config, File file, boolean inPureMScript) {
+			//Normalize \r\n to \n, and add a trailing newline, all in one pass
+			int size = config.length();
+			char[] chars = new char[size + 1];
+			config.getChars(0, size, chars, 0);
+			int j = 0;
+			for (int i = 0; i < size; i++) {
+				if (chars[i] == '\r' && i + 1 < size && chars[i + 1] == '\n') {
+					continue;
+				}
+				chars[j++] = chars[i];
 			}
-			if (i < config.length() - 2) {
-				c3 = config.charAt(i + 2);
+			chars[j++] = '\n';
+			this.config = chars;
+			this.length = j;
+			this.file = file;
+			this.inPureMScript = inPureMScript;
+		}
+
+		private Target target() {
+			return new Target(line_num, file, column);
+		}
+
+		private void append(char c) {
+			if (bufLength == buf.length) {
+				buf = Arrays.copyOf(buf, buf.length * 2);
 			}
+			buf[bufLength++] = c;
+		}
 
-			column += i - lastColumn;
-			lastColumn = i;
-			if (c == '\n') {
-				line_num++;
-				column = 1;
-				if(!inMultiline && !inPureMScript){
-					inCommand = true;
-				}
+		private String takeBuffer() {
+			String s = new String(buf, 0, bufLength);
+			bufLength = 0;
+			return s;
+		}
+
+		/**
+		 * Ends the literal that's been building up, if there is one.
+		 */
+		private void flush() {
+			if (bufLength > 0) {
+				token_list.add(new Token(TType.UNKNOWN, takeBuffer(), target()));
 			}
-			target = new Target(line_num, file, column);
-
-			//Comment handling. If we're inside a string, bypass this though
-			if (!state_in_quote && !in_smart_quote) {
-				//Block comments start
-				if (c == '/' && c2 == '*' && !in_comment) {
-					in_comment = true;
-					comment_is_block = true;
-					commentLineNumberStart = line_num;
-					i++;
-					continue;
-				}
-				//Line comment start
-				if (c == '#' && !in_comment) {
-					in_comment = true;
-					comment_is_block = false;
-					continue;
+		}
+
+		/**
+		 * Ends the current literal, if any, and adds the symbol.
+		 */
+		private void symbol(TType type, String value) {
+			flush();
+			token_list.add(new Token(type, value, target()));
+		}
+
+		public List<Token> lex() throws ConfigCompileException {
+			//Set our state variables
+			boolean state_in_quote = false;
+			int quoteLineNumberStart = 1;
+			boolean in_smart_quote = false;
+			int smartQuoteLineNumberStart = 1;
+			boolean in_comment = false;
+			int commentLineNumberStart = 1;
+			boolean comment_is_block = false;
+			boolean in_opt_var = false;
+			boolean inCommand = (inPureMScript ? false : true);
+			boolean inMultiline = false;
+			int lineStart = 0;
+			//first we lex
+			for (int i = 0; i < length; i++) {
+				char c = config[i];
+				//Past the end of the input, the lookahead is simply \0, which never matches anything
+				char c2 = i < length - 1 ? config[i + 1] : '\0';
+				char c3 = i < length - 2 ? config[i + 2] : '\0';
+
+				if (c == '\n') {
+					line_num++;
+					lineStart = i;
+					if (!inMultiline && !inPureMScript) {
+						inCommand = true;
+					}
 				}
-				//Block comment end
-				if (c == '*' && c2 == '/' && in_comment && comment_is_block) {
-					if (in_comment && comment_is_block) {
+				column = i - lineStart + 1;
+
+				//Comment handling. If we're inside a string, bypass this though
+				if (!state_in_quote && !in_smart_quote) {
+					//Block comments start
+					if (c == '/' && c2 == '*' && !in_comment) {
+						in_comment = true;
+						comment_is_block = true;
+						commentLineNumberStart = line_num;
+						i++;
+						continue;
+					}
+					//Line comment start
+					if (c == '#' && !in_comment) {
+						in_comment = true;
+						comment_is_block = false;
+						continue;
+					}
+					//Block comment end
+					if (c == '*' && c2 == '/' && in_comment && comment_is_block) {
 						in_comment = false;
 						comment_is_block = false;
 						i++;
 						continue;
-					} else if (!in_comment) {
-						throw new ConfigCompileException("Unexpected block comment end", target);
-					} //else they put it in a line comment, which is fine
+					}
+					//Line comment end
+					if (c == '\n' && in_comment && !comment_is_block) {
+						in_comment = false;
+						continue;
+					}
 				}
-				//Line comment end
-				if (c == '\n' && in_comment && !comment_is_block) {
-					in_comment = false;
+				//Currently, if they are in a comment, we completely throw this away. Eventually block
+				//comments that were started with /** will be kept and applied to the next identifier, but for the time
+				//being, nothing.
+				if (in_comment) {
 					continue;
 				}
-			}
-			//Currently, if they are in a comment, we completely throw this away. Eventually block
-			//comments that were started with /** will be kept and applied to the next identifier, but for the time
-			//being, nothing.
-			if (in_comment) {
-				continue;
-			}
-			if(c == '+' && c2 == '=' && !state_in_quote){
-				if(buf.length() > 0){
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.PLUS_ASSIGNMENT, "+=", target));
-				i++;
-				continue;
-			}
-			if(c == '-' && c2 == '=' && !state_in_quote){
-				if(buf.length() > 0){
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.MINUS_ASSIGNMENT, "-=", target));
-				i++;
-				continue;
-			}
-			if(c == '*' && c2 == '=' && !state_in_quote){
-				if(buf.length() > 0){
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.MULTIPLICATION_ASSIGNMENT, "*=", target));
-				i++;
-				continue;
-			}
-			//This has to come before division and equals
-			if(c == '/' && c2 == '=' && !state_in_quote){
-				if(buf.length() > 0){
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.DIVISION_ASSIGNMENT, "/=", target));
-				i++;
-				continue;
-			}
-			if(c == '.' && c2 == '=' && !state_in_quote){
-				if(buf.length() > 0){
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.CONCAT_ASSIGNMENT, "/=", target));
-				i++;
-				continue;				
-			}
-			//This has to come before subtraction and greater than
-			if (c == '-' && c2 == '>' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.DEREFERENCE, "->", target));
-				i++;
-				continue;
-			}
-			//Increment and decrement must come before plus and minus
-			if (c == '+' && c2 == '+' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.INCREMENT, "++", target));
-				i++;
-				continue;
-			}
-			if (c == '-' && c2 == '-' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.DECREMENT, "--", target));
-				i++;
-				continue;
-			}
-
-			if (c == '%' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.MODULO, "%", target));
-				continue;
-			}
-
-			//Math symbols must come after comment parsing, due to /* and */ block comments
-			//Block comments are caught above
-			if (c == '*' && c2 == '*' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.EXPONENTIAL, "**", target));
-				i++;
-				continue;
-			}
-			if (c == '*' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.MULTIPLICATION, "*", target));
-				continue;
-			}
-			if (c == '+' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.PLUS, "+", target));
-				continue;
-			}
-			if (c == '-' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.MINUS, "-", target));
-				continue;
-			}
-			//Protect against commands
-			if (c == '/' && !Character.isLetter(c2) && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.DIVISION, "/", target));
-				continue;
-			}
-			//Logic symbols
-			if (c == '>' && c2 == '=' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.GTE, ">=", target));
-				i++;
-				continue;
-			}
-			if (c == '<' && c2 == '=' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.LTE, "<=", target));
-				i++;
-				continue;
-			}
-			//multiline has to come before gt/lt
-			if (c == '<' && c2 == '<' && c3 == '<' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.MULTILINE_END, "<<<", target));
-				inMultiline = false;
-				i++;
-				i++;
-				continue;
-			}
-			if (c == '>' && c2 == '>' && c3 == '>' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.MULTILINE_START, ">>>", target));
-				inMultiline = true;
-				i++;
-				i++;
-				continue;
-			}
-			if (c == '<' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.LT, "<", target));
-				continue;
-			}
-			if (c == '>' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.GT, ">", target));
-				continue;
-			}
-			if (c == '=' && c2 == '=' && c3 == '=' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.STRICT_EQUALS, "===", target));
-				i++;
-				i++;
-				continue;
-			}
-			if (c == '!' && c2 == '=' && c3 == '=' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.STRICT_NOT_EQUALS, "!==", target));
-				i++;
-				i++;
-				continue;
-			}
-			if (c == '=' && c2 == '=' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.EQUALS, "==", target));
-				i++;
-				i++;
-				continue;
-			}
-			if (c == '!' && c2 == '=' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.NOT_EQUALS, "!=", target));
-				i++;
-				i++;
-				continue;
-			}
-			if (c == '&' && c2 == '&' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.LOGICAL_AND, "&&", target));
-				i++;
-				continue;
-			}
-			if (c == '|' && c2 == '|' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.LOGICAL_OR, "||", target));
-				i++;
-				continue;
-			}
-			if (c == '!' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.LOGICAL_NOT, "!", target));
-				continue;
-			}
-			if (c == '{' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.LCURLY_BRACKET, "{", target));
-				continue;
-			}
-			if (c == '}' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.RCURLY_BRACKET, "}", target));
-				continue;
-			}
-			//I don't want to use these symbols yet, especially since bitwise operations are rare.
-//            if(c == '&' && !state_in_quote){
-//                if (buf.length() > 0) {
-//                    token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-//                    buf = new StringBuilder();
-//                }
-//                token_list.add(new Token(TType.BIT_AND, "&", target));  
-//                continue;
-//            }
-//            if(c == '|' && !state_in_quote){
-//                if (buf.length() > 0) {
-//                    token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-//                    buf = new StringBuilder();
-//                }
-//                token_list.add(new Token(TType.BIT_OR, "|", target));  
-//                continue;
-//            }
-//            if(c == '^' && !state_in_quote){
-//                if (buf.length() > 0) {
-//                    token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-//                    buf = new StringBuilder();
-//                }
-//                token_list.add(new Token(TType.BIT_XOR, "^", target));  
-//                continue;
-//            }
-
-			if (c == '.' && c2 == '.' && !state_in_quote) {
-				//This one has to come before plain .
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.SLICE, "..", target));
-				i++;
-				continue;
-			}
-			if (c == '.' && !Character.isDigit(c2) && !state_in_quote) {
-				//if it's a number after this, it's a decimal
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.CONCAT, ".", target));
-				continue;
-			}
-			if (c == ':' && c2 == ':' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.DEREFERENCE, "::", target));
-				i++;
-				continue;
-			}
-			if (c == '[' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.LSQUARE_BRACKET, "[", target));
-				in_opt_var = true;
-				continue;
-			}
-			//This has to come after == and ===
-			if (c == '=' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
+				if (!state_in_quote) {
+					//Symbols. Within each character, the longer symbols have to be checked first.
+					switch (c) {
+						case '+':
+							if (c2 == '=') {
+								symbol(TType.PLUS_ASSIGNMENT, "+=");
+								i++;
+							} else if (c2 == '+') {
+								//Increment and decrement must come before plus and minus
+								symbol(TType.INCREMENT, "++");
+								i++;
+							} else {
+								symbol(TType.PLUS, "+");
+							}
+							continue;
+						case '-':
+							if (c2 == '=') {
+								symbol(TType.MINUS_ASSIGNMENT, "-=");
+								i++;
+							} else if (c2 == '>') {
+								symbol(TType.DEREFERENCE, "->");
+								i++;
+							} else if (c2 == '-') {
+								symbol(TType.DECREMENT, "--");
+								i++;
+							} else {
+								symbol(TType.MINUS, "-");
+							}
+							continue;
+						case '*':
+							//Block comments are caught above
+							if (c2 == '=') {
+								symbol(TType.MULTIPLICATION_ASSIGNMENT, "*=");
+								i++;
+							} else if (c2 == '*') {
+								symbol(TType.EXPONENTIAL, "**");
+								i++;
+							} else {
+								symbol(TType.MULTIPLICATION, "*");
+							}
+							continue;
+						case '/':
+							if (c2 == '=') {
+								symbol(TType.DIVISION_ASSIGNMENT, "/=");
+								i++;
+								continue;
+							}
+							//Protect against commands
+							if (!Character.isLetter(c2)) {
+								symbol(TType.DIVISION, "/");
+								continue;
+							}
+							break;
+						case '.':
+							if (c2 == '=') {
+								symbol(TType.CONCAT_ASSIGNMENT, "/=");
+								i++;
+								continue;
+							}
+							if (c2 == '.') {
+								symbol(TType.SLICE, "..");
+								i++;
+								continue;
+							}
+							//if it's a number after this, it's a decimal
+							if (!Character.isDigit(c2)) {
+								symbol(TType.CONCAT, ".");
+								continue;
+							}
+							break;
+						case '%':
+							symbol(TType.MODULO, "%");
+							continue;
+						case '>':
+							if (c2 == '=') {
+								symbol(TType.GTE, ">=");
+								i++;
+							} else if (c2 == '>' && c3 == '>') {
+								symbol(TType.MULTILINE_START, ">>>");
+								inMultiline = true;
+								i += 2;
+							} else {
+								symbol(TType.GT, ">");
+							}
+							continue;
+						case '<':
+							if (c2 == '=') {
+								symbol(TType.LTE, "<=");
+								i++;
+							} else if (c2 == '<' && c3 == '<') {
+								symbol(TType.MULTILINE_END, "<<<");
+								inMultiline = false;
+								i += 2;
+							} else {
+								symbol(TType.LT, "<");
+							}
+							continue;
+						case '=':
+							if (c2 == '=' && c3 == '=') {
+								symbol(TType.STRICT_EQUALS, "===");
+								i += 2;
+							} else if (c2 == '=') {
+								symbol(TType.EQUALS, "==");
+								i += 2;
+							} else {
+								flush();
+								if (inCommand) {
+									if (in_opt_var) {
+										token_list.add(new Token(TType.OPT_VAR_ASSIGN, "=", target()));
+									} else {
+										token_list.add(new Token(TType.ALIAS_END, "=", target()));
+										inCommand = false;
+									}
+								} else {
+									token_list.add(new Token(TType.ASSIGNMENT, "=", target()));
+								}
+							}
+							continue;
+						case '!':
+							if (c2 == '=' && c3 == '=') {
+								symbol(TType.STRICT_NOT_EQUALS, "!==");
+								i += 2;
+							} else if (c2 == '=') {
+								symbol(TType.NOT_EQUALS, "!=");
+								i += 2;
+							} else {
+								symbol(TType.LOGICAL_NOT, "!");
+							}
+							continue;
+						case '&':
+							if (c2 == '&') {
+								symbol(TType.LOGICAL_AND, "&&");
+								i++;
+								continue;
+							}
+							//I don't want to use the bitwise symbols yet, especially since bitwise operations are rare.
+							break;
+						case '|':
+							if (c2 == '|') {
+								symbol(TType.LOGICAL_OR, "||");
+								i++;
+								continue;
+							}
+							break;
+						case '{':
+							symbol(TType.LCURLY_BRACKET, "{");
+							continue;
+						case '}':
+							symbol(TType.RCURLY_BRACKET, "}");
+							continue;
+						case '[':
+							symbol(TType.LSQUARE_BRACKET, "[");
+							in_opt_var = true;
+							continue;
+						case ']':
+							symbol(TType.RSQUARE_BRACKET, "]");
+							in_opt_var = false;
+							continue;
+						case ':':
+							if (c2 == ':') {
+								symbol(TType.DEREFERENCE, "::");
+								i++;
+							} else {
+								symbol(TType.LABEL, ":");
+							}
+							continue;
+						case ',':
+							symbol(TType.COMMA, ",");
+							continue;
+						case '(':
+							if (bufLength > 0) {
+								token_list.add(new Token(TType.FUNC_NAME, takeBuffer(), target()));
+							} else {
+								//The previous token, if unknown, should be changed to a FUNC_NAME. If it's not
+								//unknown, we may be doing standalone parenthesis, so auto tack on the __autoconcat__ function
+								int last = token_list.size() - 1;
+								while (last >= 0 && token_list.get(last).type == TType.WHITESPACE) {
+									last--;
+								}
+								if (last >= 0 && token_list.get(last).type == TType.UNKNOWN) {
+									token_list.get(last).type = TType.FUNC_NAME;
+									//Go ahead and remove the whitespace here too, it breaks things
+									while (token_list.size() - 1 > last) {
+										token_list.remove(token_list.size() - 1);
+									}
+								} else {
+									//This may also be the first element on the list, so, it's another autoconcat.
+									token_list.add(new Token(TType.FUNC_NAME, "__autoconcat__", target()));
+								}
+							}
+							token_list.add(new Token(TType.FUNC_START, "(", target()));
+							continue;
+						case ')':
+							symbol(TType.FUNC_END, ")");
+							continue;
+						default:
+							if (c != '\n' && Character.isWhitespace(c)) {
+								//keep the whitespace, but end the previous token, unless the last character
+								//was also whitespace. All whitespace is added as a single space.
+								flush();
+								if (token_list.size() > 0
+										&& token_list.get(token_list.size() - 1).type != TType.WHITESPACE) {
+									token_list.add(new Token(TType.WHITESPACE, " ", target()));
+								}
+								continue;
+							}
+					}
 				}
-				if(inCommand){
-					if (in_opt_var) {
-						token_list.add(new Token(TType.OPT_VAR_ASSIGN, "=", target));
+				if (c == '\'') {
+					if (state_in_quote && !in_smart_quote) {
+						token_list.add(new Token(TType.STRING, takeBuffer(), target()));
+						state_in_quote = false;
+					} else if (!state_in_quote) {
+						state_in_quote = true;
+						quoteLineNumberStart = line_num;
+						in_smart_quote = false;
+						flush();
 					} else {
-						token_list.add(new Token(TType.ALIAS_END, "=", target));
-						inCommand = false;
+						//we're in a smart quote
+						append('\'');
 					}
-				} else {
-					token_list.add(new Token(TType.ASSIGNMENT, "=", target));
-				}
-				continue;
-			}
-			if (c == ']' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.RSQUARE_BRACKET, "]", target));
-				in_opt_var = false;
-				continue;
-			}
-			if (c == ':' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.LABEL, ":", target));
-				continue;
-			}
-			if (c == ',' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				token_list.add(new Token(TType.COMMA, ",", target));
-				continue;
-			}
-			if (c == '(' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.FUNC_NAME, buf.toString(), target));
-					buf = new StringBuilder();
-				} else {
-					//The previous token, if unknown, should be changed to a FUNC_NAME. If it's not
-					//unknown, we may be doing standalone parenthesis, so auto tack on the __autoconcat__ function
-					try {
-						int count = 1;
-						while (token_list.get(token_list.size() - count).type == TType.WHITESPACE) {
-							count++;
-						}
-						if (token_list.get(token_list.size() - count).type == TType.UNKNOWN) {
-							token_list.get(token_list.size() - count).type = TType.FUNC_NAME;
-							//Go ahead and remove the whitespace here too, it breaks things
-							count--;
-							for (int a = 0; a < count; a++) {
-								token_list.remove(token_list.size() - 1);
+				} else if (c == '"') {
+					if (state_in_quote && in_smart_quote) {
+						//For now, since this feature isn't fully implemented, just throw an exception
+						throw new ConfigCompileException("Doubly quoted strings are not yet supported.", target());
+					} else if (!state_in_quote) {
+						state_in_quote = true;
+						in_smart_quote = true;
+						smartQuoteLineNumberStart = line_num;
+						flush();
+					} else {
+						//we're in normal quotes
+						append('"');
+					}
+				} else if (c == '\\') {
+					//escaped characters
+					if (state_in_quote) {
+						if (c2 == '\\') {
+							append('\\');
+						} else if (c2 == '\'' && !in_smart_quote) {
+							append('\'');
+						} else if (c2 == '"' && in_smart_quote) {
+							append('"');
+						} else if (c2 == 'n') {
+							append('\n');
+						} else if (c2 == 'u') {
+							//Grab the next 4 characters, and check to see if they are numbers
+							if (i + 6 > length) {
+								throw new ConfigCompileException("Unrecognized unicode escape sequence", target());
 							}
+							int codepoint;
+							try {
+								codepoint = Integer.parseInt(new String(config, i + 2, 4), 16);
+							} catch (NumberFormatException e) {
+								throw new ConfigCompileException("Unrecognized unicode escape sequence", target());
+							}
+							for (char u : Character.toChars(codepoint)) {
+								append(u);
+							}
+							i += 4;
 						} else {
-							token_list.add(new Token(TType.FUNC_NAME, "__autoconcat__", target));
+							//Since we might expand this list later, don't let them
+							//use unescaped backslashes
+							throw new ConfigCompileException("The escape sequence \\" + c2 + " is not a recognized escape sequence", target());
 						}
-					} catch (IndexOutOfBoundsException e) {
-						//This is the first element on the list, so, it's another autoconcat.
-						token_list.add(new Token(TType.FUNC_NAME, "__autoconcat__", target));
+						i++;
+					} else {
+						//Control character backslash
+						token_list.add(new Token(TType.SEPERATOR, "\\", target()));
 					}
+				} else if (state_in_quote) {
+					append(c);
+				} else if (c == '\n' && !comment_is_block) {
+					symbol(TType.NEWLINE, "\n");
+					in_comment = false;
+					comment_is_block = false;
+				} else { //in a literal
+					append(c);
 				}
-				token_list.add(new Token(TType.FUNC_START, "(", target));
-				continue;
-			}
-			if (c == ')' && !state_in_quote) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
+			} //end lexing
+			if (state_in_quote) {
+				if (in_smart_quote) {
+					throw new ConfigCompileException("Unended string literal. You started the last double quote on line " + smartQuoteLineNumberStart, target());
+				} else {
+					throw new ConfigCompileException("Unended string literal. You started the last single quote on line " + quoteLineNumberStart, target());
 				}
-				token_list.add(new Token(TType.FUNC_END, ")", target));
-				continue;
 			}
-			if (Character.isWhitespace(c) && !state_in_quote && c != '\n') {
-				//keep the whitespace, but end the previous token, unless the last character
-				//was also whitespace. All whitespace is added as a single space.                
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
-				}
-				if (token_list.size() > 0
-						&& token_list.get(token_list.size() - 1).type != TType.WHITESPACE) {
-					token_list.add(new Token(TType.WHITESPACE, " ", target));
-				}
-				continue;
+			if (in_comment || comment_is_block) {
+				throw new ConfigCompileException("Unended block comment. You started the comment on line " + commentLineNumberStart, target());
 			}
-			if (c == '\'') {
-				if (state_in_quote && !in_smart_quote) {
-					token_list.add(new Token(TType.STRING, buf.toString(), target));
-					buf = new StringBuilder();
-					state_in_quote = false;
-					continue;
-				} else if (!state_in_quote) {
-					state_in_quote = true;
-					quoteLineNumberStart = line_num;
-					in_smart_quote = false;
-					if (buf.length() > 0) {
-						token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-						buf = new StringBuilder();
-					}
-					continue;
-				} else {
-					//we're in a smart quote
-					buf.append("'");
+			//look at the tokens, and get meaning from them. Also, look for improper symbol locations,
+			//and go ahead and absorb unary +- into the token
+			for (int i = 0; i < token_list.size(); i++) {
+				Token t = token_list.get(i);
+				TType prev2 = i - 2 >= 0 ? token_list.get(i - 2).type : TType.UNKNOWN;
+				TType prev1 = i - 1 >= 0 ? token_list.get(i - 1).type : TType.UNKNOWN;
+				TType next = i + 1 < token_list.size() ? token_list.get(i + 1).type : TType.UNKNOWN;
+
+				if (t.type == TType.UNKNOWN && prev1.isPlusMinus()
+						&& !prev2.isIdentifier()) {
+					//It is a negative/positive number. Absorb the sign
+					t.value = token_list.get(i - 1).value + t.value;
+					token_list.remove(i - 1);
+					i--;
 				}
-			} else if (c == '"') {
-				if (state_in_quote && in_smart_quote) {
-					//For now, since this feature isn't fully implemented, just throw an exception
-					if (true) {
-						throw new ConfigCompileException("Doubly quoted strings are not yet supported.", target);
-					}
-					token_list.add(new Token(TType.SMART_STRING, buf.toString(), target));
-					buf = new StringBuilder();
-					state_in_quote = false;
-					continue;
-				} else if (!state_in_quote) {
-					state_in_quote = true;
-					in_smart_quote = true;
-					smartQuoteLineNumberStart = line_num;
-					if (buf.length() > 0) {
-						token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-						buf = new StringBuilder();
+
+				if (t.type == TType.UNKNOWN) {
+					String val = t.val();
+					if (val.startsWith("/") && !hasLineTerminator(val)) {
+						t.type = TType.COMMAND;
+					} else if (val.equals("\\")) {
+						t.type = TType.SEPERATOR;
+					} else if (isVariable(val, '$')) {
+						t.type = TType.VARIABLE;
+					} else if (isVariable(val, '@')) {
+						t.type = TType.IVARIABLE;
+					} else if (val.equals("$")) {
+						t.type = TType.FINAL_VAR;
+					} else {
+						t.type = TType.LIT;
 					}
-					continue;
-				} else {
-					//we're in normal quotes
-					buf.append('"');
 				}
-			} else if (c == '\\') {
-				//escaped characters
-				if (state_in_quote) {
-					if (c2 == '\\') {
-						buf.append("\\");
-					} else if (c2 == '\'' && !in_smart_quote) {
-						buf.append("'");
-					} else if (c2 == '"' && in_smart_quote) {
-						buf.append('"');
-					} else if (c2 == 'n') {
-						buf.append("\n");
-					} else if (c2 == 'u') {
-						//Grab the next 4 characters, and check to see if they are numbers
-						StringBuilder unicode = new StringBuilder();
-						for (int m = 0; m < 4; m++) {
-							unicode.append(config.charAt(i + 2 + m));
+				//Skip this check if we're not in pure mscript
+				if (inPureMScript) {
+					if (t.type.isSymbol() && !t.type.isUnary() && !next.isUnary()) {
+						if (prev1.equals(TType.FUNC_START) || prev1.equals(TType.COMMA)
+								|| next.equals(TType.FUNC_END) || next.equals(TType.COMMA)
+								|| prev1.isSymbol() || next.isSymbol()) {
+							throw new ConfigCompileException("Unexpected symbol (" + t.val() + ")", t.getTarget());
 						}
-						try {
-							Integer.parseInt(unicode.toString(), 16);
-						} catch (NumberFormatException e) {
-							throw new ConfigCompileException("Unrecognized unicode escape sequence", target);
-						}
-						buf.append(Character.toChars(Integer.parseInt(unicode.toString(), 16)));
-						i += 4;
-					} else {
-						//Since we might expand this list later, don't let them
-						//use unescaped backslashes
-						throw new ConfigCompileException("The escape sequence \\" + c2 + " is not a recognized escape sequence", target);
 					}
-
-					i++;
-					continue;
-				} else {
-					//Control character backslash
-					token_list.add(new Token(TType.SEPERATOR, "\\", target));
-				}
-			} else if (state_in_quote) {
-				buf.append(c);
-				continue;
-			} else if (c == '\n' && !comment_is_block) {
-				if (buf.length() > 0) {
-					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
-					buf = new StringBuilder();
 				}
-				token_list.add(new Token(TType.NEWLINE, "\n", target));
-				in_comment = false;
-				comment_is_block = false;
-				continue;
-			} else { //in a literal
-				buf.append(c);
-				continue;
-			}
-		} //end lexing
-		if (state_in_quote) {
-			if (in_smart_quote) {
-				throw new ConfigCompileException("Unended string literal. You started the last double quote on line " + smartQuoteLineNumberStart, target);
-			} else {
-				throw new ConfigCompileException("Unended string literal. You started the last single quote on line " + quoteLineNumberStart, target);
+
 			}
+			return token_list;
 		}
-		if (in_comment || comment_is_block) {
-			throw new ConfigCompileException("Unended block comment. You started the comment on line " + commentLineNumberStart, target);
+
+		/**
+		 * Checks for the characters that a regex . won't match, so that
+		 * <code>/.*</code> can be matched by hand.
+		 */
+		private static boolean hasLineTerminator(String s) {
+			for (int i = 0; i < s.length(); i++) {
+				char c = s.charAt(i);
+				if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+					return true;
+				}
+			}
+			return false;
 		}
-		//look at the tokens, and get meaning from them. Also, look for improper symbol locations,
-		//and go ahead and absorb unary +- into the token
-		for (int i = 0; i < token_list.size(); i++) {
-			Token t = token_list.get(i);
-			Token prev2 = i - 2 >= 0 ? token_list.get(i - 2) : new Token(TType.UNKNOWN, "", t.target);
-			Token prev1 = i - 1 >= 0 ? token_list.get(i - 1) : new Token(TType.UNKNOWN, "", t.target);
-			Token next = i + 1 < token_list.size() ? token_list.get(i + 1) : new Token(TType.UNKNOWN, "", t.target);
-
-			if (t.type == TType.UNKNOWN && prev1.type.isPlusMinus()
-					&& !prev2.type.isIdentifier()) {
-				//It is a negative/positive number. Absorb the sign
-				t.value = prev1.value + t.value;
-				token_list.remove(i - 1);
-				i--;
-			}
 
-			if (t.type.equals(TType.UNKNOWN)) {
-				if (t.val().matches("/.*")) {
-					t.type = TType.COMMAND;
-				} else if (t.val().matches("\\\\")) {
-					t.type = TType.SEPERATOR;
-				} else if (t.val().matches("\\$[a-zA-Z0-9_]+")) {
-					t.type = TType.VARIABLE;
-				} else if (t.val().matches("\\@[a-zA-Z0-9_]+")) {
-					t.type = TType.IVARIABLE;
-				} else if (t.val().equals("$")) {
-					t.type = TType.FINAL_VAR;
-				} else {
-					t.type = TType.LIT;
-				}
+		/**
+		 * Equivalent to matching <code>\&lt;prefix&gt;[a-zA-Z0-9_]+</code>
+		 */
+		private static boolean isVariable(String s, char prefix) {
+			if (s.length() < 2 || s.charAt(0) != prefix) {
+				return false;
 			}
-			//Skip this check if we're not in pure mscript
-			if(inPureMScript){
-				if (t.type.isSymbol() && !t.type.isUnary() && !next.type.isUnary()) {
-					if (prev1.type.equals(TType.FUNC_START) || prev1.type.equals(TType.COMMA)
-							|| next.type.equals(TType.FUNC_END) || next.type.equals(TType.COMMA)
-							|| prev1.type.isSymbol() || next.type.isSymbol()) {
-						throw new ConfigCompileException("Unexpected symbol (" + t.val() + ")", t.getTarget());
-					}
+			for (int i = 1; i < s.length(); i++) {
+				char c = s.charAt(i);
+				if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_')) {
+					return false;
 				}
 			}
-
+			return true;
 		}
-		return token_list;
 	}
 
 	/**
@@ -1057,9 +905,11 @@ public final class MethodScriptCompiler {
 				//right_vars.add(new Variable(t.val(), null, t.line_num));
 			} else if (t.type.equals(TType.FUNC_NAME)) {
 				CFunction func = new CFunction(t.val(), t.target);
-				//This will throw an exception for us if the function doesn't exist
-				if (!func.val().matches("^_[^_].*")) {
-					FunctionList.getFunction(func);
+				//This will throw an exception for us if the function doesn't exist.
+				//It also binds the function to the node, so the interpreter doesn't have
+				//to look it up again each time it's run.
+				if (!func.isProcedure()) {
+					func.bindFunction();
 				}
 				ParseTree f = new ParseTree(func, fileOptions);
 				tree.addChild(f);
@@ -1112,7 +962,7 @@ public final class MethodScriptCompiler {
 				}
 				//Check argument number now
 				if (tree.getData().val() != null) {
-					if (!tree.getData().val().matches("^_[^_].*")) {
+					if (!CFunction.IsProcedure(tree.getData().val())) {
 						Integer[] numArgs = FunctionList.getFunction(tree.getData()).numArgs();
 						if (!Arrays.asList(numArgs).contains(Integer.MAX_VALUE) && !Arrays.asList(numArgs).contains(tree.getChildren().size())) {
 							throw new ConfigCompileException("Incorrect number of arguments passed to " + tree.getData().val(), tree.getData().getTarget());
@@ -1168,21 +1018,135 @@ public final class MethodScriptCompiler {
 
 		Stack<List<Procedure>> procs = new Stack<List<Procedure>>();
 		procs.add(new ArrayList<Procedure>());
-		optimize(tree, procs);
+		optimize(tree, procs, stableProcs(tree));
+		TypeInference.Infer(tree);
+		assignVariableSlots(tree, new HashMap<String, Integer>());
 		parents.pop();
 		tree = parents.pop();
 		return tree;
 	}
 
+	/**
+	 * Returns the names of the procs whose calls can safely be inlined or
+	 * folded. Procs are looked up by name at runtime, so a call can only be
+	 * replaced if it's certain which definition it reaches. Procs that are
+	 * defined more than once, or only conditionally, are left alone, and if
+	 * the script includes or evals other code, which could define procs of
+	 * its own, nothing is.
+	 *
+	 * @param tree
+	 * @return
+	 */
+	private static Set<String> stableProcs(ParseTree tree) {
+		Map<String, Integer> definitions = new HashMap<String, Integer>();
+		Set<String> unstable = new HashSet<String>();
+		if (!findProcs(tree, true, definitions, unstable)) {
+			return Collections.emptySet();
+		}
+		Set<String> stable = new HashSet<String>();
+		for (Map.Entry<String, Integer> entry : definitions.entrySet()) {
+			if (entry.getValue() == 1 && !unstable.contains(entry.getKey())) {
+				stable.add(entry.getKey());
+			}
+		}
+		return stable;
+	}
+
+	/**
+	 * Counts up the proc definitions in the tree, and notes the ones that
+	 * might not run. Returns false if the tree can run code that isn't known
+	 * at compile time.
+	 */
+	private static boolean findProcs(ParseTree tree, boolean unconditional, Map<String, Integer> definitions, Set<String> unstable) {
+		Construct data = tree.getData();
+		if (data == null) {
+			//The root of the tree, whose children are always run
+			for (ParseTree child : tree.getChildren()) {
+				if (!findProcs(child, unconditional, definitions, unstable)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if (!(data instanceof CFunction)) {
+			return true;
+		}
+		String name = data.val();
+		if (name.equals("include") || name.equals("eval")) {
+			return false;
+		}
+		if (data instanceof CIdentifier) {
+			//else and elseif blocks are only attached to the tree during optimization
+			if (!findProcs(((CIdentifier) data).contained(), false, definitions, unstable)) {
+				return false;
+			}
+		}
+		//Things directly in a sequence run if the sequence does, anything else may not run
+		boolean childrenUnconditional = unconditional && (name.equals("__autoconcat__") || name.equals("g") || name.equals("p"));
+		if (name.equals("proc")) {
+			if (!tree.hasChildren() || tree.getChildAt(0).getData().isDynamic()) {
+				//The name isn't known until runtime, so it could be anything
+				return false;
+			}
+			String procName = tree.getChildAt(0).getData().val();
+			Integer count = definitions.get(procName);
+			definitions.put(procName, count == null ? 1 : count + 1);
+			if (!unconditional) {
+				unstable.add(procName);
+			}
+			//Inside the proc, things start over, since the body always runs when it's called
+			childrenUnconditional = true;
+		}
+		for (ParseTree child : tree.getChildren()) {
+			if (!findProcs(child, childrenUnconditional, definitions, unstable)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Assigns each ivariable in the tree a slot in the variable list, so that
+	 * at runtime the variable can usually be found without a name lookup. Each
+	 * procedure gets its own numbering, starting with its parameters, since it
+	 * runs in its own variable list. Closures share the numbering of the code
+	 * around them, since they capture it.
+	 *
+	 * @param tree
+	 * @param scope
+	 */
+	private static void assignVariableSlots(ParseTree tree, Map<String, Integer> scope) {
+		Construct data = tree.getData();
+		if (data instanceof IVariable) {
+			IVariable var = (IVariable) data;
+			Integer slot = scope.get(var.getName());
+			if (slot == null) {
+				slot = scope.size();
+				scope.put(var.getName(), slot);
+			}
+			var.setSlot(slot);
+			return;
+		}
+		if (data instanceof CFunction && data.val().equals("proc")) {
+			scope = new HashMap<String, Integer>();
+		}
+		for (ParseTree child : tree.getChildren()) {
+			assignVariableSlots(child, scope);
+		}
+	}
+
 	/**
 	 * Recurses down into the tree, attempting to optimize where possible. A few
 	 * things have strong coupling, for information on these items, see the
 	 * documentation included in the source.
 	 *
 	 * @param tree
+	 * @param procs The procs that are visible at this point, by scope
+	 * @param stableProcs The names of the procs that calls can be inlined or
+	 * folded for, see {@link #stableProcs}
 	 * @return
 	 */
-	private static void optimize(ParseTree tree, Stack<List<Procedure>> procs) throws ConfigCompileException {
+	private static void optimize(ParseTree tree, Stack<List<Procedure>> procs, Set<String> stableProcs) throws ConfigCompileException {
 		if (tree.isOptimized()) {
 			return; //Don't need to re-run this
 		}
@@ -1203,7 +1167,7 @@ public final class MethodScriptCompiler {
 					ParseTree tempNode = func.optimizeSpecial(node.getChildren(), false);
 					tree.setData(tempNode.getData());
 					tree.setChildren(tempNode.getChildren());
-					optimize(tree, procs);
+					optimize(tree, procs, stableProcs);
 					return;
 				}
 			}
@@ -1215,7 +1179,11 @@ public final class MethodScriptCompiler {
 		CFunction cFunction = (CFunction) tree.getData();
 		Function func;
 		try {
-			func = (Function) FunctionList.getFunction(cFunction);
+			if(cFunction.isProcedure()){
+				func = null;
+			} else {
+				func = cFunction.bindFunction();
+			}
 		} catch (ConfigCompileException e) {
 			func = null;
 		}
@@ -1269,7 +1237,7 @@ public final class MethodScriptCompiler {
 				if(t.getData().val().startsWith("_") || (func != null && func.useSpecialExec())){
 					continue outer;
 				}
-				Function f = (Function)FunctionList.getFunction(t.getData());
+				Function f = ((CFunction)t.getData()).bindFunction();
 				Set<OptimizationOption> options = NO_OPTIMIZATIONS;
 				if(f instanceof Optimizable){
 					options = ((Optimizable)f).optimizationOptions();
@@ -1292,7 +1260,7 @@ public final class MethodScriptCompiler {
 		for (int i = 0; i < children.size(); i++) {
 			ParseTree node = children.get(i);
 			if (node.getData() instanceof CFunction) {
-				optimize(node, procs);
+				optimize(node, procs, stableProcs);
 			}
 
 			if (node.getData().isDynamic() && !(node.getData() instanceof IVariable)) {
@@ -1322,16 +1290,28 @@ public final class MethodScriptCompiler {
 				}
 			}
 			if (p != null) {
-				try {
-					Construct c = DataHandling.proc.optimizeProcedure(p.getTarget(), p, children);
-					if (c != null) {
-						tree.setData(c);
-						tree.removeChildren();
-						return;
-					}//else Nope, couldn't optimize.
-				} catch (ConfigRuntimeException ex) {
-					//Cool. Caught a runtime error at compile time :D
-					throw new ConfigCompileException(ex);
+				if (fullyStatic && !hasIVars) {
+					try {
+						Construct c = DataHandling.proc.optimizeProcedure(p.getTarget(), p, children);
+						//Arrays can't be folded, since each call has to return a new one
+						if (c != null && !(c instanceof CArray)) {
+							tree.setData(c);
+							tree.removeChildren();
+							return;
+						}//else Nope, couldn't optimize.
+					} catch (ConfigRuntimeException ex) {
+						//Cool. Caught a runtime error at compile time :D
+						throw new ConfigCompileException(ex);
+					}
+				}
+				ParseTree inlined = p.inline(children);
+				if (inlined != null) {
+					tree.setData(inlined.getData());
+					tree.setChildren(inlined.getChildren());
+					//Now that the arguments are in place, it may optimize further
+					tree.setOptimized(false);
+					optimize(tree, procs, stableProcs);
+					return;
 				}
 			} 
 			//else this procedure isn't listed yet. Maybe a compiler error, maybe not, depends,
@@ -1354,7 +1334,9 @@ public final class MethodScriptCompiler {
 					//
 				}
 				Procedure myProc = DataHandling.proc.getProcedure(Target.UNKNOWN, env, fakeScript, children.toArray(new ParseTree[children.size()]));
-				procs.peek().add(myProc); //Yep. So, we can move on with our lives now, and if it's used later, it could possibly be static.
+				if (stableProcs.contains(myProc.getName())) {
+					procs.peek().add(myProc); //Yep. So, we can move on with our lives now, and if it's used later, it could possibly be static.
+				}
 			} catch (ConfigRuntimeException e) {
 				//Well, they have an error in there somewhere
 				throw new ConfigCompileException(e);
@@ -1390,7 +1372,7 @@ public final class MethodScriptCompiler {
 				tree.setOptimized(tempNode.isOptimized());
 				tree.setChildren(tempNode.getChildren());
 				tree.getData().setWasIdentifier(tempNode.getData().wasIdentifier());
-				optimize(tree, procs);
+				optimize(tree, procs, stableProcs);
 				tree.setOptimized(true);
 				//Some functions can actually make static the arguments, for instance, by pulling up a hardcoded
 				//array, so if they have reversed this, make note of that now
@@ -1451,7 +1433,34 @@ public final class MethodScriptCompiler {
 	 * @param script
 	 */
 	public static Construct execute(ParseTree root, Environment env, MethodScriptComplete done, Script script) {
-		return execute(root, env, done, script, null);
+		if (script == null) {
+			script = new Script(null, null);
+		}
+		StringBuilder b = new StringBuilder();
+		Construct returnable = null;
+		//If there is only one statement, its value is returned directly, so the output
+		//is only needed if someone is waiting for it.
+		boolean needsOutput = done != null || root.numberOfChildren() != 1;
+		for (ParseTree gg : root.getChildren()) {
+			script.setLabel(env.getEnv(GlobalEnv.class).GetLabel());
+			Construct retc = script.eval(gg, env);
+			if (root.numberOfChildren() == 1) {
+				returnable = retc;
+			}
+			if (needsOutput) {
+				String ret = retc instanceof CNull ? "null" : retc.val();
+				if (ret != null && !ret.trim().isEmpty()) {
+					b.append(ret).append(" ");
+				}
+			}
+		}
+		if (done != null) {
+			done.done(b.toString().trim());
+		}
+		if (returnable != null) {
+			return returnable;
+		}
+		return Static.resolveConstruct(b.toString().trim(), Target.UNKNOWN);
 	}
 
 	/**
@@ -1467,52 +1476,173 @@ public final class MethodScriptCompiler {
 	 * @return
 	 */
 	public static Construct execute(ParseTree root, Environment env, MethodScriptComplete done, Script script, List<Variable> vars) {
+		if (vars == null) {
+			return execute(root, env, done, script);
+		}
+		GlobalEnv gEnv = env.getEnv(GlobalEnv.class);
+		//The variables aren't given slots here, so they're found by name
+		Variable[] frame = new Variable[vars.size()];
+		for (int i = 0; i < frame.length; i++) {
+			frame[i] = new Variable(vars.get(i).getName(), null, Target.UNKNOWN);
+			frame[i].setVal(vars.get(i).getDefault());
+		}
+		//The variables only belong to this run, so the environment gets back whatever it had before
+		Variable[] outer = gEnv.GetDollarVars();
+		gEnv.SetDollarVars(frame);
+		try {
+			return execute(root, env, done, script);
+		} finally {
+			gEnv.SetDollarVars(outer);
+		}
+	}
+
+	/**
+	 * Executes a pre-compiled MethodScript only for its side effects. Unlike
+	 * {@link #execute(ParseTree, Environment, MethodScriptComplete, Script)}, the
+	 * results of the top level statements are not converted to strings and
+	 * joined, which can be expensive if a statement returns a large array, and
+	 * nothing is returned. This should be used by anything that doesn't care
+	 * about the output of the script, such as events, closures, and includes.
+	 *
+	 * @param root
+	 * @param env
+	 * @param script May be null
+	 */
+	public static void executeSilently(ParseTree root, Environment env, Script script) {
 		if (script == null) {
 			script = new Script(null, null);
 		}
-		if (vars != null) {
-			Map<String, Variable> varMap = new HashMap<String, Variable>();
-			for (Variable v : vars) {
-				varMap.put(v.getName(), v);
-			}
-			for (Construct tempNode : root.getAllData()) {
-				if (tempNode instanceof Variable) {
-					((Variable) tempNode).setVal(
-							varMap.get(((Variable) tempNode).getName()).getDefault());
-				}
-			}
-		}
-		StringBuilder b = new StringBuilder();
-		Construct returnable = null;
 		for (ParseTree gg : root.getChildren()) {
 			script.setLabel(env.getEnv(GlobalEnv.class).GetLabel());
-			Construct retc = script.eval(gg, env);
-			if (root.numberOfChildren() == 1) {
-				returnable = retc;
-			}
-			String ret = retc instanceof CNull ? "null" : retc.val();
-			if (ret != null && !ret.trim().isEmpty()) {
-				b.append(ret).append(" ");
-			}
-		}
-		if (done != null) {
-			done.done(b.toString().trim());
+			script.eval(gg, env);
 		}
-		if (returnable != null) {
-			return returnable;
-		}
-		return Static.resolveConstruct(b.toString().trim(), Target.UNKNOWN);
 	}
 
+	/**
+	 * The auto includes of the last environment that they were registered in.
+	 * Guarded by the class lock.
+	 */
+	private static AutoIncludes registeredAutoIncludes = null;
+
+	/**
+	 * Runs the auto includes in the given environment. The files are only
+	 * actually run once, into a table of procs, which is then shared by
+	 * each environment, until {@link #ClearAutoIncludes()} is called. Files that
+	 * do more than define procs have to run each time, so once one of those is
+	 * found, it and the rest of the files, which may depend on it, are run
+	 * each time as normal. The same {@link Procedure} objects are given to
+	 * every environment, which is safe, since calling one doesn't change it.
+	 *
+	 * @param env
+	 * @param s May be null
+	 */
 	public static void registerAutoIncludes(Environment env, Script s) {
 		File root = env.getEnv(GlobalEnv.class).GetRootFolder();
-		File auto_include = new File(root, "auto_include.ms");
-		if (auto_include.exists()) {
-			MethodScriptCompiler.execute(IncludeCache.get(auto_include, new Target(0, auto_include, 0)), env, null, s);
+		List<File> files = Static.getAliasCore().autoIncludes;
+		AutoIncludes includes;
+		synchronized (MethodScriptCompiler.class) {
+			if (registeredAutoIncludes == null || !registeredAutoIncludes.root.equals(root)
+					|| registeredAutoIncludes.files != files) {
+				registeredAutoIncludes = new AutoIncludes(root, files, env);
+			}
+			includes = registeredAutoIncludes;
+		}
+		if (!includes.procs.isEmpty()) {
+			env.getEnv(GlobalEnv.class).ShareProcs(includes.procs);
+		}
+		for (File f : includes.remaining) {
+			MethodScriptCompiler.executeSilently(IncludeCache.get(f, new Target(0, f, 0)), env, s);
 		}
+	}
+
+	/**
+	 * Throws away the procs defined by the auto includes, so that they're run
+	 * again the next time they're registered. This should be called when the
+	 * scripts are reloaded.
+	 */
+	public static synchronized void ClearAutoIncludes() {
+		registeredAutoIncludes = null;
+	}
+
+	private static class AutoIncludes {
 
-		for (File f : Static.getAliasCore().autoIncludes) {
-			MethodScriptCompiler.execute(IncludeCache.get(f, new Target(0, f, 0)), env, null, s);
+		private final File root;
+		private final List<File> files;
+		private final Map<String, Procedure> procs;
+		/**
+		 * The files that couldn't be run ahead of time, in the order they need
+		 * to be run.
+		 */
+		private final List<File> remaining = new ArrayList<File>();
+
+		private AutoIncludes(File root, List<File> files, Environment env) {
+			this.root = root;
+			this.files = files;
+			List<File> all = new ArrayList<File>();
+			File auto_include = new File(root, "auto_include.ms");
+			if (auto_include.exists()) {
+				all.add(auto_include);
+			}
+			all.addAll(files);
+			Environment protoEnv;
+			try {
+				protoEnv = env.clone();
+			} catch (CloneNotSupportedException ex) {
+				throw new Error(ex);
+			}
+			GlobalEnv gEnv = protoEnv.getEnv(GlobalEnv.class);
+			gEnv.SetProcs(new HashMap<String, Procedure>());
+			gEnv.SetVarList(new IVariableList());
+			boolean pure = true;
+			for (File f : all) {
+				if (pure) {
+					ParseTree tree = IncludeCache.get(f, new Target(0, f, 0));
+					if (onlyDefinesProcs(tree)) {
+						MethodScriptCompiler.executeSilently(tree, protoEnv, null);
+						continue;
+					}
+					pure = false;
+				}
+				remaining.add(f);
+			}
+			procs = Collections.unmodifiableMap(new HashMap<String, Procedure>(gEnv.GetProcs()));
+		}
+
+		/**
+		 * Returns true if running the tree has no effect besides defining
+		 * procs, and the procs are the same each time, that is, they have
+		 * constant names and default values.
+		 */
+		private static boolean onlyDefinesProcs(ParseTree tree) {
+			Construct data = tree.getData();
+			if (data != null && !(data instanceof CFunction)) {
+				return !data.isDynamic() && !(data instanceof IVariable);
+			}
+			String name = data == null ? null : data.val();
+			if (data == null || name.equals("__autoconcat__") || name.equals("sconcat") || name.equals("g") || name.equals("p")) {
+				for (ParseTree child : tree.getChildren()) {
+					if (!onlyDefinesProcs(child)) {
+						return false;
+					}
+				}
+				return true;
+			}
+			if (!name.equals("proc") || tree.numberOfChildren() == 0 || tree.getChildAt(0).isDynamic()) {
+				return false;
+			}
+			for (int i = 1; i < tree.numberOfChildren() - 1; i++) {
+				ParseTree param = tree.getChildAt(i);
+				if (param.getData() instanceof IVariable) {
+					continue;
+				}
+				if (param.getData() instanceof CFunction && param.getData().val().equals("assign")
+						&& param.numberOfChildren() == 2 && param.getChildAt(0).getData() instanceof IVariable
+						&& param.getChildAt(1).isConst()) {
+					continue;
+				}
+				return false;
+			}
+			return true;
 		}
 	}
 }
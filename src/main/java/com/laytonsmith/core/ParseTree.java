@@ -7,10 +7,9 @@ import com.laytonsmith.core.constructs.CString;
 import com.laytonsmith.core.constructs.Construct;
 import com.laytonsmith.core.constructs.IVariable;
 import com.laytonsmith.core.constructs.Target;
+import com.laytonsmith.core.constructs.Variable;
 import com.laytonsmith.core.exceptions.ConfigCompileException;
 import com.laytonsmith.core.functions.Function;
-import com.laytonsmith.core.functions.FunctionBase;
-import com.laytonsmith.core.functions.FunctionList;
 import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.List;
@@ -26,7 +25,7 @@ public class ParseTree implements Cloneable{
 	
 
 	private enum CacheTypes{
-		IS_SYNC, IS_ASYNC, FUNCTIONS
+		IS_SYNC, IS_ASYNC, FUNCTIONS, FIRST_DOLLAR_VAR
 	}
 	
 	/**
@@ -35,12 +34,14 @@ public class ParseTree implements Cloneable{
 	 * since many of our operations are fairly expensive,
 	 * so we also want to maintain a cache. But we ALSO don't want
 	 * to have a memory leak by simply having tons of cached references. So, we
-	 * store a private cache of weak references to "this" instance.
+	 * store a private cache of weak references to "this" instance. Since files
+	 * may be compiled on several threads at once, all access to the cache is
+	 * synchronized.
 	 */		
 	private static Map<ParseTree, Map<CacheTypes, Object>> cache 
 		= new WeakHashMap<ParseTree, Map<CacheTypes, Object>>();
 	
-	private static boolean isCached(ParseTree tree, CacheTypes type){
+	private static synchronized boolean isCached(ParseTree tree, CacheTypes type){
 		if(!cache.containsKey(tree)){
 			return false;
 		} else {
@@ -55,21 +56,21 @@ public class ParseTree implements Cloneable{
 	 * @param type
 	 * @return 
 	 */
-	private static Object getCache(ParseTree tree, CacheTypes type){
+	private static synchronized Object getCache(ParseTree tree, CacheTypes type){
 		if(!isCached(tree, type)){
 			throw new Error("It is an error to call getCache on an object that does not already have a cached value");
 		}
 		return cache.get(tree).get(type);
 	}
 	
-	private static void setCache(ParseTree tree, CacheTypes type, Object value){
+	private static synchronized void setCache(ParseTree tree, CacheTypes type, Object value){
 		if(!cache.containsKey(tree)){
 			cache.put(tree, new EnumMap<CacheTypes, Object>(CacheTypes.class));
 		}
 		cache.get(tree).put(type, value);
 	}
 	
-	private static void clearCache(ParseTree tree){
+	private static synchronized void clearCache(ParseTree tree){
 		cache.remove(tree);
 	}
 	
@@ -294,11 +295,7 @@ public class ParseTree implements Cloneable{
 			loop: for(Construct c : allChildren){
 				if(c instanceof CFunction){
 					try {
-						FunctionBase f = FunctionList.getFunction(c);
-						if(f instanceof Function){
-							Function ff = (Function)f;
-							functions.add(ff);
-						}
+						functions.add(((CFunction)c).bindFunction());
 					} catch (ConfigCompileException ex) {
 						throw new Error(ex);
 					}
@@ -310,6 +307,28 @@ public class ParseTree implements Cloneable{
 		}
 	}
 
+	/**
+	 * Returns the first $variable in this tree, or null if there are none.
+	 * Scripts other than aliases may not use $variables, so this is checked
+	 * each time one of them is run, which is why it's cached.
+	 * @return 
+	 */
+	public Variable getFirstDollarVar(){
+		if(isCached(this, CacheTypes.FIRST_DOLLAR_VAR)){
+			return (Variable)getCache(this, CacheTypes.FIRST_DOLLAR_VAR);
+		} else {
+			Variable first = null;
+			for(Construct c : getAllData()){
+				if(c instanceof Variable){
+					first = (Variable)c;
+					break;
+				}
+			}
+			setCache(this, CacheTypes.FIRST_DOLLAR_VAR, first);
+			return first;
+		}
+	}
+
 	@Override
 	public ParseTree clone() throws CloneNotSupportedException {
 		ParseTree clone = (ParseTree)super.clone();
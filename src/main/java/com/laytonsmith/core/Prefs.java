@@ -39,7 +39,10 @@ public final class Prefs {
         PROFILING_FILE("profiling-file"),
         SHOW_SPLASH_SCREEN("show-splash-screen"),
         USE_COLORS("use-colors"),
-        HALT_ON_FAILURE("halt-on-failure");
+        HALT_ON_FAILURE("halt-on-failure"),
+        USE_COMPILE_CACHE("use-compile-cache"),
+        HOT_RELOAD("hot-reload"),
+        INCLUDE_CACHE_SIZE("include-cache-size");
         String name;
         private PNames(String name){
             this.name = name;
@@ -72,6 +75,9 @@ public final class Prefs {
         a.add(new Preference(PNames.SHOW_SPLASH_SCREEN.config(), "true", Preferences.Type.BOOLEAN, "Whether or not to show the splash screen at server startup"));
         a.add(new Preference(PNames.USE_COLORS.config(), (TermColors.SYSTEM == TermColors.SYS.WINDOWS ? "false" : "true"), Preferences.Type.BOOLEAN, "Whether or not to use console colors. If this is a Windows machine, defaults to false, however, it can be toggled manually, and will then respect your setting."));
         a.add(new Preference(PNames.HALT_ON_FAILURE.config(), "false", Preferences.Type.BOOLEAN, "Whether or not to halt compilation of pure mscript files if a compilation failure occurs in any one of the files."));
+        a.add(new Preference(PNames.USE_COMPILE_CACHE.config(), "true", Preferences.Type.BOOLEAN, "Whether or not to keep compiled scripts in the compile-cache folder, so that files that haven't changed don't need to be recompiled each time the scripts are reloaded. If you suspect the cache is causing problems, you can also simply delete the folder."));
+        a.add(new Preference(PNames.HOT_RELOAD.config(), "false", Preferences.Type.BOOLEAN, "Whether or not to watch the script files for changes, and reload them automatically. Only the files that changed are reloaded, so aliases, binds and intervals defined in other files are left alone. Changes to preferences, auto_include.ms files, libraries, zipped packages, or files that are included (or that include other files) still cause a full reload."));
+        a.add(new Preference(PNames.INCLUDE_CACHE_SIZE.config(), "16", Preferences.Type.INT, "Roughly how much memory, in megabytes, the compiled versions of included files may take up. If there are more included files than fit, the ones used least recently are compiled again when they're next needed."));
         prefs = new Preferences("CommandHelper", Static.getLogger(), a);
         prefs.init(f);
     }
@@ -143,4 +149,16 @@ public final class Prefs {
     public static Boolean HaltOnFailure() {
         return (Boolean)pref(PNames.HALT_ON_FAILURE);
     }
+
+    public static Boolean UseCompileCache() {
+        return (Boolean)pref(PNames.USE_COMPILE_CACHE);
+    }
+
+    public static Boolean HotReload() {
+        return (Boolean)pref(PNames.HOT_RELOAD);
+    }
+
+    public static Integer IncludeCacheSize() {
+        return (Integer)pref(PNames.INCLUDE_CACHE_SIZE);
+    }
 }
@@ -9,17 +9,20 @@ import com.laytonsmith.core.exceptions.FunctionReturnException;
 import com.laytonsmith.core.functions.DataHandling;
 import com.laytonsmith.core.functions.Exceptions.ExceptionType;
 import com.laytonsmith.core.functions.Function;
-import com.laytonsmith.core.functions.FunctionBase;
-import com.laytonsmith.core.functions.FunctionList;
 import com.sk89q.util.StringUtil;
 import java.util.ArrayList;
-import java.util.EnumSet;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
+ * Calling a procedure doesn't change it, since everything a call needs is made
+ * by that call, so the same procedure can be shared by any number of
+ * environments, and called from any number of threads at once. The auto
+ * includes rely on this, see {@link MethodScriptCompiler#registerAutoIncludes}.
  *
  * @author Layton
  */
@@ -27,14 +30,40 @@ public class Procedure implements Cloneable {
 
     private String name;
     private Map<String, IVariable> varList;
-    private Map<String, Construct> originals = new HashMap<String, Construct>();
     private List<IVariable> varIndex = new ArrayList<IVariable>();
     private ParseTree tree;
     private boolean possiblyConstant = false;
+	/**
+	 * The parameters, in order, with their slot set to their position, and
+	 * their default values.
+	 */
+	private IVariable[] params;
+	private Construct[] defaults;
+	/**
+	 * Whether or not the body might read @arguments. If not, it isn't created.
+	 */
+	private boolean usesArguments;
+	private static final IVariable ARGUMENTS = new IVariable("@arguments", Target.UNKNOWN);
 	/**
 	 * The line the procedure is defined at (for stacktraces)
 	 */
 	private Target definedAt;
+	/**
+	 * If the whole body is a single small return(), this is the expression it
+	 * returns, which can be copied into call sites instead of calling the proc.
+	 * Null otherwise.
+	 */
+	private ParseTree inlineBody;
+	/**
+	 * The most nodes an expression can have and still be inlined.
+	 */
+	private static final int INLINE_LIMIT = 32;
+	/**
+	 * Functions that depend on, or change, the variables or control flow of the
+	 * proc itself, and so can't be moved into the caller.
+	 */
+	private static final Set<String> NOT_INLINABLE = new HashSet<String>(Arrays.asList("proc", "closure", "include", "eval",
+			"reflect_pull", "assign", "inc", "dec", "postinc", "postdec", "foreach", "return", "break", "continue"));
 
     public Procedure(String name, List<IVariable> varList, ParseTree tree, Target t) {
         this.name = name;
@@ -48,77 +77,183 @@ public class Procedure implements Cloneable {
                 this.varList.put(var.getName(), var);
             }
             this.varIndex.add(var);
-            this.originals.put(var.getName(), var.ival());
         }
         this.tree = tree;
-        if (!this.name.matches("^_[^_].*")) {
+		this.params = new IVariable[varIndex.size()];
+		this.defaults = new Construct[varIndex.size()];
+		for (int i = 0; i < params.length; i++) {
+			IVariable param = varIndex.get(i);
+			//The compiler numbers the parameters of a proc first, so the slot is just the position
+			params[i] = new IVariable(param.getName(), param.getTarget());
+			params[i].setSlot(i);
+			defaults[i] = param.ival();
+		}
+		this.usesArguments = usesArguments(tree);
+        if (!CFunction.IsProcedure(this.name)) {
             throw new ConfigRuntimeException("Procedure names must start with an underscore", ExceptionType.FormatException, t);
         }
         //Let's look through the tree now, and see if this is possibly constant or not.
         //If it is, it may or may not help us during compilation, but if it's not,
         //we can be sure that we cannot inline this in any way.
         this.possiblyConstant = checkPossiblyConstant(tree);
+		//Procs without parameters are left to constant folding. If that doesn't work, there's little
+		//to gain by copying them, since they usually build something new, like an array, each time.
+		if (params.length > 0 && IsReturn(tree) && tree.numberOfChildren() == 1 && inlineCost(tree.getChildAt(0)) != -1) {
+			this.inlineBody = tree.getChildAt(0);
+		}
     }
 
-    private boolean checkPossiblyConstant(ParseTree tree) {
-		//TODO: This whole thing is a mess. Instead of doing it this way,
-		//individual procs need to be inlined as deemed appropriate.
-		if(true){
-			return false;
-		}
-        if (!tree.getData().isDynamic()) {
-            //If it isn't dynamic, it certainly could be constant
-            return true;
-        } else if (tree.getData() instanceof IVariable) {
-            //Variables will return true for isDynamic, but they are technically constant, because
-            //they are being declared in this scope, or passed in. An import() would break this
-            //contract, but import() itself is dynamic, so this is not an issue.
-            return true;
-        } else if (tree.getData() instanceof CFunction) {
-            //If the function itself is not optimizable, we needn't recurse.
-            try {
-                FunctionBase fb = FunctionList.getFunction(tree.getData());
-                if (fb instanceof Function) {
-                    Function f = (Function) fb;
-                    if (f instanceof DataHandling._return) {
-                        //This is a special exception. Return itself is not optimizable,
-                        //but if the contents are optimizable, it is still considered constant.
-                        if (!tree.hasChildren()) {
-                            return true;
-                        } else {
-                            return checkPossiblyConstant(tree.getChildAt(0));
-                        }
-                    }
-                    //If it's optimizable, it's possible. If it's restricted, it doesn't matter, because
-                    //we can't optimize it out anyways, because we need to do the permission check
-					Set<Optimizable.OptimizationOption> o = EnumSet.noneOf(Optimizable.OptimizationOption.class);
-					if(f instanceof Optimizable){
-						o = ((Optimizable)f).optimizationOptions();
-					}
-                    if (!( ( o != null && (o.contains(Optimizable.OptimizationOption.OPTIMIZE_DYNAMIC)
-							|| o.contains(Optimizable.OptimizationOption.OPTIMIZE_CONSTANT))) && !f.isRestricted() )) {
-                        return false; //Nope. Doesn't matter if the children are or not
-                    }
-                } else {
-                    return false;
-                }
-            }
-            catch (ConfigCompileException e) {
-                //It's a proc. We will treat this just like any other function call, 
-            }
-            //Ok, well, we have to check the children first.
-            for (ParseTree child : tree.getChildren()) {
-                if (!checkPossiblyConstant(child)) {
-                    return false; //Nope, since our child can't be constant, neither can we
-                }
-            }
-            //They all check out, so, yep, we could possibly be constant
-            return true;
-        } else {
-            //Uh. Ok, well, nope.
-            return false;
-        }
-    }
+	/**
+	 * Returns true if the tree might read @arguments. This is the case if it
+	 * is referenced directly, or if the tree contains something that can
+	 * access variables by name at runtime.
+	 */
+	private static boolean usesArguments(ParseTree tree) {
+		Construct data = tree.getData();
+		if (data instanceof IVariable) {
+			return ((IVariable) data).getName().equals("@arguments");
+		}
+		if (data instanceof CFunction) {
+			String f = data.val();
+			if (f.equals("include") || f.equals("eval") || f.equals("reflect_pull")) {
+				return true;
+			}
+		}
+		for (ParseTree child : tree.getChildren()) {
+			if (usesArguments(child)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A procedure is possibly constant if its body only uses constants, its own
+	 * variables, and functions that can be run at compile time, in which case
+	 * a call with constant arguments can be replaced by its result.
+	 */
+	private boolean checkPossiblyConstant(ParseTree tree) {
+		Construct data = tree.getData();
+		if (data instanceof IVariable) {
+			//Variables are dynamic, but they are technically constant, because
+			//they are being declared in this scope, or passed in.
+			return true;
+		} else if (data instanceof CFunction) {
+			if (((CFunction) data).isProcedure()) {
+				//Other procs could be defined differently by the time this one runs
+				return false;
+			}
+			Function f;
+			try {
+				f = ((CFunction) data).bindFunction();
+			} catch (ConfigCompileException e) {
+				return false;
+			}
+			//Return itself is not optimizable, but if the contents are, it is still considered
+			//constant, and g and p are just sequences.
+			if (!(f instanceof DataHandling._return || f.getName().equals("g") || f.getName().equals("p"))) {
+				//If it's restricted, it doesn't matter, because we can't optimize it out
+				//anyways, because we need to do the permission check
+				if (!(f instanceof Optimizable) || f.isRestricted()) {
+					return false;
+				}
+				Set<Optimizable.OptimizationOption> o = ((Optimizable) f).optimizationOptions();
+				if (!(o.contains(Optimizable.OptimizationOption.OPTIMIZE_CONSTANT)
+						|| o.contains(Optimizable.OptimizationOption.CONSTANT_OFFLINE))) {
+					return false;
+				}
+			}
+			for (ParseTree child : tree.getChildren()) {
+				if (!checkPossiblyConstant(child)) {
+					return false; //Nope, since our child can't be constant, neither can we
+				}
+			}
+			//They all check out, so, yep, we could possibly be constant
+			return true;
+		} else {
+			return !data.isDynamic();
+		}
+	}
+
+	/**
+	 * Returns the number of nodes in the expression, or -1 if it can't be
+	 * inlined, because it uses something other than the parameters, or
+	 * something that depends on running inside the proc.
+	 */
+	private int inlineCost(ParseTree tree) {
+		Construct data = tree.getData();
+		if (data instanceof IVariable) {
+			return paramIndex(((IVariable) data).getName()) == -1 ? -1 : 1;
+		}
+		if (data instanceof CFunction) {
+			if (data instanceof CIdentifier || ((CFunction) data).isProcedure() || NOT_INLINABLE.contains(data.val())) {
+				return -1;
+			}
+			int cost = 1;
+			for (ParseTree child : tree.getChildren()) {
+				int c = inlineCost(child);
+				if (c == -1) {
+					return -1;
+				}
+				cost += c;
+				if (cost > INLINE_LIMIT) {
+					return -1;
+				}
+			}
+			return cost;
+		}
+		return data.isDynamic() ? -1 : 1;
+	}
+
+	private int paramIndex(String name) {
+		for (int i = 0; i < params.length; i++) {
+			if (params[i].getName().equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns a copy of the expression this procedure returns, with the
+	 * arguments put in place of the parameters, which can replace a call to
+	 * this procedure. Since the arguments are copied to wherever the parameter
+	 * is used, this is only possible if each of them is a constant or a
+	 * variable, so evaluating them more than once, or not at all, doesn't
+	 * matter. Returns null if the call can't be inlined.
+	 *
+	 * @param args
+	 * @return
+	 */
+	public ParseTree inline(List<ParseTree> args) {
+		if (inlineBody == null || args.size() != params.length) {
+			return null;
+		}
+		for (ParseTree arg : args) {
+			Construct c = arg.getData();
+			if (!(c instanceof IVariable) && (c instanceof CFunction || c.isDynamic())) {
+				return null;
+			}
+		}
+		try {
+			return copy(inlineBody, args);
+		} catch (CloneNotSupportedException e) {
+			return null;
+		}
+	}
+
+	private ParseTree copy(ParseTree tree, List<ParseTree> args) throws CloneNotSupportedException {
+		Construct data = tree.getData();
+		if (data instanceof IVariable) {
+			ParseTree arg = args.get(paramIndex(((IVariable) data).getName()));
+			return new ParseTree(arg.getData().clone(), arg.getFileOptions());
+		}
+		ParseTree copy = new ParseTree(data.clone(), tree.getFileOptions());
+		for (ParseTree child : tree.getChildren()) {
+			copy.addChild(copy(child, args));
+		}
+		return copy;
+	}
 
     public boolean isPossiblyConstant() {
         return this.possiblyConstant;
@@ -157,26 +292,37 @@ public class Procedure implements Cloneable {
      * @return
      */
     public Construct execute(List<Construct> args, Environment env, Target t) {
-        env.getEnv(GlobalEnv.class).SetVarList(new IVariableList());
-        CArray array = new CArray(Target.UNKNOWN);
-        for (String key : originals.keySet()) {
-            Construct c = originals.get(key);
-            env.getEnv(GlobalEnv.class).GetVarList().set(new IVariable(key, c, Target.UNKNOWN));
-            array.push(c);
-        }
-        Script fakeScript = Script.GenerateScript(tree, env.getEnv(GlobalEnv.class).GetLabel());//new Script(null, null);        
-        for (int i = 0; i < args.size(); i++) {
-            Construct c = args.get(i);
-            array.set(i, c, t);
-            if (varIndex.size() > i) {
-                String varname = varIndex.get(i).getName();
-                env.getEnv(GlobalEnv.class).GetVarList().set(new IVariable(varname, c, c.getTarget()));
-            }
-        }
-        env.getEnv(GlobalEnv.class).GetVarList().set(new IVariable("@arguments", array, Target.UNKNOWN));
+		GlobalEnv gEnv = env.getEnv(GlobalEnv.class);
+		//The parameters go straight into their slots, which the compiler has already
+		//assigned to the same positions
+		IVariableList frame = new IVariableList(params.length + (usesArguments ? 1 : 0));
+		gEnv.SetVarList(frame);
+		for (int i = 0; i < params.length; i++) {
+			if (i < args.size()) {
+				Construct c = args.get(i);
+				frame.set(params[i], c, c.getTarget());
+			} else {
+				frame.set(params[i], defaults[i], Target.UNKNOWN);
+			}
+		}
+		if (usesArguments) {
+			CArray array = new CArray(Target.UNKNOWN);
+			for (Construct c : defaults) {
+				array.push(c);
+			}
+			for (int i = 0; i < args.size(); i++) {
+				array.set(i, args.get(i), t);
+			}
+			frame.set(ARGUMENTS, array, Target.UNKNOWN);
+		}
+		//Each call gets its own script, since running it changes its label and environment
+		Script fakeScript = Script.GenerateScript(tree, gEnv.GetLabel());
 
         try {
-            fakeScript.eval(tree, env);
+            Construct ret = evalBody(fakeScript, env);
+            if (ret != null) {
+                return ret;
+            }
         } catch (FunctionReturnException e) {
             return e.getReturn();
         } catch(ConfigRuntimeException e){
@@ -185,6 +331,38 @@ public class Procedure implements Cloneable {
 		}
         return new CVoid(Target.UNKNOWN);
     }
+
+	/**
+	 * Evaluates the procedure body. A return() as the last statement of the body,
+	 * which is where most of them are, is evaluated directly, instead of throwing
+	 * a FunctionReturnException up to {@link #execute}. Returns null if the body
+	 * did not end with a return().
+	 */
+	private Construct evalBody(Script script, Environment env) {
+		ParseTree last = tree;
+		if (tree.getData() instanceof CFunction && tree.getData().val().equals("g") && tree.numberOfChildren() > 0) {
+			List<ParseTree> children = tree.getChildren();
+			last = children.get(children.size() - 1);
+			if (IsReturn(last)) {
+				for (int i = 0; i < children.size() - 1; i++) {
+					script.eval(children.get(i), env);
+				}
+			}
+		}
+		if (!IsReturn(last)) {
+			script.eval(tree, env);
+			return null;
+		}
+		if (last.numberOfChildren() == 1) {
+			return script.seval(last.getChildAt(0), env);
+		}
+		return new CVoid(last.getData().getTarget());
+	}
+
+	private static boolean IsReturn(ParseTree node) {
+		return node.getData() instanceof CFunction && node.getData().val().equals("return")
+				&& node.numberOfChildren() <= 1;
+	}
 	
 	public Target getTarget(){
 		return definedAt;
@@ -8,6 +8,7 @@ import com.laytonsmith.abstraction.Implementation;
 import com.laytonsmith.abstraction.MCCommandSender;
 import com.laytonsmith.abstraction.MCPlayer;
 import com.laytonsmith.abstraction.StaticLayer;
+import com.laytonsmith.core.compiler.ParseTreeCache;
 import com.laytonsmith.core.constructs.*;
 import com.laytonsmith.core.constructs.Construct.ConstructType;
 import com.laytonsmith.core.constructs.Token.TType;
@@ -21,6 +22,7 @@ import com.laytonsmith.core.functions.Exceptions.ExceptionType;
 import com.laytonsmith.core.functions.Function;
 import com.laytonsmith.core.functions.FunctionList;
 import com.laytonsmith.core.profiler.ProfilePoint;
+import java.io.File;
 import java.util.*;
 import java.util.logging.Level;
 
@@ -48,6 +50,13 @@ public class Script {
 	private boolean nolog = false;
     //This should be null if we are running in non-alias mode
     private Map<String, Variable> left_vars;
+    /**
+     * The names of the $variables used by this script, in the order of the
+     * slots assigned to them. The ones from the signature come first.
+     */
+    private List<String> dollarVarNames = new ArrayList<String>();
+    //The first $variable on the right side, if any, for error reporting
+    private Variable firstDollarVar;
     boolean hasBeenCompiled = false;
     boolean compilerError = false;
     private String label;
@@ -63,10 +72,6 @@ public class Script {
         return b.toString();
     }
 
-    private Procedure getProc(String name) {
-        return CurrentEnv.getEnv(GlobalEnv.class).GetProcs().get(name);
-    }
-    
     public Environment getCurrentEnv(){
         return CurrentEnv;
     }
@@ -74,6 +79,18 @@ public class Script {
     public String getLabel(){
         return label;
     }
+
+    /**
+     * Returns the file this alias was defined in, or null if it wasn't defined
+     * in a file.
+     * @return 
+     */
+    public File getFile(){
+        if(left == null || left.isEmpty()){
+            return null;
+        }
+        return left.get(0).target.file();
+    }
     
     /**
      * Returns what would normally be on the left side on an alias ie. in config.msa
@@ -148,21 +165,17 @@ public class Script {
             }
         }
 
+        //The $variables only belong to this run, so the environment gets back whatever it had before
+        Variable[] outerDollarVars = CurrentEnv.getEnv(GlobalEnv.class).GetDollarVars();
         try {
+            CurrentEnv.getEnv(GlobalEnv.class).SetDollarVars(bindDollarVars(vars));
             for (ParseTree rootNode : cright) {
-                for (Construct tempNode : rootNode.getAllData()) {
-                    if (tempNode instanceof Variable) {
-                        if(left_vars == null){
-                            throw new ConfigRuntimeException("$variables may not be used in this context. Only @variables may be.", null, tempNode.getTarget());
-                        }
-                        ((Variable) tempNode).setVal(
-                                new CString(
-                                Static.resolveDollarVar(left_vars.get(((Variable) tempNode).getName()), vars).toString(), tempNode.getTarget()));
-                    }
-                }                
-				
                 MethodScriptCompiler.registerAutoIncludes(CurrentEnv, this);
-                MethodScriptCompiler.execute(rootNode, CurrentEnv, done, this);
+                if (done == null) {
+                    MethodScriptCompiler.executeSilently(rootNode, CurrentEnv, this);
+                } else {
+                    MethodScriptCompiler.execute(rootNode, CurrentEnv, done, this);
+                }
             }
         } catch (ConfigRuntimeException ex) {
             //We don't know how to handle this really, so let's pass it up the chain.
@@ -195,12 +208,71 @@ public class Script {
             if(p != null){
                 p.sendMessage("An unexpected exception occured during the execution of your script. Please check the console for more information.");
             }
+        } finally {
+            CurrentEnv.getEnv(GlobalEnv.class).SetDollarVars(outerDollarVars);
         }
         if (done != null) {
             done.done(null);
         }
     }
     
+    /**
+     * Works out the values of this script's $variables for one run, in the
+     * order of their slots.
+     * @param vars
+     * @return The values, or null if the script doesn't use any $variables
+     */
+    private Variable[] bindDollarVars(List<Variable> vars) {
+        if (left_vars == null) {
+            //This isn't an alias, so it may not use $variables at all. The tree
+            //remembers whether it has any, since events run the same tree each time.
+            for (ParseTree tree : cright) {
+                Variable v = tree.getFirstDollarVar();
+                if (v != null) {
+                    throw ConfigRuntimeException.CreateUncatchableException("$variables may not be used in this context. Only @variables may be.", v.getTarget());
+                }
+            }
+            return null;
+        }
+        if (firstDollarVar == null) {
+            return null;
+        }
+        Variable[] frame = new Variable[dollarVarNames.size()];
+        for (int i = 0; i < frame.length; i++) {
+            String name = dollarVarNames.get(i);
+            frame[i] = new Variable(name, null, Target.UNKNOWN);
+            frame[i].setVal(Static.resolveDollarVar(left_vars.get(name), vars).toString());
+        }
+        return frame;
+    }
+
+    /**
+     * Gives each $variable in the tree a slot, which is the position of its
+     * value in the frame built by bindDollarVars. This is only done when the
+     * alias is compiled, and the tree isn't changed at runtime, so the same
+     * script may be run more than once at a time.
+     * @param tree
+     */
+    private void assignDollarVarSlots(ParseTree tree) {
+        Construct data = tree.getData();
+        if (data instanceof Variable) {
+            Variable v = (Variable) data;
+            if (firstDollarVar == null) {
+                firstDollarVar = v;
+            }
+            int slot = dollarVarNames.indexOf(v.getName());
+            if (slot == -1) {
+                slot = dollarVarNames.size();
+                dollarVarNames.add(v.getName());
+            }
+            v.setSlot(slot);
+            return;
+        }
+        for (ParseTree child : tree.getChildren()) {
+            assignDollarVarSlots(child);
+        }
+    }
+
     /**
      * Runs eval on the code tree, and if it returns an ival, resolves it.
      * @param c
@@ -211,7 +283,7 @@ public class Script {
         Construct ret = eval(c, env);
         while(ret instanceof IVariable){
             IVariable cur = (IVariable)ret;
-            ret = env.getEnv(GlobalEnv.class).GetVarList().get(cur.getName(), cur.getTarget()).ival();
+            ret = env.getEnv(GlobalEnv.class).GetVarList().get(cur).ival();
         }
         return ret;
     }
@@ -219,14 +291,18 @@ public class Script {
     public Construct eval(ParseTree c, final Environment env) throws CancelCommandException {
         final Construct m = c.getData();
         CurrentEnv = env;
+		GlobalEnv gEnv = env.getEnv(GlobalEnv.class);
 		//TODO: Reevaluate if this line is needed. The script doesn't know the label inherently, the
 		//environment does, and setting it this way taints the environment.
-        CurrentEnv.getEnv(GlobalEnv.class).SetLabel(this.label);
+        gEnv.SetLabel(this.label);
         if (m.getCType() == ConstructType.FUNCTION) {
-                env.getEnv(GlobalEnv.class).SetScript(this);
-                if (m.val().matches("^_[^_].*")) {
+                gEnv.SetScript(this);
+				//The compiler has already bound the function (or marked this as a procedure call)
+				//on the node itself, so there is no need to look anything up by name here.
+				CFunction cf = (CFunction) m;
+                if (cf.isProcedure()) {
                     //Not really a function, so we can't put it in Function.
-                    Procedure p = getProc(m.val());
+                    Procedure p = gEnv.GetProc(m.val());
                     if (p == null) {
                         throw new ConfigRuntimeException("Unknown procedure \"" + m.val() + "\"", ExceptionType.InvalidProcedureException, m.getTarget());
                     }
@@ -234,27 +310,27 @@ public class Script {
                     try{
                         newEnv = env.clone();
                     } catch(Exception e){}
-					ProfilePoint pp = env.getEnv(GlobalEnv.class).GetProfiler().start(m.val() + " execution", LogLevel.INFO);
+					ProfilePoint pp = gEnv.GetProfiler().start(m.val() + " execution", LogLevel.INFO);
                     Construct ret = p.cexecute(c.getChildren(), newEnv, m.getTarget());
 					pp.stop();					
 					return ret;
                 }
                 final Function f;
                 try{
-                    f = (Function)FunctionList.getFunction(m);
+                    f = cf.bindFunction();
                 } catch(ConfigCompileException e){
                     //Turn it into a config runtime exception. This shouldn't ever happen though.
                     throw ConfigRuntimeException.CreateUncatchableException("Unable to find function " + m.val(), m.getTarget());
                 }
 				
-				ArrayList<Construct> args = new ArrayList<Construct>();
+				ArrayList<Construct> args = new ArrayList<Construct>(c.numberOfChildren());
                 try{
 					if(f.useSpecialExec()){
 						ProfilePoint p = null;
-						if(f.shouldProfile() && env.getEnv(GlobalEnv.class).GetProfiler() != null && env.getEnv(GlobalEnv.class).GetProfiler().isLoggable(f.profileAt())){
-							p = env.getEnv(GlobalEnv.class).GetProfiler().start(f.profileMessageS(c.getChildren()), f.profileAt());
+						if(f.shouldProfile() && gEnv.GetProfiler() != null && gEnv.GetProfiler().isLoggable(f.profileAt())){
+							p = gEnv.GetProfiler().start(f.profileMessageS(c.getChildren()), f.profileAt());
 						}
-						Construct ret = f.execs(m.getTarget(), env, this, c.getChildren().toArray(new ParseTree[]{}));
+						Construct ret = f.execs(m.getTarget(), env, this, c.getChildren().toArray(new ParseTree[c.numberOfChildren()]));
 						if(p != null){
 							p.stop();
 						}
@@ -271,10 +347,8 @@ public class Script {
 									ExceptionType.InsufficientPermissionException, m.getTarget());
 						}
 					}
-					Object[] a = args.toArray();
-					Construct[] ca = new Construct[a.length];
-					for (int i = 0; i < a.length; i++) {
-						ca[i] = (Construct) a[i];
+					Construct[] ca = args.toArray(new Construct[args.size()]);
+					for (int i = 0; i < ca.length; i++) {
 						//CArray, CBoolean, CDouble, CInt, CNull, CString, CVoid, CEntry, CLabel (only to sconcat).
 						if (!(ca[i] instanceof CArray || ca[i] instanceof CBoolean || ca[i] instanceof CDouble
 								|| ca[i] instanceof CInt || ca[i] instanceof CNull
@@ -287,7 +361,7 @@ public class Script {
 						}
 						while(f.preResolveVariables() && ca[i] instanceof IVariable){
 							IVariable cur = (IVariable)ca[i];
-							ca[i] = env.getEnv(GlobalEnv.class).GetVarList().get(cur.getName(), cur.getTarget()).ival();
+							ca[i] = gEnv.GetVarList().get(cur).ival();
 						}
 					}
 
@@ -295,8 +369,8 @@ public class Script {
 						//It takes a moment to generate the toString of some things, so lets not do it
 						//if we actually aren't going to profile
 						ProfilePoint p = null;				
-						if(f.shouldProfile() && env.getEnv(GlobalEnv.class).GetProfiler() != null && env.getEnv(GlobalEnv.class).GetProfiler().isLoggable(f.profileAt())){						
-							p = env.getEnv(GlobalEnv.class).GetProfiler().start(f.profileMessage(ca), f.profileAt());
+						if(f.shouldProfile() && gEnv.GetProfiler() != null && gEnv.GetProfiler().isLoggable(f.profileAt())){						
+							p = gEnv.GetProfiler().start(f.profileMessage(ca), f.profileAt());
 						}
 						Construct ret = f.exec(m.getTarget(), env, ca);
 						if(p != null){
@@ -362,13 +436,23 @@ public class Script {
 					Static.getLogger().log(Level.SEVERE, emsg);
 					throw new CancelCommandException(null, Target.UNKNOWN);
 				}
-        } else if (m.getCType() == ConstructType.VARIABLE) {            
-            return new CString(m.val(), m.getTarget());
+        } else if (m.getCType() == ConstructType.VARIABLE) {
+            String val = gEnv.GetDollarVar((Variable) m);
+            return new CString(val == null ? m.val() : val, m.getTarget());
         } else {
             return m;
         }
     }
 
+    /**
+     * Returns the compiled left side of the alias, or null if it hasn't been
+     * compiled, or failed to compile.
+     * @return
+     */
+    List<Construct> getCompiledSignature(){
+        return cleft;
+    }
+
     public boolean match(String command) {
         if(cleft == null){
             //The compilation error happened during the signature declaration, so 
@@ -738,7 +822,19 @@ public class Script {
         right.add(temp);
         cright = new ArrayList<ParseTree>();
         for (List<Token> l : right) {
-            cright.add(MethodScriptCompiler.compile(l));
+            cright.add(ParseTreeCache.Compile(l));
+        }
+        dollarVarNames = new ArrayList<String>();
+        firstDollarVar = null;
+        if (cleft != null) {
+            for (Construct c : cleft) {
+                if (c instanceof Variable) {
+                    dollarVarNames.add(((Variable) c).getName());
+                }
+            }
+        }
+        for (ParseTree tree : cright) {
+            assignDollarVarSlots(tree);
         }
     }
 
@@ -0,0 +1,159 @@
+package com.laytonsmith.core;
+
+import com.laytonsmith.abstraction.StaticLayer;
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Watches the script files for changes, and once a batch of changes has
+ * settled, hands the changed (or added, or deleted) files to the AliasCore,
+ * on the main thread, so that just those files can be reloaded. The files are
+ * polled, by comparing their modification times and sizes, since there is no
+ * file system notification api available to us. A change is only reported
+ * once two polls in a row see the same thing, so half written files don't get
+ * picked up.
+ *
+ * @author Layton
+ */
+public class ScriptWatcher {
+
+	/**
+	 * How often the files are checked, in ms.
+	 */
+	private static final long INTERVAL = 2000;
+	private final AliasCore core;
+	private final File[] roots;
+	private Timer timer;
+	/**
+	 * The state of the files as of the last reload.
+	 */
+	private Map<File, Stamp> loaded;
+	/**
+	 * The state of the files as of the last poll.
+	 */
+	private Map<File, Stamp> last;
+
+	/**
+	 * @param core The AliasCore to notify of changes
+	 * @param roots The files and folders to watch. Folders are watched
+	 * recursively.
+	 */
+	public ScriptWatcher(AliasCore core, File... roots) {
+		this.core = core;
+		this.roots = roots;
+	}
+
+	/**
+	 * Starts watching the files. The current state of the files is taken to be
+	 * what is already loaded.
+	 */
+	public synchronized void start() {
+		if (timer != null) {
+			return;
+		}
+		loaded = scan();
+		last = loaded;
+		timer = new Timer("CommandHelper Script Watcher", true);
+		timer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				poll();
+			}
+		}, INTERVAL, INTERVAL);
+	}
+
+	/**
+	 * Stops watching the files. Changes that haven't been handed off yet are
+	 * dropped.
+	 */
+	public synchronized void stop() {
+		if (timer != null) {
+			timer.cancel();
+			timer = null;
+		}
+	}
+
+	private synchronized void poll() {
+		if (timer == null) {
+			return;
+		}
+		Map<File, Stamp> current = scan();
+		boolean settled = current.equals(last);
+		last = current;
+		if (!settled || current.equals(loaded)) {
+			return;
+		}
+		final Set<File> changed = new HashSet<File>();
+		for (Map.Entry<File, Stamp> entry : current.entrySet()) {
+			if (!entry.getValue().equals(loaded.get(entry.getKey()))) {
+				changed.add(entry.getKey());
+			}
+		}
+		for (File f : loaded.keySet()) {
+			if (!current.containsKey(f)) {
+				changed.add(f);
+			}
+		}
+		loaded = current;
+		StaticLayer.GetConvertor().runOnMainThreadLater(null, new Runnable() {
+			public void run() {
+				core.reloadChanged(changed);
+			}
+		});
+	}
+
+	private Map<File, Stamp> scan() {
+		Map<File, Stamp> files = new HashMap<File, Stamp>();
+		for (File root : roots) {
+			scan(root, files);
+		}
+		return files;
+	}
+
+	private void scan(File f, Map<File, Stamp> files) {
+		if (f.isDirectory()) {
+			//Disabled folders aren't loaded at all, so they aren't watched either
+			if (f.getName().endsWith(".disabled")) {
+				return;
+			}
+			File[] children = f.listFiles();
+			if (children != null) {
+				for (File child : children) {
+					scan(child, files);
+				}
+			}
+		} else if (f.isFile()) {
+			files.put(f, new Stamp(f.lastModified(), f.length()));
+		}
+	}
+
+	private static class Stamp {
+
+		private final long modified;
+		private final long length;
+
+		public Stamp(long modified, long length) {
+			this.modified = modified;
+			this.length = length;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Stamp)) {
+				return false;
+			}
+			Stamp other = (Stamp) obj;
+			return modified == other.modified && length == other.length;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (modified ^ (modified >>> 32)) * 31 + (int) (length ^ (length >>> 32));
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package com.laytonsmith.core;
+
+import com.laytonsmith.core.compiler.TypeInference;
+import com.laytonsmith.core.functions.Function;
+
+/**
+ * A function that can run faster when the compiler can prove what kind of
+ * numbers it will be passed. Once a script is optimized, {@link TypeInference}
+ * works out the types it can, and puts the specialized version of the function
+ * on the node, so at runtime it's called directly.
+ *
+ * @author Layton
+ */
+public interface Specializable extends Function {
+
+	/**
+	 * Returns the type of the value this function returns, given the types of
+	 * its arguments, or null if that can't be known ahead of time.
+	 *
+	 * @param args The types of the arguments. An entry is null if the type of
+	 * that argument isn't known.
+	 * @return
+	 */
+	TypeInference.Type returnType(TypeInference.Type[] args);
+
+	/**
+	 * Returns a version of this function that may assume its arguments are of
+	 * the given types, or null if there isn't a better version for these types.
+	 * Other than that, the returned function must behave exactly the same,
+	 * including what it returns.
+	 *
+	 * @param args The types of the arguments. An entry is null if the type of
+	 * that argument isn't known.
+	 * @return
+	 */
+	Function specialize(TypeInference.Type[] args);
+}
@@ -107,6 +107,21 @@ public final class Static {
         return d;
     }
 
+	/**
+	 * Returns the value of a construct that is already known to be a CInt or a
+	 * CDouble, for instance, because the compiler has proven it. This skips the
+	 * null checks and string parsing that getNumber has to do, but otherwise
+	 * returns the same thing.
+	 * @param c
+	 * @return 
+	 */
+	public static double getKnownNumber(Construct c) {
+		if (c instanceof CInt) {
+			return ((CInt) c).getInt();
+		}
+		return ((CDouble) c).getDouble();
+	}
+
     /**
      * Alias to getNumber
      * @param c
@@ -0,0 +1,603 @@
+package com.laytonsmith.core.compiler;
+
+import com.laytonsmith.annotations.api;
+import com.laytonsmith.core.CHLog;
+import com.laytonsmith.core.LogLevel;
+import com.laytonsmith.core.MethodScriptCompiler;
+import com.laytonsmith.core.NotInitializedYetException;
+import com.laytonsmith.core.ParseTree;
+import com.laytonsmith.core.Static;
+import com.laytonsmith.core.constructs.CBareString;
+import com.laytonsmith.core.constructs.CBoolean;
+import com.laytonsmith.core.constructs.CDouble;
+import com.laytonsmith.core.constructs.CEntry;
+import com.laytonsmith.core.constructs.CFunction;
+import com.laytonsmith.core.constructs.CInt;
+import com.laytonsmith.core.constructs.CKeyword;
+import com.laytonsmith.core.constructs.CLabel;
+import com.laytonsmith.core.constructs.CNull;
+import com.laytonsmith.core.constructs.CSlice;
+import com.laytonsmith.core.constructs.CString;
+import com.laytonsmith.core.constructs.CVoid;
+import com.laytonsmith.core.constructs.Construct;
+import com.laytonsmith.core.constructs.IVariable;
+import com.laytonsmith.core.constructs.Target;
+import com.laytonsmith.core.constructs.Token;
+import com.laytonsmith.core.constructs.Variable;
+import com.laytonsmith.core.exceptions.ConfigCompileException;
+import com.laytonsmith.core.functions.FunctionBase;
+import com.laytonsmith.core.functions.FunctionList;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps compiled (and optimized) parse trees on disk, so that files that haven't
+ * changed don't need to be lexed and compiled again each time the scripts are
+ * reloaded. Entries are keyed by a hash of the source, along with the version of
+ * the compiler and the set of functions that are available, so an entry is simply
+ * never found again once any of those change. Entries that haven't been used for
+ * a while are cleaned up when the cache is initialized, and the whole cache is
+ * cleared if the compiler changes.
+ *
+ * Only trees made of the constructs the compiler itself creates can be cached,
+ * anything else is compiled each time, as usual. Until {@link #Initialize} is
+ * called, the cache is disabled, and everything is compiled normally.
+ *
+ * @author Layton
+ */
+public final class ParseTreeCache {
+
+	/**
+	 * Change this any time the format of the cache files changes.
+	 */
+	private static final int FORMAT_VERSION = 1;
+	private static final int MAGIC = 0x4D535443; //"MSTC"
+	private static final String EXTENSION = ".mstc";
+	private static final String VERSION_FILE = "version.txt";
+	/**
+	 * Entries that haven't been used for this long are removed when the cache is
+	 * initialized.
+	 */
+	private static final long MAX_AGE = 30L * 24 * 60 * 60 * 1000;
+	private static final FileOptions FILE_OPTIONS = new FileOptions(new HashMap<String, String>());
+
+	//Construct tags
+	private static final int NONE = 0;
+	private static final int FUNCTION = 1;
+	private static final int STRING = 2;
+	private static final int BARE_STRING = 3;
+	private static final int KEYWORD = 4;
+	private static final int INT = 5;
+	private static final int DOUBLE = 6;
+	private static final int STRING_DOUBLE = 7;
+	private static final int BOOLEAN = 8;
+	private static final int NULL = 9;
+	private static final int VOID = 10;
+	private static final int IVARIABLE = 11;
+	private static final int VARIABLE = 12;
+	private static final int SLICE = 13;
+	private static final int LABEL = 14;
+	private static final int ENTRY = 15;
+
+	private static volatile File directory = null;
+	private static volatile String compilerVersion = null;
+
+	private ParseTreeCache() {
+	}
+
+	/**
+	 * Enables the cache, storing the entries in the given directory, or disables it,
+	 * if the directory is null.
+	 *
+	 * @param dir
+	 */
+	public static synchronized void Initialize(File dir) {
+		if (dir == null) {
+			directory = null;
+			return;
+		}
+		compilerVersion = GetCompilerVersion();
+		if (!dir.exists() && !dir.mkdirs()) {
+			CHLog.GetLogger().Log(CHLog.Tags.COMPILER, LogLevel.WARNING, "Could not create the compile cache at "
+					+ dir.getAbsolutePath() + ", scripts will not be cached.", Target.UNKNOWN);
+			directory = null;
+			return;
+		}
+		File versionFile = new File(dir, VERSION_FILE);
+		boolean sameVersion = false;
+		try {
+			sameVersion = versionFile.exists() && compilerVersion.equals(new String(readFully(versionFile), "UTF-8").trim());
+		} catch (IOException ex) {
+			//It's rewritten below
+		}
+		long now = System.currentTimeMillis();
+		File[] entries = dir.listFiles();
+		if (entries != null) {
+			for (File f : entries) {
+				if (f.getName().endsWith(EXTENSION) && (!sameVersion || now - f.lastModified() > MAX_AGE)) {
+					f.delete();
+				}
+			}
+		}
+		if (!sameVersion) {
+			try {
+				FileWriter w = new FileWriter(versionFile);
+				try {
+					w.write(compilerVersion);
+				} finally {
+					w.close();
+				}
+			} catch (IOException ex) {
+				CHLog.GetLogger().Log(CHLog.Tags.COMPILER, LogLevel.WARNING, "Could not write to the compile cache at "
+						+ dir.getAbsolutePath() + ", scripts will not be cached.", Target.UNKNOWN);
+				directory = null;
+				return;
+			}
+		}
+		directory = dir;
+	}
+
+	/**
+	 * Lexes and compiles the given script, or returns the tree from the cache, if
+	 * this exact script has been compiled before.
+	 *
+	 * @param script
+	 * @param file The file the script is from
+	 * @return
+	 * @throws ConfigCompileException
+	 */
+	public static ParseTree Compile(String script, File file) throws ConfigCompileException {
+		File dir = directory;
+		if (dir == null) {
+			return MethodScriptCompiler.compile(MethodScriptCompiler.lex(script, file, true));
+		}
+		String key = hash("ms", script);
+		ParseTree tree = load(dir, key, file);
+		if (tree == null) {
+			tree = MethodScriptCompiler.compile(MethodScriptCompiler.lex(script, file, true));
+			store(dir, key, tree, file);
+		}
+		return tree;
+	}
+
+	/**
+	 * Compiles the given token stream, or returns the tree from the cache, if the
+	 * same tokens have been compiled before. This is used for the right side of
+	 * aliases, which are already lexed by the time they are compiled.
+	 *
+	 * @param tokens
+	 * @return
+	 * @throws ConfigCompileException
+	 */
+	public static ParseTree Compile(List<Token> tokens) throws ConfigCompileException {
+		File dir = directory;
+		if (dir == null || tokens.isEmpty()) {
+			return MethodScriptCompiler.compile(tokens);
+		}
+		File file = tokens.get(0).file;
+		StringBuilder b = new StringBuilder();
+		for (Token t : tokens) {
+			if (t.file != file) {
+				return MethodScriptCompiler.compile(tokens);
+			}
+			b.append(t.type.name()).append('\0').append(t.line_num).append('\0').append(t.column)
+					.append('\0').append(t.value).append('\0');
+		}
+		String key = hash("tokens", b.toString());
+		ParseTree tree = load(dir, key, file);
+		if (tree == null) {
+			tree = MethodScriptCompiler.compile(tokens);
+			store(dir, key, tree, file);
+		}
+		return tree;
+	}
+
+	private static ParseTree load(File dir, String key, File file) {
+		File entry = new File(dir, key + EXTENSION);
+		if (!entry.exists()) {
+			return null;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entry)));
+			try {
+				if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+					throw new IOException("Not a compile cache entry");
+				}
+				ParseTree tree = new Reader(in, file).readTree();
+				//Only the names of the functions are stored, so the specialized versions have to be found again
+				TypeInference.Infer(tree);
+				entry.setLastModified(System.currentTimeMillis());
+				return tree;
+			} finally {
+				in.close();
+			}
+		} catch (Exception ex) {
+			//A corrupt entry, or one that references a function that no longer exists. Either way,
+			//it's useless, so get rid of it, and compile the file normally.
+			CHLog.GetLogger().Log(CHLog.Tags.COMPILER, LogLevel.DEBUG, "Discarding compile cache entry for " + file
+					+ ": " + ex.getMessage(), Target.UNKNOWN);
+			entry.delete();
+			return null;
+		}
+	}
+
+	private static void store(File dir, String key, ParseTree tree, File file) {
+		File temp = null;
+		try {
+			temp = File.createTempFile(key, ".tmp", dir);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				new Writer(out, file).writeTree(tree);
+			} finally {
+				out.close();
+			}
+			File entry = new File(dir, key + EXTENSION);
+			if (!temp.renameTo(entry)) {
+				//Someone else may have just written the same entry, which is fine.
+				temp.delete();
+			}
+		} catch (NotCacheableException ex) {
+			CHLog.GetLogger().Log(CHLog.Tags.COMPILER, LogLevel.VERBOSE, file + " can't be cached: " + ex.getMessage(), Target.UNKNOWN);
+			temp.delete();
+		} catch (IOException ex) {
+			CHLog.GetLogger().Log(CHLog.Tags.COMPILER, LogLevel.DEBUG, "Could not write compile cache entry for " + file
+					+ ": " + ex.getMessage(), Target.UNKNOWN);
+			if (temp != null) {
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Returns a string that changes whenever the compiler may produce a different
+	 * tree for the same source, that is, when the format changes, CommandHelper
+	 * itself is updated, or the set of available functions changes (because an
+	 * extension was added or removed).
+	 */
+	private static String GetCompilerVersion() {
+		StringBuilder b = new StringBuilder();
+		b.append(FORMAT_VERSION).append(';');
+		try {
+			b.append(Static.getVersion()).append(';');
+		} catch (NotInitializedYetException ex) {
+			b.append("unknown;");
+		}
+		try {
+			URL location = ParseTreeCache.class.getProtectionDomain().getCodeSource().getLocation();
+			File jar = new File(location.toURI());
+			b.append(jar.lastModified()).append(';').append(jar.length()).append(';');
+		} catch (Exception ex) {
+			//Not a big deal, the version will have to do.
+		}
+		List<String> functions = new ArrayList<String>();
+		for (FunctionBase f : FunctionList.getFunctionList(api.Platforms.INTERPRETER_JAVA)) {
+			functions.add(f.getClass().getName());
+		}
+		Collections.sort(functions);
+		return b.append(hash("functions", functions.toString())).toString();
+	}
+
+	private static String hash(String kind, String contents) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA1");
+			digest.update(kind.getBytes("UTF-8"));
+			digest.update((byte) 0);
+			if (compilerVersion != null) {
+				digest.update(compilerVersion.getBytes("UTF-8"));
+				digest.update((byte) 0);
+			}
+			digest.update(contents.getBytes("UTF-8"));
+			StringBuilder b = new StringBuilder();
+			for (byte by : digest.digest()) {
+				b.append(Integer.toString((by & 0xff) + 0x100, 16).substring(1));
+			}
+			return b.toString();
+		} catch (NoSuchAlgorithmException ex) {
+			throw new Error(ex);
+		} catch (UnsupportedEncodingException ex) {
+			throw new Error(ex);
+		}
+	}
+
+	private static byte[] readFully(File f) throws IOException {
+		DataInputStream in = new DataInputStream(new FileInputStream(f));
+		try {
+			byte[] bytes = new byte[(int) f.length()];
+			in.readFully(bytes);
+			return bytes;
+		} finally {
+			in.close();
+		}
+	}
+
+	private static class NotCacheableException extends IOException {
+
+		public NotCacheableException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * Writes a tree. The file options aren't written, since the compiler currently
+	 * always uses the defaults. Strings are written once, and referred to by index after that,
+	 * since the same function and variable names tend to show up over and over.
+	 * Targets are written as just the line and column, the file is always the file
+	 * that was compiled.
+	 */
+	private static class Writer {
+
+		private final DataOutputStream out;
+		private final File file;
+		private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+		Writer(DataOutputStream out, File file) {
+			this.out = out;
+			this.file = file;
+		}
+
+		void writeTree(ParseTree tree) throws IOException {
+			int flags = (tree.isOptimized() ? 1 : 0) | (tree.hasBeenMadeStatic() ? 2 : 0) | (tree.getFileOptions() == null ? 4 : 0);
+			out.writeByte(flags);
+			writeConstruct(tree.getData());
+			writeInt(tree.numberOfChildren());
+			for (ParseTree child : tree.getChildren()) {
+				writeTree(child);
+			}
+		}
+
+		void writeConstruct(Construct c) throws IOException {
+			if (c == null) {
+				out.writeByte(NONE);
+				return;
+			}
+			Class<?> type = c.getClass();
+			if (type == CFunction.class) {
+				out.writeByte(FUNCTION);
+				writeString(c.val());
+			} else if (type == CString.class) {
+				out.writeByte(STRING);
+				writeString(c.val());
+			} else if (type == CBareString.class) {
+				out.writeByte(BARE_STRING);
+				writeString(c.val());
+			} else if (type == CKeyword.class) {
+				out.writeByte(KEYWORD);
+				writeString(c.val());
+			} else if (type == CInt.class) {
+				out.writeByte(INT);
+				writeString(c.val());
+			} else if (type == CDouble.class) {
+				if (c.getCType() == Construct.ConstructType.DOUBLE) {
+					out.writeByte(DOUBLE);
+					out.writeDouble(((CDouble) c).getDouble());
+				} else {
+					//Created from a string
+					out.writeByte(STRING_DOUBLE);
+					writeString(c.val());
+				}
+			} else if (type == CBoolean.class) {
+				out.writeByte(BOOLEAN);
+				out.writeBoolean(((CBoolean) c).getBoolean());
+			} else if (type == CNull.class) {
+				out.writeByte(NULL);
+			} else if (type == CVoid.class) {
+				out.writeByte(VOID);
+			} else if (type == IVariable.class) {
+				out.writeByte(IVARIABLE);
+				writeString(((IVariable) c).getName());
+				writeInt(((IVariable) c).getSlot() + 1);
+			} else if (type == Variable.class) {
+				Variable v = (Variable) c;
+				out.writeByte(VARIABLE);
+				writeString(v.getName());
+				writeString(v.getDefault());
+				out.writeByte((v.isOptional() ? 1 : 0) | (v.isFinal() ? 2 : 0));
+			} else if (type == CSlice.class) {
+				out.writeByte(SLICE);
+				out.writeLong(((CSlice) c).getStart());
+				out.writeLong(((CSlice) c).getFinish());
+			} else if (type == CLabel.class) {
+				out.writeByte(LABEL);
+				writeConstruct(((CLabel) c).cVal());
+			} else if (type == CEntry.class) {
+				out.writeByte(ENTRY);
+				writeConstruct(((CEntry) c).key());
+				writeConstruct(((CEntry) c).construct());
+			} else {
+				throw new NotCacheableException(type.getSimpleName() + " constructs are not supported");
+			}
+			writeTarget(c.getTarget());
+		}
+
+		void writeTarget(Target t) throws IOException {
+			if (t.file() != null && !t.file().equals(file)) {
+				throw new NotCacheableException("the tree contains code from another file");
+			}
+			out.writeBoolean(t.file() != null);
+			writeInt(t.line());
+			writeInt(t.col());
+		}
+
+		void writeString(String s) throws IOException {
+			Integer index = strings.get(s);
+			if (index != null) {
+				writeInt(index + 1);
+			} else {
+				writeInt(0);
+				out.writeUTF(s);
+				strings.put(s, strings.size());
+			}
+		}
+
+		/**
+		 * Writes a non negative int, 7 bits at a time, since most of the numbers
+		 * written are small.
+		 */
+		void writeInt(int i) throws IOException {
+			while ((i & ~0x7F) != 0) {
+				out.writeByte((i & 0x7F) | 0x80);
+				i >>>= 7;
+			}
+			out.writeByte(i);
+		}
+	}
+
+	private static class Reader {
+
+		private final DataInputStream in;
+		private final File file;
+		private final List<String> strings = new ArrayList<String>();
+
+		Reader(DataInputStream in, File file) {
+			this.in = in;
+			this.file = file;
+		}
+
+		ParseTree readTree() throws IOException, ConfigCompileException {
+			int flags = in.readByte();
+			ParseTree tree = new ParseTree((flags & 4) != 0 ? null : FILE_OPTIONS);
+			tree.setOptimized((flags & 1) != 0);
+			tree.hasBeenMadeStatic((flags & 2) != 0);
+			tree.setData(readConstruct());
+			int children = readInt();
+			for (int i = 0; i < children; i++) {
+				tree.addChild(readTree());
+			}
+			return tree;
+		}
+
+		Construct readConstruct() throws IOException, ConfigCompileException {
+			int tag = in.readByte();
+			switch (tag) {
+				case NONE:
+					return null;
+				case FUNCTION: {
+					String name = readString();
+					CFunction f = new CFunction(name, readTarget());
+					if (!f.isProcedure()) {
+						try {
+							f.bindFunction();
+						} catch (ConfigCompileException ex) {
+							//The compiler doesn't bind every node, so this may not have been bound
+							//originally either. If it's really missing, it fails at runtime, same
+							//as it would have without the cache.
+						}
+					}
+					return f;
+				}
+				case STRING: {
+					String s = readString();
+					return new CString(s, readTarget());
+				}
+				case BARE_STRING: {
+					String s = readString();
+					return new CBareString(s, readTarget());
+				}
+				case KEYWORD: {
+					String s = readString();
+					return new CKeyword(s, readTarget());
+				}
+				case INT: {
+					String s = readString();
+					return new CInt(s, readTarget());
+				}
+				case DOUBLE: {
+					double d = in.readDouble();
+					return new CDouble(d, readTarget());
+				}
+				case STRING_DOUBLE: {
+					String s = readString();
+					return new CDouble(s, readTarget());
+				}
+				case BOOLEAN: {
+					boolean b = in.readBoolean();
+					return new CBoolean(b, readTarget());
+				}
+				case NULL:
+					return new CNull(readTarget());
+				case VOID:
+					return new CVoid(readTarget());
+				case IVARIABLE: {
+					String name = readString();
+					int slot = readInt() - 1;
+					IVariable v = new IVariable(name, readTarget());
+					v.setSlot(slot);
+					return v;
+				}
+				case VARIABLE: {
+					String name = readString();
+					String def = readString();
+					int flags = in.readByte();
+					return new Variable(name, def, (flags & 1) != 0, (flags & 2) != 0, readTarget());
+				}
+				case SLICE: {
+					long start = in.readLong();
+					long finish = in.readLong();
+					return new CSlice(start, finish, readTarget());
+				}
+				case LABEL: {
+					Construct label = readConstruct();
+					readTarget();
+					return new CLabel(label);
+				}
+				case ENTRY: {
+					Construct key = readConstruct();
+					Construct value = readConstruct();
+					return new CEntry(key, value, readTarget());
+				}
+				default:
+					throw new IOException("Unknown construct type " + tag);
+			}
+		}
+
+		Target readTarget() throws IOException {
+			boolean hasFile = in.readBoolean();
+			int line = readInt();
+			int col = readInt();
+			if (!hasFile && line == 0 && col == 0) {
+				return Target.UNKNOWN;
+			}
+			return new Target(line, hasFile ? file : null, col);
+		}
+
+		String readString() throws IOException {
+			int index = readInt();
+			if (index == 0) {
+				String s = in.readUTF();
+				strings.add(s);
+				return s;
+			}
+			return strings.get(index - 1);
+		}
+
+		int readInt() throws IOException {
+			int i = 0;
+			int shift = 0;
+			int b;
+			do {
+				b = in.readByte();
+				i |= (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return i;
+		}
+	}
+}
@@ -0,0 +1,505 @@
+package com.laytonsmith.core.compiler;
+
+import com.laytonsmith.core.ParseTree;
+import com.laytonsmith.core.Specializable;
+import com.laytonsmith.core.constructs.CDouble;
+import com.laytonsmith.core.constructs.CFunction;
+import com.laytonsmith.core.constructs.CIdentifier;
+import com.laytonsmith.core.constructs.CInt;
+import com.laytonsmith.core.constructs.Construct;
+import com.laytonsmith.core.constructs.IVariable;
+import com.laytonsmith.core.exceptions.ConfigCompileException;
+import com.laytonsmith.core.functions.Function;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Works out which expressions in a compiled tree are certain to evaluate to an
+ * int, or to a double, and gives the {@link Specializable} functions whose
+ * arguments are known the chance to swap in a faster version of themselves.
+ * Literals, the integer() and double() casts, functions that always return the
+ * same type, and arithmetic on any of those are typed. Variables are typed too,
+ * but only where it's provable: every assignment to the variable must be typed
+ * the same, the first one must come before any other use of the variable, and
+ * nothing else may be able to change it, so variables used by include(), eval(),
+ * closures, or any function that works on the variable itself, like foreach(),
+ * are left alone.
+ *
+ * @author Layton
+ */
+public final class TypeInference {
+
+	private TypeInference() {
+	}
+
+	public enum Type {
+
+		INT, DOUBLE
+	}
+
+	/**
+	 * Functions that always return the same type, no matter what they're
+	 * passed.
+	 */
+	private static final Map<String, Type> RETURNS = new HashMap<String, Type>();
+
+	static {
+		for (String f : Arrays.asList("integer", "floor", "ceil", "length", "array_size")) {
+			RETURNS.put(f, Type.INT);
+		}
+		for (String f : Arrays.asList("double", "abs", "pow", "sin", "cos", "tan", "asin", "acos", "atan", "atan2",
+				"to_radians", "to_degrees", "logarithm")) {
+			RETURNS.put(f, Type.DOUBLE);
+		}
+	}
+	/**
+	 * Functions that run all their children, in order, so if one of them runs,
+	 * the ones before it have already run.
+	 */
+	private static final Set<String> SEQUENCES = new HashSet<String>(Arrays.asList("__autoconcat__", "sconcat", "concat", "g", "p"));
+	/**
+	 * Functions that change a variable, but never its type.
+	 */
+	private static final Set<String> INCREMENTS = new HashSet<String>(Arrays.asList("inc", "dec", "postinc", "postdec"));
+
+	/**
+	 * Returns the type that the arithmetic functions return when given
+	 * arguments of these types. If all the arguments are ints, the result is
+	 * an int, if they're all numbers, and at least one is a double, it's a
+	 * double, otherwise, it isn't known.
+	 *
+	 * @param args
+	 * @return
+	 */
+	public static Type Arithmetic(Type[] args) {
+		Type ret = Type.INT;
+		for (Type t : args) {
+			if (t == null) {
+				return null;
+			}
+			if (t == Type.DOUBLE) {
+				ret = Type.DOUBLE;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns true if all the types are known, that is, each argument is known
+	 * to be a CInt or a CDouble.
+	 *
+	 * @param args
+	 * @return
+	 */
+	public static boolean AllNumeric(Type[] args) {
+		for (Type t : args) {
+			if (t == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if all the arguments are known to be CInts.
+	 *
+	 * @param args
+	 * @return
+	 */
+	public static boolean AllInts(Type[] args) {
+		for (Type t : args) {
+			if (t != Type.INT) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Types the given tree, and specializes the functions in it where
+	 * possible. This should be run on the fully optimized tree, since
+	 * optimization may replace nodes.
+	 *
+	 * @param tree
+	 */
+	public static void Infer(ParseTree tree) {
+		Inference inference = new Inference();
+		Scope root = new Scope();
+		inference.collect(tree, root, false);
+		inference.resolve();
+		inference.specialize(tree, root);
+	}
+
+	/**
+	 * The variables of one variable list, that is, of the file, or of one proc
+	 * or bind body.
+	 */
+	private static class Scope {
+
+		private final Map<String, Var> vars = new HashMap<String, Var>();
+		/**
+		 * If the scope uses include() or eval(), any of its variables may be
+		 * changed by code we can't see.
+		 */
+		private boolean poisoned = false;
+
+		private Var get(String name) {
+			Var v = vars.get(name);
+			if (v == null) {
+				v = new Var(this);
+				vars.put(name, v);
+			}
+			return v;
+		}
+	}
+
+	private static class Var {
+
+		private final Scope scope;
+		private boolean ok = true;
+		/**
+		 * The path from the root to the first use of the variable, and whether
+		 * each step of it is certain to run, once the node it starts from runs.
+		 */
+		private List<ParseTree> firstPath;
+		private List<Boolean> firstSteps;
+		/**
+		 * How much of firstPath is shared by all the uses of the variable.
+		 */
+		private int common;
+		private final List<ParseTree> values = new ArrayList<ParseTree>();
+		private boolean resolved = false;
+		private Type type;
+
+		private Var(Scope scope) {
+			this.scope = scope;
+		}
+	}
+
+	private static class Inference {
+
+		private final List<Var> vars = new ArrayList<Var>();
+		private final Map<ParseTree, Scope> scopes = new IdentityHashMap<ParseTree, Scope>();
+		private final List<ParseTree> path = new ArrayList<ParseTree>();
+		private final List<Boolean> steps = new ArrayList<Boolean>();
+		/**
+		 * Set while typing an expression, if it uses a variable whose type
+		 * hasn't been worked out yet.
+		 */
+		private boolean incomplete;
+
+		/**
+		 * Walks the tree, recording each use of each variable.
+		 *
+		 * @param tree
+		 * @param scope
+		 * @param deferred True if this code may run somewhere else, later, like
+		 * the inside of a closure.
+		 */
+		private void collect(ParseTree tree, Scope scope, boolean deferred) {
+			Construct data = tree.getData();
+			if (data == null) {
+				//The root of a compiled tree, whose children are run in order
+				for (ParseTree child : tree.getChildren()) {
+					push(tree, true);
+					collect(child, scope, deferred);
+					pop();
+				}
+				return;
+			}
+			if (data instanceof IVariable) {
+				use(scope, (IVariable) data, deferred, null, false);
+				return;
+			}
+			if (data instanceof CIdentifier) {
+				push(tree, false);
+				collect(((CIdentifier) data).contained(), scope, deferred);
+				pop();
+				return;
+			}
+			if (!(data instanceof CFunction)) {
+				return;
+			}
+			CFunction cf = (CFunction) data;
+			String name = cf.val();
+			if (name.equals("include") || name.equals("eval")) {
+				scope.poisoned = true;
+			}
+			boolean special = false;
+			if (!cf.isProcedure()) {
+				try {
+					Function f = cf.bindFunction();
+					special = f.useSpecialExec() || !f.preResolveVariables();
+				} catch (ConfigCompileException ex) {
+					//Not a real function, so it fails at runtime anyways
+				}
+			}
+			boolean body = name.equals("proc") || name.equals("bind");
+			boolean closure = name.equals("closure");
+			boolean sequence = SEQUENCES.contains(name);
+			int last = tree.numberOfChildren() - 1;
+			if (name.equals("assign") && tree.numberOfChildren() == 2) {
+				//The value is evaluated before the assignment happens
+				ParseTree value = tree.getChildAt(1);
+				push(tree, false);
+				if (value.getData() instanceof IVariable) {
+					use(scope, (IVariable) value.getData(), deferred, null, false);
+				} else {
+					collect(value, scope, deferred);
+				}
+				pop();
+				if (tree.getChildAt(0).getData() instanceof IVariable) {
+					push(tree, false);
+					use(scope, (IVariable) tree.getChildAt(0).getData(), deferred, value, true);
+					pop();
+				} else {
+					push(tree, false);
+					collect(tree.getChildAt(0), scope, deferred);
+					pop();
+				}
+				return;
+			}
+			for (int i = 0; i <= last; i++) {
+				ParseTree child = tree.getChildAt(i);
+				if (body && i == last) {
+					//Procs and binds run their body in a variable list of their own
+					Scope inner = new Scope();
+					scopes.put(child, inner);
+					push(tree, false);
+					collect(child, inner, false);
+					pop();
+					continue;
+				}
+				push(tree, sequence || (name.equals("for") && i == 0));
+				if (child.getData() instanceof IVariable) {
+					if (INCREMENTS.contains(name) && i == 0) {
+						//Changes the variable, but keeps the type, so it's like any other use
+						use(scope, (IVariable) child.getData(), deferred, null, false);
+					} else if (special && !(INCREMENTS.contains(name) && i > 0)) {
+						//The function gets the variable itself, and may do anything with it
+						Var v = use(scope, (IVariable) child.getData(), deferred, null, false);
+						v.ok = false;
+					} else {
+						use(scope, (IVariable) child.getData(), deferred, null, false);
+					}
+				} else {
+					collect(child, scope, deferred || closure);
+				}
+				pop();
+			}
+		}
+
+		private void push(ParseTree node, boolean step) {
+			path.add(node);
+			steps.add(step);
+		}
+
+		private void pop() {
+			path.remove(path.size() - 1);
+			steps.remove(steps.size() - 1);
+		}
+
+		/**
+		 * Records a use of a variable. The current path leads to the node that
+		 * contains the variable.
+		 *
+		 * @param scope
+		 * @param var
+		 * @param deferred
+		 * @param value If this use is an assignment, the value assigned
+		 * @param assignment
+		 * @return
+		 */
+		private Var use(Scope scope, IVariable var, boolean deferred, ParseTree value, boolean assignment) {
+			Var v = scope.get(var.getName());
+			if (v.firstPath == null) {
+				vars.add(v);
+				v.firstPath = new ArrayList<ParseTree>(path);
+				v.firstSteps = new ArrayList<Boolean>(steps);
+				v.common = path.size();
+				if (!assignment) {
+					//Used before it's been given a value
+					v.ok = false;
+				}
+			} else {
+				int i = 0;
+				while (i < v.common && i < path.size() && path.get(i) == v.firstPath.get(i)) {
+					i++;
+				}
+				v.common = i;
+			}
+			if (deferred) {
+				v.ok = false;
+			}
+			if (assignment) {
+				v.values.add(value);
+			}
+			return v;
+		}
+
+		/**
+		 * Works out the types of the variables. Each variable starts out with
+		 * no type at all, and gets the type of its values, once those can be
+		 * worked out, until nothing changes anymore.
+		 */
+		private void resolve() {
+			for (Var v : vars) {
+				if (v.scope.poisoned || !dominates(v)) {
+					v.ok = false;
+				}
+				if (!v.ok) {
+					v.resolved = true;
+					v.type = null;
+				}
+			}
+			boolean changed = true;
+			while (changed) {
+				changed = false;
+				boolean skipped = false;
+				for (Var v : vars) {
+					if (!v.ok) {
+						continue;
+					}
+					for (ParseTree value : v.values) {
+						incomplete = false;
+						Type t = typeOf(value, v.scope);
+						if (incomplete) {
+							skipped = true;
+							continue;
+						}
+						if (!v.resolved) {
+							v.resolved = true;
+							v.type = t;
+							changed = true;
+						} else if (v.type != null && v.type != t) {
+							v.type = null;
+							changed = true;
+						}
+					}
+				}
+				if (!changed && skipped) {
+					//Whatever is left only depends on itself, so it can't be known
+					for (Var v : vars) {
+						if (!v.resolved) {
+							v.resolved = true;
+							v.type = null;
+							changed = true;
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * Returns true if, whenever the variable is used, its first assignment
+		 * has already run. All the uses are inside the node that firstPath and
+		 * the paths to the other uses have in common, and the other uses come
+		 * after the first one, so it's enough that the first assignment always
+		 * runs once that node runs.
+		 *
+		 * @param v
+		 * @return
+		 */
+		private boolean dominates(Var v) {
+			//The last step is from the assignment to the variable itself
+			for (int i = Math.max(v.common - 1, 0); i < v.firstSteps.size() - 1; i++) {
+				if (!v.firstSteps.get(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private Type typeOf(ParseTree tree, Scope scope) {
+			Construct data = tree.getData();
+			if (data instanceof CInt) {
+				return Type.INT;
+			} else if (data instanceof CDouble) {
+				return Type.DOUBLE;
+			} else if (data instanceof IVariable) {
+				Var v = scope.vars.get(((IVariable) data).getName());
+				if (v == null || !v.ok) {
+					return null;
+				}
+				if (!v.resolved) {
+					incomplete = true;
+					return null;
+				}
+				return v.type;
+			} else if (data instanceof CFunction && !((CFunction) data).isProcedure()) {
+				Type fixed = RETURNS.get(data.val());
+				if (fixed != null) {
+					return fixed;
+				}
+				Function f;
+				try {
+					f = ((CFunction) data).bindFunction();
+				} catch (ConfigCompileException ex) {
+					return null;
+				}
+				if (f instanceof Specializable) {
+					return ((Specializable) f).returnType(typesOf(tree, scope));
+				}
+			}
+			return null;
+		}
+
+		private Type[] typesOf(ParseTree tree, Scope scope) {
+			Type[] types = new Type[tree.numberOfChildren()];
+			for (int i = 0; i < types.length; i++) {
+				types[i] = typeOf(tree.getChildAt(i), scope);
+			}
+			return types;
+		}
+
+		/**
+		 * Puts the specialized version of each function that has one on the
+		 * node.
+		 *
+		 * @param tree
+		 * @param scope
+		 */
+		private void specialize(ParseTree tree, Scope scope) {
+			Construct data = tree.getData();
+			if (data instanceof CIdentifier) {
+				specialize(((CIdentifier) data).contained(), scope);
+				return;
+			}
+			if (data == null) {
+				for (ParseTree child : tree.getChildren()) {
+					specialize(child, scope);
+				}
+				return;
+			}
+			if (!(data instanceof CFunction)) {
+				return;
+			}
+			for (ParseTree child : tree.getChildren()) {
+				Scope inner = scopes.get(child);
+				specialize(child, inner == null ? scope : inner);
+			}
+			CFunction cf = (CFunction) data;
+			if (cf.isProcedure()) {
+				return;
+			}
+			Function f;
+			try {
+				f = cf.bindFunction();
+			} catch (ConfigCompileException ex) {
+				return;
+			}
+			if (f instanceof Specializable) {
+				Function s = ((Specializable) f).specialize(typesOf(tree, scope));
+				if (s != null) {
+					cf.setFunction(s);
+				}
+			}
+		}
+	}
+}
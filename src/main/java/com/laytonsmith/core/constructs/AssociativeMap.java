@@ -0,0 +1,375 @@
+package com.laytonsmith.core.constructs;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The backing map of an associative CArray. Lookups go through a hash map, so
+ * they are constant time, and the keys are kept in the order associative arrays
+ * have always used: keys that are made of only digits (and dots) are ordered
+ * numerically, and anything else is ordered as a string. Keys that are
+ * numerically equal, such as 1 and 1.0, are considered the same key. Each key is
+ * classified once, when it is added, rather than on every comparison.
+ *
+ * @author Layton
+ */
+class AssociativeMap extends AbstractMap<String, Construct> {
+
+	private static final int STRING = 0;
+	private static final int INTEGER = 1;
+	private static final int DOUBLE = 2;
+	/**
+	 * Maps the identity of each key (the string itself, or for numeric keys,
+	 * the number) to its node.
+	 */
+	private final Map<Object, Node> index;
+	/**
+	 * The nodes, in iteration order if {@code sorted} is true. Removed nodes are
+	 * only marked as removed, and dropped the next time the order is needed.
+	 */
+	private List<Node> order;
+	private boolean sorted = true;
+	private int removed = 0;
+	private Integer maxIntegerKey = null;
+	private boolean maxIntegerKeyValid = true;
+	private EntrySet entrySet = null;
+
+	public AssociativeMap() {
+		index = new HashMap<Object, Node>();
+		order = new ArrayList<Node>();
+	}
+
+	/**
+	 * Creates a copy of the given map. The values themselves are not copied.
+	 *
+	 * @param copy
+	 */
+	public AssociativeMap(AssociativeMap copy) {
+		index = new HashMap<Object, Node>(copy.index.size() * 4 / 3 + 1);
+		order = new ArrayList<Node>(copy.index.size());
+		for (Node n : copy.ordered()) {
+			if (n.removed) {
+				continue;
+			}
+			Node clone = new Node(n);
+			index.put(clone.id, clone);
+			order.add(clone);
+		}
+		maxIntegerKey = copy.maxIntegerKey;
+		maxIntegerKeyValid = copy.maxIntegerKeyValid;
+	}
+
+	@Override
+	public int size() {
+		return index.size();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return key instanceof String && index.containsKey(Node.identity((String) key));
+	}
+
+	@Override
+	public Construct get(Object key) {
+		if (!(key instanceof String)) {
+			return null;
+		}
+		Node n = index.get(Node.identity((String) key));
+		return n == null ? null : n.value;
+	}
+
+	@Override
+	public Construct put(String key, Construct value) {
+		Node probe = new Node(key, value);
+		Node existing = index.get(probe.id);
+		if (existing != null) {
+			Construct old = existing.value;
+			existing.value = value;
+			return old;
+		}
+		index.put(probe.id, probe);
+		if (sorted && !order.isEmpty() && compare(order.get(order.size() - 1), probe) > 0) {
+			sorted = false;
+		}
+		order.add(probe);
+		if (probe.intKey != null && maxIntegerKeyValid && (maxIntegerKey == null || probe.intKey > maxIntegerKey)) {
+			maxIntegerKey = probe.intKey;
+		}
+		return null;
+	}
+
+	@Override
+	public Construct remove(Object key) {
+		if (!(key instanceof String)) {
+			return null;
+		}
+		Node n = index.remove(Node.identity((String) key));
+		if (n == null) {
+			return null;
+		}
+		n.removed = true;
+		removed++;
+		if (n.intKey != null && n.intKey.equals(maxIntegerKey)) {
+			maxIntegerKeyValid = false;
+		}
+		if (removed > 16 && removed > index.size()) {
+			//Don't let the removed nodes pile up if the map is never iterated
+			ordered();
+		}
+		return n.value;
+	}
+
+	@Override
+	public void clear() {
+		index.clear();
+		order = new ArrayList<Node>();
+		sorted = true;
+		removed = 0;
+		maxIntegerKey = null;
+		maxIntegerKeyValid = true;
+	}
+
+	/**
+	 * Returns the highest key that parses as an int, or null if there are no
+	 * such keys.
+	 *
+	 * @return
+	 */
+	public Integer maxIntegerKey() {
+		if (!maxIntegerKeyValid) {
+			maxIntegerKey = null;
+			for (Node n : index.values()) {
+				if (n.intKey != null && (maxIntegerKey == null || n.intKey > maxIntegerKey)) {
+					maxIntegerKey = n.intKey;
+				}
+			}
+			maxIntegerKeyValid = true;
+		}
+		return maxIntegerKey;
+	}
+
+	@Override
+	public Set<Map.Entry<String, Construct>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+		}
+		return entrySet;
+	}
+
+	/**
+	 * Returns the nodes in order. Removed nodes are dropped and the nodes are
+	 * sorted if needed, in which case a new list is created, so that iterators
+	 * over the old list are not disturbed.
+	 */
+	private List<Node> ordered() {
+		if (removed > 0 || !sorted) {
+			Node[] nodes = new Node[index.size()];
+			int i = 0;
+			for (Node n : order) {
+				if (!n.removed) {
+					nodes[i++] = n;
+				}
+			}
+			if (!sorted) {
+				sort(nodes, new Node[nodes.length], 0, nodes.length);
+			}
+			List<Node> list = new ArrayList<Node>(nodes.length);
+			for (Node n : nodes) {
+				list.add(n);
+			}
+			order = list;
+			sorted = true;
+			removed = 0;
+		}
+		return order;
+	}
+
+	/**
+	 * A plain merge sort. String keys and numeric keys don't always compare
+	 * transitively, which the sort in the JDK may complain about, so we sort
+	 * them ourselves.
+	 */
+	private static void sort(Node[] nodes, Node[] temp, int from, int to) {
+		if (to - from < 2) {
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		sort(nodes, temp, from, mid);
+		sort(nodes, temp, mid, to);
+		if (compare(nodes[mid - 1], nodes[mid]) <= 0) {
+			return;
+		}
+		System.arraycopy(nodes, from, temp, from, to - from);
+		int i = from;
+		int j = mid;
+		for (int k = from; k < to; k++) {
+			if (j >= to || (i < mid && compare(temp[i], temp[j]) <= 0)) {
+				nodes[k] = temp[i++];
+			} else {
+				nodes[k] = temp[j++];
+			}
+		}
+	}
+
+	private static int compare(Node n1, Node n2) {
+		if (n1.kind == STRING || n2.kind == STRING) {
+			return n1.key.compareTo(n2.key);
+		}
+		return Double.compare(n1.number, n2.number);
+	}
+
+	private static final class Node implements Map.Entry<String, Construct> {
+
+		final String key;
+		final int kind;
+		final double number;
+		final Object id;
+		/**
+		 * The value of the key as an int, if it is one, including negative
+		 * values, which are otherwise ordered as strings.
+		 */
+		final Integer intKey;
+		Construct value;
+		boolean removed = false;
+
+		Node(String key, Construct value) {
+			this.key = key;
+			this.value = value;
+			int k = STRING;
+			double num = 0;
+			Integer i = null;
+			if (isNumeric(key)) {
+				try {
+					i = Integer.parseInt(key);
+					k = INTEGER;
+					num = i;
+				} catch (NumberFormatException e) {
+					try {
+						num = Double.parseDouble(key);
+						k = DOUBLE;
+					} catch (NumberFormatException ex) {
+						//Just a string
+					}
+				}
+			} else if (key.length() > 1 && (key.charAt(0) == '-' || key.charAt(0) == '+') && isNumeric(key.substring(1))) {
+				try {
+					i = Integer.parseInt(key);
+				} catch (NumberFormatException e) {
+					//Not an int
+				}
+			}
+			this.kind = k;
+			this.number = num;
+			this.intKey = i;
+			this.id = k == STRING ? key : (Object) num;
+		}
+
+		Node(Node copy) {
+			this.key = copy.key;
+			this.kind = copy.kind;
+			this.number = copy.number;
+			this.id = copy.id;
+			this.intKey = copy.intKey;
+			this.value = copy.value;
+		}
+
+		/**
+		 * Returns the identity of the key, that is, what it is looked up by.
+		 */
+		static Object identity(String key) {
+			if (isNumeric(key)) {
+				try {
+					return (double) Integer.parseInt(key);
+				} catch (NumberFormatException e) {
+					try {
+						return Double.parseDouble(key);
+					} catch (NumberFormatException ex) {
+						//Just a string
+					}
+				}
+			}
+			return key;
+		}
+
+		/**
+		 * Returns true if the string is made of only digits and dots.
+		 */
+		static boolean isNumeric(String key) {
+			if (key.isEmpty()) {
+				return false;
+			}
+			for (int i = 0; i < key.length(); i++) {
+				char c = key.charAt(i);
+				if ((c < '0' || c > '9') && c != '.') {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public Construct getValue() {
+			return value;
+		}
+
+		public Construct setValue(Construct value) {
+			Construct old = this.value;
+			this.value = value;
+			return old;
+		}
+	}
+
+	private final class EntrySet extends AbstractSet<Map.Entry<String, Construct>> {
+
+		@Override
+		public Iterator<Map.Entry<String, Construct>> iterator() {
+			final List<Node> nodes = ordered();
+			return new Iterator<Map.Entry<String, Construct>>() {
+				int next = 0;
+				Node last = null;
+
+				public boolean hasNext() {
+					while (next < nodes.size() && nodes.get(next).removed) {
+						next++;
+					}
+					return next < nodes.size();
+				}
+
+				public Map.Entry<String, Construct> next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					last = nodes.get(next++);
+					return last;
+				}
+
+				public void remove() {
+					if (last == null || last.removed) {
+						throw new IllegalStateException();
+					}
+					AssociativeMap.this.remove(last.key);
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return AssociativeMap.this.size();
+		}
+
+		@Override
+		public void clear() {
+			AssociativeMap.this.clear();
+		}
+	}
+}
@@ -28,7 +28,7 @@ public class CArray extends Construct implements ArrayAccess{
     private boolean associative_mode = false;
     private long next_index = 0;
     private List<Construct> array;
-    private SortedMap<String, Construct> associative_array;
+    private AssociativeMap associative_array;
     private String mutVal;
     CArray parent = null;
 	private boolean valueDirty = true;
@@ -76,7 +76,7 @@ public class CArray extends Construct implements ArrayAccess{
 	 * Returns the backing associative array.
 	 * @return 
 	 */
-	protected SortedMap<String, Construct> getAssociativeArray(){
+	protected Map<String, Construct> getAssociativeArray(){
 		return associative_array;
 	}
 	
@@ -100,7 +100,7 @@ public class CArray extends Construct implements ArrayAccess{
                 }
             }
         }
-        associative_array = new TreeMap<String, Construct>(comparator);
+        associative_array = new AssociativeMap();
         array = new ArrayList<Construct>();
         if(associative_mode){
             if(items != null){
@@ -108,16 +108,9 @@ public class CArray extends Construct implements ArrayAccess{
                     if(item instanceof CEntry){
                         associative_array.put(normalizeConstruct(((CEntry)item).ckey), ((CEntry)item).construct);
                     } else {
-                        int max = Integer.MIN_VALUE;            
-                        for (String key : associative_array.keySet()) {
-                            try{
-                                int i = Integer.parseInt(key);
-                                max = java.lang.Math.max(max, i);
-                            } catch(NumberFormatException e){}
-                        }
-                        if(max == Integer.MIN_VALUE){
-                            max = -1; //Special case, there are no integer indexes in here yet.
-                        }
+                        Integer maxKey = associative_array.maxIntegerKey();
+                        //Special case, if there are no integer indexes in here yet, we start at 0.
+                        int max = maxKey == null ? -1 : maxKey;
                         associative_array.put(Integer.toString(max + 1), item);
                         if(item instanceof CArray){
                             ((CArray)item).parent = this;
@@ -165,7 +158,7 @@ public class CArray extends Construct implements ArrayAccess{
      */
     private CArray forceAssociativeMode(){
         if(associative_array == null){
-            associative_array = new TreeMap<String, Construct>();
+            associative_array = new AssociativeMap();
         }
         associative_mode = true;
 		return this;
@@ -230,13 +223,8 @@ public class CArray extends Construct implements ArrayAccess{
 			if(index != null){
 				throw new IllegalArgumentException("Cannot insert into an associative array");
 			}
-            int max = 0;            
-            for (String key : associative_array.keySet()) {
-                try{
-                    int i = Integer.parseInt(key);
-                    max = java.lang.Math.max(max, i);
-                } catch(NumberFormatException e){}
-            }
+            Integer maxKey = associative_array.maxIntegerKey();
+            int max = maxKey == null ? 0 : java.lang.Math.max(0, maxKey);
             if(c instanceof CEntry){
                 associative_array.put(Integer.toString(max + 1), ((CEntry)c).construct());
             } else {
@@ -263,10 +251,67 @@ public class CArray extends Construct implements ArrayAccess{
             }
         } else {
             set = associative_array.keySet();
-        }        
+        }
         return set;
     }
 
+	/**
+	 * Returns an iterator over the keys of this array, in order. The keys of a normal
+	 * array are CInts, and the keys of an associative array are CStrings, and the value
+	 * at each key can be fetched with {@link #get(Construct, Target)}. The array may be
+	 * modified while it is being iterated. For a normal array, the iterator simply walks
+	 * the indexes up to the current size of the array, so elements that are pushed during
+	 * the loop are visited too. For an associative array, the keys that existed when the
+	 * iterator was created are visited, minus any that have been removed since. Keys added
+	 * during the loop are not visited.
+	 * @param t
+	 * @return
+	 */
+	public Iterator<Construct> keyIterator(final Target t){
+		if(!associative_mode){
+			return new Iterator<Construct>() {
+				int i = 0;
+
+				public boolean hasNext() {
+					return i < size();
+				}
+
+				public Construct next() {
+					if(!hasNext()){
+						throw new NoSuchElementException();
+					}
+					return new CInt(i++, t);
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+		final String[] keys = associative_array.keySet().toArray(new String[associative_array.size()]);
+		return new Iterator<Construct>() {
+			int i = 0;
+
+			public boolean hasNext() {
+				while(i < keys.length && !containsKey(keys[i])){
+					i++;
+				}
+				return i < keys.length;
+			}
+
+			public Construct next() {
+				if(!hasNext()){
+					throw new NoSuchElementException();
+				}
+				return new CString(keys[i++], t);
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
     /**
      * 
      * @param index
@@ -285,7 +330,7 @@ public class CArray extends Construct implements ArrayAccess{
                 }
             } catch (ConfigRuntimeException e) {
                 //Not a number. Convert to associative.
-                associative_array = new TreeMap<String, Construct>(comparator);
+                associative_array = new AssociativeMap();
                 for (int i = 0; i < array.size(); i++) {
                     associative_array.put(Integer.toString(i), array.get(i));
                 }
@@ -327,8 +372,9 @@ public class CArray extends Construct implements ArrayAccess{
                 throw new ConfigRuntimeException("The element at index \"" + index.val() + "\" does not exist", ExceptionType.IndexOverflowException, t);
             }
         } else {
-            if(associative_array.containsKey(normalizeConstruct(index))){
-                Construct val = associative_array.get(normalizeConstruct(index));
+            String key = normalizeConstruct(index);
+            Construct val = associative_array.get(key);
+            if(val != null || associative_array.containsKey(key)){
                 if(val instanceof CEntry){
                     return ((CEntry)val).construct();
                 }
@@ -508,7 +554,7 @@ public class CArray extends Construct implements ArrayAccess{
             }
         } else {
             if(associative_array != null){
-                clone.associative_array = new TreeMap<String, Construct>(this.associative_array);
+                clone.associative_array = new AssociativeMap(this.associative_array);
             }
         }
         clone.regenValue(new HashSet<CArray>());
@@ -580,35 +626,6 @@ public class CArray extends Construct implements ArrayAccess{
 		regenValue(new HashSet<CArray>());
 	}
     
-    private Comparator<String> comparator = new Comparator<String>(){
-
-        public int compare(String o1, String o2) {
-            //Due to a dumb behavior in Double.parseDouble, 
-            //we need to check to see if there are non-digit characters in
-            //the keys, and if so, do a string comparison.
-            if(o1.matches(".*[^0-9\\.]+.*") || o2.matches(".*[^0-9\\.]+.*")){
-                return o1.compareTo(o2);
-            }
-            try{
-                int i1 = Integer.parseInt(o1);
-                int i2 = Integer.parseInt(o2);
-                //They're both integers, do an integer comparison
-                return new Integer(i1).compareTo(new Integer(i2));
-            } catch(NumberFormatException e){
-                try{                    
-                    double d1 = Double.parseDouble(o1);
-                    double d2 = Double.parseDouble(o2);
-                    //They're both doubles, do a double comparison
-                    return new Double(d1).compareTo(new Double(d2));
-                } catch(NumberFormatException ee){
-                    //Just do a string comparison
-                    return o1.compareTo(o2);
-                }
-            }
-        }
-        
-    };
-
     @Override
     public boolean isDynamic() {
         //The CArray is static, despite what you might first think.
@@ -15,12 +15,12 @@ public class CBoolean extends Construct implements Cloneable{
     public static final long serialVersionUID = 1L;
     private final boolean val;
     public CBoolean(boolean value, Target t){
-        super(Boolean.toString(value), ConstructType.BOOLEAN, t);
+        super(ConstructType.BOOLEAN, t);
         val = value;
     }
 
     public CBoolean(String value, Target t){
-        super(value, ConstructType.BOOLEAN, t);
+        super(ConstructType.BOOLEAN, t);
         boolean tempVal;
         try{
             int i = Integer.parseInt(value);
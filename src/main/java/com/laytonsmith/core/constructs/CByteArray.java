@@ -8,7 +8,7 @@ import com.laytonsmith.core.natives.interfaces.Sizable;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.util.List;
-import java.util.SortedMap;
+import java.util.Map;
 
 /**
  *
@@ -495,7 +495,7 @@ public class CByteArray extends Construct implements Sizable {
 		}
 
 		@Override
-		protected SortedMap<String, Construct> getAssociativeArray() {
+		protected Map<String, Construct> getAssociativeArray() {
 			//This is even more serious, because it shouldn't ever happen.
 			throw new Error("This error should not happen. Please report this bug to the developers");
 		}
@@ -139,7 +139,7 @@ public class CClosure extends Construct {
             children.add(node);
             newNode.setChildren(children);
             try {
-                MethodScriptCompiler.execute(newNode, environment, null, environment.getEnv(GlobalEnv.class).GetScript());
+                MethodScriptCompiler.executeSilently(newNode, environment, environment.getEnv(GlobalEnv.class).GetScript());
             } catch (LoopManipulationException e){
 				//This shouldn't ever happen.
 				LoopManipulationException lme = ((LoopManipulationException)e);
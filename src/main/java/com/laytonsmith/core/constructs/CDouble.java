@@ -14,24 +14,34 @@ public class CDouble extends Construct implements Cloneable{
     
     public static final long serialVersionUID = 1L;
     final double val;
+	private String string;
 
     public CDouble(String value, Target t){
-        super(value, ConstructType.INT, t);
+        super(ConstructType.INT, t);
         try{
             val = Double.parseDouble(value);
         } catch(NumberFormatException e){
             throw new ConfigRuntimeException("Could not cast " + value + " to double", ExceptionType.FormatException, t);
         }
+		string = value;
     }
 
     public CDouble(double value, Target t){
-        super(Double.toString(value), ConstructType.DOUBLE, t);
+        super(ConstructType.DOUBLE, t);
         val = value;
     }
 
     public double getDouble(){
         return val;
     }
+
+	@Override
+	public String val() {
+		if(string == null){
+			string = Double.toString(val);
+		}
+		return string;
+	}
     
     @Override
     public CDouble clone() throws CloneNotSupportedException{
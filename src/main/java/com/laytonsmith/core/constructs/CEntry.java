@@ -29,6 +29,10 @@ public class CEntry extends Construct{
         return this.construct;
     }
 
+    public Construct key(){
+        return this.ckey;
+    }
+
     @Override
     public boolean isDynamic() {
         return false;
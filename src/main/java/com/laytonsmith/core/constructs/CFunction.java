@@ -15,9 +15,16 @@ public class CFunction extends Construct {
     
     public static final long serialVersionUID = 1L;
 	private transient Function function;
+	/**
+	 * Whether or not this is a call to a user defined procedure. This is determined
+	 * once, when the construct is created, so the interpreter doesn't have to
+	 * check the name each time the node is evaluated.
+	 */
+	private final boolean procedure;
 
     public CFunction(String name, Target t) {
         super(name, ConstructType.FUNCTION, t);
+		procedure = IsProcedure(name);
     }
 
     @Override
@@ -35,18 +42,50 @@ public class CFunction extends Construct {
         return true;
     }
 	
+	/**
+	 * Returns true if this construct represents a call to a procedure, instead
+	 * of a call to a function.
+	 * @return 
+	 */
+	public boolean isProcedure(){
+		return procedure;
+	}
+	
+	/**
+	 * Returns true if the given name is a procedure name, that is, it starts with
+	 * exactly one underscore. This is equivalent to {@code name.matches("^_[^_].*")},
+	 * without the cost of the regex.
+	 * @param name
+	 * @return 
+	 */
+	public static boolean IsProcedure(String name){
+		return name.length() > 1 && name.charAt(0) == '_' && name.charAt(1) != '_';
+	}
+	
 	/**
 	 * Returns the underlying function for this construct.
 	 * @return 
 	 */
 	public Function getFunction(){
+		try {
+			return bindFunction();
+		} catch (ConfigCompileException ex) {
+			//Shouldn't ever get here?
+			throw new Error(ex);
+		}
+	}
+	
+	/**
+	 * Looks up the underlying function for this construct, and stores it, so that
+	 * further calls do not need to go back to the FunctionList. The compiler
+	 * calls this for each function node, so at runtime, this is usually just a field
+	 * access.
+	 * @return
+	 * @throws ConfigCompileException If the function doesn't exist
+	 */
+	public Function bindFunction() throws ConfigCompileException {
 		if(function == null){
-			try {
-				function = (Function)FunctionList.getFunction(val());
-			} catch (ConfigCompileException ex) {
-				//Shouldn't ever get here?
-				throw new Error(ex);
-			}
+			function = (Function)FunctionList.getFunction(this);
 		}
 		return function;
 	}
@@ -14,23 +14,33 @@ public class CInt extends Construct implements Cloneable{
     
     public static final long serialVersionUID = 1L;
     final long val;
+	private String string;
     public CInt(String value, Target t){
-        super(value, ConstructType.INT, t);
+        super(ConstructType.INT, t);
         try{
             val = Long.parseLong(value);
         } catch(NumberFormatException e){
             throw new ConfigRuntimeException("Could not parse " + value + " as an integer", ExceptionType.FormatException, t);
         }
+		string = value;
     }
     
     public CInt(long value, Target t){
-        super(Long.toString(value), ConstructType.INT, t);
+        super(ConstructType.INT, t);
         val = value;
     }
 
     public long getInt(){
         return val;
     }
+
+	@Override
+	public String val() {
+		if(string == null){
+			string = Long.toString(val);
+		}
+		return string;
+	}
     
     @Override
     public CInt clone() throws CloneNotSupportedException{
@@ -4,6 +4,8 @@ import com.laytonsmith.core.Static;
 import com.laytonsmith.core.exceptions.ConfigCompileException;
 import com.laytonsmith.core.exceptions.ConfigRuntimeException;
 import com.laytonsmith.core.functions.Exceptions;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  *
@@ -100,6 +102,33 @@ public class CSlice extends CArray {
 		return size;
 	}
 
+	/**
+	 * Walks the indexes of the slice, without ever creating the values as a
+	 * real array. Slices are immutable, so there's nothing that can change during
+	 * the iteration.
+	 */
+	@Override
+	public Iterator<Construct> keyIterator(final Target t) {
+		return new Iterator<Construct>() {
+			long i = 0;
+
+			public boolean hasNext() {
+				return i < size;
+			}
+
+			public Construct next() {
+				if(!hasNext()){
+					throw new NoSuchElementException();
+				}
+				return new CInt(i++, t);
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
 	@Override
 	public boolean contains(Construct c) {
 		try{
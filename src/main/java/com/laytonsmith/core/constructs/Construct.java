@@ -77,6 +77,28 @@ public abstract class Construct implements Cloneable, Comparable<Construct>, Mix
         this.target = t;
     }
 
+	/**
+	 * For constructs that render their string form lazily. Subclasses that use
+	 * this constructor must override {@link #val()}, since the primitive value
+	 * is usually all that is needed, and building a string that is never read
+	 * is wasteful.
+	 * @param ctype
+	 * @param t 
+	 */
+	protected Construct(ConstructType ctype, Target t){
+		this.value = null;
+		this.ctype = ctype;
+		this.target = t;
+	}
+
+	/**
+	 * Returns the string value passed in at construction, or if the construct
+	 * renders it lazily, the rendered value.
+	 */
+	private String rawValue(){
+		return value != null ? value : val();
+	}
+
     /**
      * Returns the standard string representation of this Construct.
 	 * This will never return null.
@@ -108,7 +130,7 @@ public abstract class Construct implements Cloneable, Comparable<Construct>, Mix
 
     @Override
     public String toString() {
-        return value;
+        return rawValue();
     }
 
     @Override
@@ -248,16 +270,18 @@ public abstract class Construct implements Cloneable, Comparable<Construct>, Mix
     }
 
     public int compareTo(Construct c) {
-        if(this.value.contains(" ") || this.value.contains("\t") 
-                || c.value.contains(" ") || c.value.contains("\t")){
-            return this.value.compareTo(c.value);
+		String value = this.rawValue();
+		String cvalue = c.rawValue();
+        if(value.contains(" ") || value.contains("\t") 
+                || cvalue.contains(" ") || cvalue.contains("\t")){
+            return value.compareTo(cvalue);
         }
         try {
-            Double d1 = Double.valueOf(this.value);
-            Double d2 = Double.valueOf(c.value);
+            Double d1 = Double.valueOf(value);
+            Double d2 = Double.valueOf(cvalue);
             return d1.compareTo(d2);
         } catch (NumberFormatException e) {
-            return this.value.compareTo(c.value);
+            return value.compareTo(cvalue);
         }
     }
     
@@ -9,6 +9,7 @@ public class IVariable extends Construct implements Cloneable {
     public static final long serialVersionUID = 1L;
     private Construct var_value;
     final private String name;
+    private int slot = -1;
 
     public IVariable(String name, Target t) {
         super(name, ConstructType.IVARIABLE, t);
@@ -40,6 +41,20 @@ public class IVariable extends Construct implements Cloneable {
         var_value = c;
     }
 
+    /**
+     * Returns the slot the compiler assigned to this variable, that is, the
+     * position in the IVariableList that it is expected to be found at, or
+     * -1 if no slot has been assigned.
+     * @return 
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
     @Override
     public String toString() {
         return this.name + ":(" + this.ival().getClass().getSimpleName() + ") '" + this.ival().val() + "'";
@@ -1,5 +1,3 @@
-
-
 package com.laytonsmith.core.constructs;
 
 import java.util.HashMap;
@@ -7,53 +5,218 @@ import java.util.Map;
 import java.util.Set;
 
 /**
+ * A frame of ivariables. Variables are stored in an array, and the compiler
+ * assigns each IVariable node in a script a slot, which is the position the
+ * variable is expected to be found at. The slot is only a hint, every lookup
+ * is verified against the variable name, so frames that were populated in a
+ * different order (for instance by an include, or by a procedure call) still
+ * work, they just fall back to the name index.
  *
  * @author Layton
  */
 public class IVariableList {
-    Map<String, IVariable> varList = new HashMap<String, IVariable>();
-    
-    public void set(IVariable v){
-        varList.put(v.getName(), v);
-    }
-    
-    public IVariable get(String name, Target t){
-        if(!varList.containsKey(name)){
-            this.set(new IVariable(name, t));
-        }
-        varList.get(name).setTarget(t);
-        return varList.get(name);
-    }
-
-    @Override
-    public String toString() {
-        StringBuilder b = new StringBuilder();
-        b.append("[");
-        boolean first = true;
-        for(Map.Entry<String, IVariable> entry : varList.entrySet()){
-            IVariable iv = entry.getValue();
-            if(first){
-                first = false;
-            } else {
-                b.append(", ");
-            }
-            b.append(iv.getName()).append(":").append("(").append(iv.ival().getClass().getSimpleName()).append(")").append(iv.ival().val());
-        }
-        b.append("]");
-        return b.toString();
-    }
-    
-    @Override
-    public IVariableList clone(){
-        IVariableList clone = new IVariableList();
-        clone.varList = new HashMap<String, IVariable>(varList);
-        return clone;
-    }
-
-    //only the reflection package should be accessing this
-    public Set<String> keySet() {
-        return varList.keySet();
-    }
-    
-    
+
+	private static final int DEFAULT_SIZE = 8;
+	private IVariable[] vars;
+	/**
+	 * Whether or not the holder at the given position belongs only to this
+	 * list, and so may be updated in place. Holders that were passed in from
+	 * outside, or that are shared with a clone, are replaced instead.
+	 */
+	private boolean[] owned;
+	private Map<String, Integer> positions;
+	private int end = 0;
+	/**
+	 * True if the arrays and the position index are shared with a clone, in
+	 * which case they must be copied before this list is written to. While
+	 * shared, no holder is owned.
+	 */
+	private boolean shared = false;
+
+	public IVariableList() {
+		this(DEFAULT_SIZE);
+	}
+
+	/**
+	 * Creates a list with room for the given number of variables before it
+	 * needs to grow.
+	 *
+	 * @param size
+	 */
+	public IVariableList(int size) {
+		size = java.lang.Math.max(size, 1);
+		vars = new IVariable[size];
+		owned = new boolean[size];
+		positions = new HashMap<String, Integer>();
+	}
+
+	private IVariableList(IVariable[] vars, Map<String, Integer> positions, int end) {
+		this.vars = vars;
+		this.positions = positions;
+		this.end = end;
+		this.shared = true;
+	}
+
+	public void set(IVariable v) {
+		unshare();
+		int pos = claim(v.getName(), v.getSlot());
+		vars[pos] = v;
+		owned[pos] = false;
+	}
+
+	public IVariable get(String name, Target t) {
+		int pos = find(name, -1);
+		if (pos == -1) {
+			unshare();
+			pos = claim(name, -1);
+			vars[pos] = new IVariable(name, t);
+			vars[pos].setSlot(pos);
+			owned[pos] = true;
+		}
+		vars[pos].setTarget(t);
+		return vars[pos];
+	}
+
+	/**
+	 * Returns the variable referenced by this IVariable node, using the slot
+	 * assigned at compile time if possible. If the variable isn't defined yet,
+	 * it is created, with an empty string as the value.
+	 *
+	 * @param ref
+	 * @return
+	 */
+	public IVariable get(IVariable ref) {
+		int pos = find(ref.getName(), ref.getSlot());
+		if (pos == -1) {
+			unshare();
+			pos = claim(ref.getName(), ref.getSlot());
+			vars[pos] = new IVariable(ref.getName(), ref.getTarget());
+			vars[pos].setSlot(pos);
+			owned[pos] = true;
+		}
+		vars[pos].setTarget(ref.getTarget());
+		return vars[pos];
+	}
+
+	/**
+	 * Sets the value of the variable referenced by this IVariable node. If the
+	 * holder for the variable belongs to this list, it is updated in place,
+	 * otherwise a new holder is created, so that the value doesn't leak into
+	 * other lists that share the old one.
+	 *
+	 * @param ref
+	 * @param value
+	 * @param t
+	 * @return The holder of the variable
+	 */
+	public IVariable set(IVariable ref, Construct value, Target t) {
+		int pos = find(ref.getName(), ref.getSlot());
+		if (pos != -1 && !shared && owned[pos]) {
+			IVariable v = vars[pos];
+			v.setIval(value);
+			v.setTarget(t);
+			return v;
+		}
+		unshare();
+		if (pos == -1) {
+			pos = claim(ref.getName(), ref.getSlot());
+		}
+		IVariable v = new IVariable(ref.getName(), value, t);
+		v.setSlot(pos);
+		vars[pos] = v;
+		owned[pos] = true;
+		return v;
+	}
+
+	/**
+	 * Gives this list its own copy of the arrays and the position index, if
+	 * they are shared with a clone.
+	 */
+	private void unshare() {
+		if (shared) {
+			vars = vars.clone();
+			owned = new boolean[vars.length];
+			positions = new HashMap<String, Integer>(positions);
+			shared = false;
+		}
+	}
+
+	/**
+	 * Returns the position of the named variable, or -1 if it isn't defined.
+	 * The slot is checked first.
+	 */
+	private int find(String name, int slot) {
+		if (slot >= 0 && slot < end) {
+			IVariable v = vars[slot];
+			if (v != null && (v.getName() == name || v.getName().equals(name))) {
+				return slot;
+			}
+		}
+		Integer pos = positions.get(name);
+		return pos == null ? -1 : pos;
+	}
+
+	/**
+	 * Returns the position the named variable is stored at, reserving one if
+	 * it isn't defined yet. The slot is used if it is still vacant.
+	 */
+	private int claim(String name, int slot) {
+		Integer existing = positions.get(name);
+		if (existing != null) {
+			return existing;
+		}
+		int pos;
+		if (slot >= 0 && (slot >= end || vars[slot] == null)) {
+			pos = slot;
+		} else {
+			pos = end;
+		}
+		if (pos >= vars.length) {
+			int size = java.lang.Math.max(vars.length * 2, pos + 1);
+			IVariable[] newVars = new IVariable[size];
+			boolean[] newOwned = new boolean[size];
+			System.arraycopy(vars, 0, newVars, 0, end);
+			System.arraycopy(owned, 0, newOwned, 0, end);
+			vars = newVars;
+			owned = newOwned;
+		}
+		end = java.lang.Math.max(end, pos + 1);
+		positions.put(name, pos);
+		return pos;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		b.append("[");
+		boolean first = true;
+		for (int i = 0; i < end; i++) {
+			IVariable iv = vars[i];
+			if (iv == null) {
+				continue;
+			}
+			if (first) {
+				first = false;
+			} else {
+				b.append(", ");
+			}
+			b.append(iv.getName()).append(":").append("(").append(iv.ival().getClass().getSimpleName()).append(")").append(iv.ival().val());
+		}
+		b.append("]");
+		return b.toString();
+	}
+
+	@Override
+	public IVariableList clone() {
+		IVariableList clone = new IVariableList(vars, positions, end);
+		//Everything is now shared, so whichever list is written to first copies it,
+		//and neither list may update the holders in place anymore.
+		shared = true;
+		return clone;
+	}
+
+	//only the reflection package should be accessing this
+	public Set<String> keySet() {
+		return positions.keySet();
+	}
 }
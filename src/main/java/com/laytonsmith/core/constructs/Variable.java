@@ -12,6 +12,7 @@ public class Variable extends Construct {
     private boolean optional;
     private boolean final_var;
     private CString var_value;
+    private int slot = -1;
 
     public Variable(String name, String def, boolean optional, boolean final_var, Target t) {
         super(name, ConstructType.VARIABLE, t);
@@ -75,6 +76,20 @@ public class Variable extends Construct {
 		this.var_value = new CString(val, this.getTarget());
 	}
 
+    /**
+     * Returns the slot the script assigned to this variable, that is, the
+     * position in the $variable frame that its value is expected to be found
+     * at, or -1 if no slot has been assigned.
+     * @return 
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
     @Override
     public Variable clone() throws CloneNotSupportedException {
         Variable clone = (Variable) super.clone();
@@ -9,6 +9,7 @@ import com.laytonsmith.core.Script;
 import com.laytonsmith.core.Static;
 import com.laytonsmith.core.constructs.CClosure;
 import com.laytonsmith.core.constructs.IVariableList;
+import com.laytonsmith.core.constructs.Variable;
 import com.laytonsmith.core.environments.Environment.EnvironmentImpl;
 import com.laytonsmith.core.profiler.Profiler;
 import com.laytonsmith.persistance.PersistanceNetwork;
@@ -35,7 +36,18 @@ public class GlobalEnv implements Environment.EnvironmentImpl, Cloneable {
 	private File root;
 	private CClosure uncaughtExceptionHandler;
 	private Map<String, Procedure> procs = null;
+	/**
+	 * True if the procs map is shared with a clone, in which case it must be
+	 * copied before it is written to.
+	 */
+	private boolean procsShared = false;
 	private IVariableList iVariableList = null;
+	/**
+	 * The values of the $variables for the alias that is running, in the
+	 * order the script assigned to them. This is never changed once it is
+	 * set, so it can be shared with clones.
+	 */
+	private Variable[] dollarVars = null;
 	private String label = null;
 	private DaemonManager daemonManager = new DaemonManager();
 
@@ -145,10 +157,10 @@ public class GlobalEnv implements Environment.EnvironmentImpl, Cloneable {
 	@Override
 	public EnvironmentImpl clone() throws CloneNotSupportedException {
 		GlobalEnv clone = (GlobalEnv) super.clone();
+		//The procs are only copied once either environment defines a new one
 		if (procs != null) {
-			clone.procs = new HashMap<String, Procedure>(procs);
-		} else {
-			clone.procs = new HashMap<String, Procedure>();
+			procsShared = true;
+			clone.procsShared = true;
 		}
 		if (iVariableList != null) {
 			clone.iVariableList = (IVariableList) iVariableList.clone();
@@ -171,20 +183,77 @@ public class GlobalEnv implements Environment.EnvironmentImpl, Cloneable {
 	/**
 	 * Returns the Map of known procedures in this environment. If the list of
 	 * procedures is currently empty, a new one is created and stored in the
-	 * environment.
+	 * environment. Since the returned map may be modified, this forces a copy
+	 * if the map is shared with another environment, so if the procedures only
+	 * need to be read, use {@link #GetProc(java.lang.String)} or
+	 * {@link #HasProc(java.lang.String)} instead.
 	 *
-	 * @param env
 	 * @return
 	 */
 	public Map<String, Procedure> GetProcs() {
 		if (procs == null) {
 			procs = new HashMap<String, Procedure>();
+		} else if (procsShared) {
+			procs = new HashMap<String, Procedure>(procs);
+			procsShared = false;
 		}
 		return procs;
 	}
 
+	/**
+	 * Returns the procedure with the given name, or null if it isn't defined.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public Procedure GetProc(String name) {
+		if (procs == null) {
+			return null;
+		}
+		return procs.get(name);
+	}
+
+	/**
+	 * Returns true if a procedure with the given name is defined.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public boolean HasProc(String name) {
+		return procs != null && procs.containsKey(name);
+	}
+
+	/**
+	 * Defines a procedure in this environment, replacing any procedure with the
+	 * same name.
+	 *
+	 * @param proc
+	 */
+	public void AddProc(Procedure proc) {
+		GetProcs().put(proc.getName(), proc);
+	}
+
+	/**
+	 * Gives this environment the given procedures, without copying them. The
+	 * map is treated as shared, so it is never changed, and this environment
+	 * copies it before it defines a procedure of its own. If this environment
+	 * already has procedures, the given ones are added to them instead,
+	 * replacing any with the same name.
+	 *
+	 * @param shared
+	 */
+	public void ShareProcs(Map<String, Procedure> shared) {
+		if (procs == null || procs.isEmpty()) {
+			procs = shared;
+			procsShared = true;
+		} else {
+			GetProcs().putAll(shared);
+		}
+	}
+
 	public void SetProcs(Map<String, Procedure> procs) {
 		this.procs = procs;
+		this.procsShared = false;
 	}
 
 	/**
@@ -206,6 +275,52 @@ public class GlobalEnv implements Environment.EnvironmentImpl, Cloneable {
 		iVariableList = varList;
 	}
 
+	/**
+	 * Sets the values of the $variables for this run of an alias. The values
+	 * are kept in the environment, rather than in the script, so the same
+	 * alias can run more than once at a time.
+	 *
+	 * @param dollarVars The values, in the order of the slots that were
+	 * assigned to the variables, or null if there are none.
+	 */
+	public void SetDollarVars(Variable[] dollarVars) {
+		this.dollarVars = dollarVars;
+	}
+
+	/**
+	 * Returns the values of the $variables for this run, or null if there
+	 * are none.
+	 *
+	 * @return
+	 */
+	public Variable[] GetDollarVars() {
+		return dollarVars;
+	}
+
+	/**
+	 * Returns the value of the given $variable for this run, or null if it
+	 * wasn't set. The slot of the variable is checked first, and if it
+	 * doesn't hold this variable, the variable is looked up by name.
+	 *
+	 * @param var
+	 * @return
+	 */
+	public String GetDollarVar(Variable var) {
+		if (dollarVars == null) {
+			return null;
+		}
+		int slot = var.getSlot();
+		if (slot >= 0 && slot < dollarVars.length && dollarVars[slot].getName().equals(var.getName())) {
+			return dollarVars[slot].val();
+		}
+		for (Variable v : dollarVars) {
+			if (v.getName().equals(var.getName())) {
+				return v.val();
+			}
+		}
+		return null;
+	}
+
 	public String GetLabel() {
 		return label;
 	}
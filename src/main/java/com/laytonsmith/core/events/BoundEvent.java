@@ -36,6 +36,7 @@ public class BoundEvent implements Comparable<BoundEvent> {
     private final String eventObjName;
     private Environment originalEnv;
     private final ParseTree tree; //The code closure for this event
+    private final ParseTree superRoot; //The root the closure is run from, which caches what's known about it
     private final Driver driver; //For efficiency sake, cache it here
     private static int EventID = 0;
     private final Target target;
@@ -147,7 +148,8 @@ public class BoundEvent implements Comparable<BoundEvent> {
             this.priority = Priority.NORMAL;
         }
 
-        this.prefilter = new HashMap<String, Construct>();
+        //The prefilters are parsed once here, rather than every time the event is triggered
+        this.prefilter = new Prefilters.CompiledMap();
         if (prefilter != null) {
             for (String key : prefilter.keySet()) {
                 this.prefilter.put(key, prefilter.get(key, Target.UNKNOWN));
@@ -156,6 +158,8 @@ public class BoundEvent implements Comparable<BoundEvent> {
 
         this.originalEnv = env;
         this.tree = tree;
+        this.superRoot = new ParseTree(null);
+        this.superRoot.addChild(tree);
         
         if(EventList.getEvent(this.eventName) == null){
             throw new EventException("No event named \"" + this.eventName + "\" is registered!");
@@ -295,8 +299,6 @@ public class BoundEvent implements Comparable<BoundEvent> {
     }
     
     private void execute(Environment env, ActiveEvent activeEvent) throws EventException{
-        ParseTree superRoot = new ParseTree(null);
-        superRoot.addChild(tree);
         Script s = Script.GenerateScript(superRoot, PermissionsResolver.GLOBAL_PERMISSION);        
         Event myDriver = this.getEventDriver();
         myDriver.execute(s, this, env, activeEvent);
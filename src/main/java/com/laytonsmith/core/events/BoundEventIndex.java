@@ -0,0 +1,221 @@
+package com.laytonsmith.core.events;
+
+import com.laytonsmith.core.Static;
+import com.laytonsmith.core.constructs.Construct;
+import com.laytonsmith.core.constructs.Target;
+import com.laytonsmith.core.events.Prefilters.PrefilterType;
+import com.laytonsmith.core.exceptions.ConfigRuntimeException;
+import com.laytonsmith.core.exceptions.PrefilterNonMatchException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+/**
+ * The events bound to a single event name, indexed on their prefilters. The
+ * first time the event is triggered, the driver is asked which values it
+ * matches on (see {@link PrefilterProbe}), and each bound event whose prefilter
+ * has an exact value for one of those keys is put in a bucket for that value.
+ * After that, when the event is triggered, only the bound events in the
+ * buckets for the event's actual values, and the ones that couldn't be put in
+ * a bucket, need to be run through the driver's matches function.
+ * <p>
+ * An index is never changed once it's built, (other than building the buckets
+ * the first time they are needed) so when events are bound or unbound, a new
+ * index is made.
+ *
+ * @author Layton
+ */
+class BoundEventIndex {
+
+	private final SortedSet<BoundEvent> events;
+	private volatile Buckets buckets = null;
+
+	BoundEventIndex(SortedSet<BoundEvent> events) {
+		this.events = events;
+	}
+
+	SortedSet<BoundEvent> getEvents() {
+		return events;
+	}
+
+	/**
+	 * Returns the bound events that might match this event, in no particular
+	 * order. The events that aren't returned are known not to match.
+	 *
+	 * @param driver
+	 * @param e
+	 * @return
+	 */
+	Collection<BoundEvent> getCandidates(Event driver, BindableEvent e) {
+		Buckets b = buckets;
+		if (b != null && b.keys.isEmpty()) {
+			//There's nothing to narrow it down with
+			return events;
+		}
+		PrefilterProbe probe = probe(driver, e);
+		if (probe == null) {
+			return events;
+		}
+		if (b == null) {
+			b = new Buckets(events, probe.getTypes());
+			buckets = b;
+		}
+		return b.getCandidates(probe);
+	}
+
+	/**
+	 * Finds out what the event would be matched on, or returns null if that
+	 * can't be worked out, in which case every bound event has to be checked.
+	 */
+	private static PrefilterProbe probe(Event driver, BindableEvent e) {
+		PrefilterProbe probe = new PrefilterProbe();
+		try {
+			if (!driver.matches(probe, e)) {
+				return null;
+			}
+		} catch (PrefilterNonMatchException ex) {
+			return null;
+		} catch (RuntimeException ex) {
+			return null;
+		}
+		return probe;
+	}
+
+	/**
+	 * Returns a value such that the prefilter value and the actual value of the
+	 * event match exactly when their keys are equal, or null if that isn't
+	 * possible.
+	 *
+	 * @param type How the key is matched
+	 * @param value The value
+	 * @param prefilter True if this is the value given in the prefilter, false
+	 * if it's the actual value of the event
+	 * @return
+	 */
+	static Object key(PrefilterType type, Construct value, boolean prefilter) {
+		if (value == null || value.val() == null) {
+			return null;
+		}
+		switch (type) {
+			case STRING_MATCH:
+				return value.val();
+			case MACRO:
+				if (prefilter && (value.val().matches("\\(.*\\)") || value.val().matches("/.*/"))) {
+					//This is an expression or regex, so it can't be looked up
+					return null;
+				}
+				return value.val();
+			case MATH_MATCH:
+				try {
+					//Adding 0.0 turns -0.0 into 0.0, since they're equal
+					return Static.getNumber(value, Target.UNKNOWN) + 0.0;
+				} catch (ConfigRuntimeException ex) {
+					return null;
+				}
+			case ITEM_MATCH:
+				String item = value.val();
+				if (item.contains(":")) {
+					String[] split = item.split(":");
+					if (split.length == 0) {
+						return null;
+					}
+					item = split[0];
+				}
+				//This compares the same way as String.equalsIgnoreCase
+				char[] chars = item.trim().toCharArray();
+				for (int i = 0; i < chars.length; i++) {
+					chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+				}
+				return new String(chars);
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Returns true if the prefilter type may be an exact match, so that bound
+	 * events can be looked up by their value.
+	 */
+	private static boolean isIndexable(PrefilterType type) {
+		switch (type) {
+			case STRING_MATCH:
+			case MACRO:
+			case MATH_MATCH:
+			case ITEM_MATCH:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private static class Buckets {
+
+		/**
+		 * The keys the bound events are bucketed on, and how they're matched.
+		 */
+		private final Map<String, PrefilterType> keys = new LinkedHashMap<String, PrefilterType>();
+		private final Map<String, Map<Object, List<BoundEvent>>> buckets = new HashMap<String, Map<Object, List<BoundEvent>>>();
+		private final List<BoundEvent> unindexed = new ArrayList<BoundEvent>();
+
+		private Buckets(SortedSet<BoundEvent> events, Map<String, PrefilterType> types) {
+			for (Map.Entry<String, PrefilterType> type : types.entrySet()) {
+				if (isIndexable(type.getValue())) {
+					keys.put(type.getKey(), type.getValue());
+					buckets.put(type.getKey(), new HashMap<Object, List<BoundEvent>>());
+				}
+			}
+			for (BoundEvent b : events) {
+				if (!add(b)) {
+					unindexed.add(b);
+				}
+			}
+		}
+
+		private boolean add(BoundEvent b) {
+			for (Map.Entry<String, PrefilterType> type : keys.entrySet()) {
+				Construct value = b.getPrefilter().get(type.getKey());
+				if (value == null) {
+					continue;
+				}
+				Object key = key(type.getValue(), value, true);
+				if (key == null) {
+					continue;
+				}
+				Map<Object, List<BoundEvent>> bucket = buckets.get(type.getKey());
+				List<BoundEvent> list = bucket.get(key);
+				if (list == null) {
+					list = new ArrayList<BoundEvent>();
+					bucket.put(key, list);
+				}
+				list.add(b);
+				return true;
+			}
+			return false;
+		}
+
+		private Collection<BoundEvent> getCandidates(PrefilterProbe probe) {
+			List<BoundEvent> candidates = new ArrayList<BoundEvent>(unindexed);
+			for (Map.Entry<String, PrefilterType> type : keys.entrySet()) {
+				Map<Object, List<BoundEvent>> bucket = buckets.get(type.getKey());
+				Object key = null;
+				if (probe.getTypes().get(type.getKey()) == type.getValue()) {
+					key = key(type.getValue(), probe.getValue(type.getKey()), false);
+				}
+				if (key == null) {
+					//This time, the event wasn't matched on this key in the
+					//same way, so any of these might match.
+					for (List<BoundEvent> list : bucket.values()) {
+						candidates.addAll(list);
+					}
+				} else if (bucket.containsKey(key)) {
+					candidates.addAll(bucket.get(key));
+				}
+			}
+			return candidates;
+		}
+	}
+}
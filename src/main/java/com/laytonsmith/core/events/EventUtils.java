@@ -1,6 +1,6 @@
 package com.laytonsmith.core.events;
 
-import com.laytonsmith.PureUtilities.ClassDiscovery;
+import com.laytonsmith.abstraction.StaticLayer;
 import com.laytonsmith.annotations.event;
 import com.laytonsmith.core.constructs.CArray;
 import com.laytonsmith.core.constructs.CString;
@@ -12,12 +12,8 @@ import com.laytonsmith.core.exceptions.EventException;
 import com.laytonsmith.core.exceptions.FunctionReturnException;
 import com.laytonsmith.core.exceptions.PrefilterNonMatchException;
 import com.laytonsmith.core.functions.Exceptions;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
+import java.io.File;
 import java.util.*;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 /**
  *
@@ -29,6 +25,82 @@ public final class EventUtils {
 
     private static final Map<Driver, SortedSet<BoundEvent>> event_handles =
             new EnumMap<Driver, SortedSet<BoundEvent>>(Driver.class);
+    /**
+     * The same bound events as event_handles, but grouped by event name, and
+     * indexed on their prefilters. This is rebuilt for a name whenever an event
+     * with that name is bound or unbound.
+     */
+    private static final Map<String, BoundEventIndex> event_names =
+            new HashMap<String, BoundEventIndex>();
+
+    /**
+     * The drivers that something is listening to. This is replaced, rather than
+     * changed, so that it can be read from any thread.
+     */
+    private static volatile EnumSet<Driver> listening = EnumSet.noneOf(Driver.class);
+
+    /**
+     * Returns true if anything is listening for events of this type, that is, if
+     * an event is bound to this driver, or if any extension has an {@link event}
+     * handler. An extension handler keeps every driver listening, whatever type of
+     * event it takes (see {@link com.laytonsmith.abstraction.Convertor#SetListening}).
+     * If nothing is listening, the event doesn't need to be triggered at all.
+     * @param type
+     * @return 
+     */
+    public static boolean IsListening(Driver type) {
+        return listening.contains(type);
+    }
+
+    /**
+     * Works out again whether each of the given drivers is being listened to, and
+     * lets the server know about the ones that have changed.
+     * @param types 
+     */
+    private static void UpdateListening(Collection<Driver> types) {
+        boolean external = !GetExternalHandlers().isEmpty();
+        EnumSet<Driver> now = EnumSet.copyOf(listening);
+        List<Driver> changed = new ArrayList<Driver>();
+        for (Driver type : types) {
+            SortedSet<BoundEvent> set = event_handles.get(type);
+            boolean l = external || (set != null && !set.isEmpty());
+            if (l != now.contains(type)) {
+                if (l) {
+                    now.add(type);
+                } else {
+                    now.remove(type);
+                }
+                changed.add(type);
+            }
+        }
+        listening = now;
+        for (Driver type : changed) {
+            StaticLayer.SetListening(type, now.contains(type));
+        }
+    }
+
+    /**
+     * Rebuilds the index for each of the given event names.
+     * @param names 
+     */
+    private static void Reindex(Set<String> names) {
+        for (String name : names) {
+            SortedSet<BoundEvent> events = new TreeSet<BoundEvent>();
+            Event event = EventList.getEvent(name);
+            if (event != null && event_handles.containsKey(event.driver())) {
+                for (BoundEvent b : event_handles.get(event.driver())) {
+                    if (b.getEventName().equals(name)) {
+                        events.add(b);
+                    }
+                }
+            }
+            if (events.isEmpty()) {
+                event_names.remove(name);
+            } else {
+                event_names.put(name, new BoundEventIndex(events));
+            }
+        }
+    }
 
     /**
      * Registers a BoundEvent.
@@ -56,6 +128,8 @@ public final class EventUtils {
 		}
         SortedSet<BoundEvent> set = event_handles.get(event.driver());
         set.add(b);
+        Reindex(Collections.singleton(b.getEventName()));
+        UpdateListening(Collections.singleton(event.driver()));
         try {
             event.bind(b.getPrefilter());
         } catch (UnsupportedOperationException e) {
@@ -75,6 +149,8 @@ public final class EventUtils {
                 BoundEvent b = i.next();
                 if (b.getId().equals(id)) {
                     i.remove();
+                    Reindex(Collections.singleton(b.getEventName()));
+                    UpdateListening(Collections.singleton(type));
                     return;
                 }
             }
@@ -92,17 +168,44 @@ public final class EventUtils {
                 BoundEvent b = i.next();
                 if (b.getEventObjName().equals(name)) {
                     i.remove();
+                    Reindex(Collections.singleton(b.getEventName()));
+                    UpdateListening(Collections.singleton(type));
                     return;
                 }
             }
         }
     }
 
+    /**
+     * Unregisters all the event handlers that were bound in the given file. This is used
+     * when only that one file is being reloaded. Runs in O(n)
+     * @param file 
+     */
+    public static void UnregisterEvents(File file) {
+        Set<String> names = new HashSet<String>();
+        for (Driver type : event_handles.keySet()) {
+            Iterator<BoundEvent> i = event_handles.get(type).iterator();
+            while (i.hasNext()) {
+                BoundEvent b = i.next();
+                if (file.equals(b.getFile())) {
+                    i.remove();
+                    names.add(b.getEventName());
+                }
+            }
+        }
+        Reindex(names);
+        UpdateListening(event_handles.keySet());
+    }
+
     /**
      * This should be used in the case the plugin is disabled, or /reloadalises is run.
+     * Since extensions may have been loaded since last time, every driver is checked
+     * to see if it's being listened to.
      */
     public static void UnregisterAll() {
         event_handles.clear();
+        event_names.clear();
+        UpdateListening(EnumSet.allOf(Driver.class));
     }
 
     /**
@@ -155,7 +258,9 @@ public final class EventUtils {
     }
 	
 	/**
-	 * Returns a set of events that should be triggered by this event.
+	 * Returns a set of events that should be triggered by this event. Only the
+	 * events bound to this event name are looked at, and of those, only the ones
+	 * whose prefilters might match, according to the index of their prefilters.
 	 * @param type
 	 * @param eventName
 	 * @param e
@@ -163,28 +268,26 @@ public final class EventUtils {
 	 */
 	public static SortedSet<BoundEvent> GetMatchingEvents(Driver type, String eventName, BindableEvent e, Event driver){
 		SortedSet<BoundEvent> toRun = new TreeSet<BoundEvent>();
-        //This is the set of bounded events of this driver type. 
-        //We must now look through the bound events to see if they are
-        //the eventName, and if so, we will also run the prefilter.
-        SortedSet<BoundEvent> bounded = GetEvents(type);
-        if (bounded != null) {
-            for (BoundEvent b : bounded) {
-                try {
-                    if (b.getEventName().equals(eventName) && driver.matches(b.getPrefilter(), e)) {
-                        toRun.add(b);
-                    }
-                } catch (PrefilterNonMatchException ex) {
-                    //Not running this one
-                }
-            }
-        }
+		BoundEventIndex index = event_names.get(eventName);
+		if (index == null) {
+			return toRun;
+		}
+		for (BoundEvent b : index.getCandidates(driver, e)) {
+			try {
+				if (driver.matches(b.getPrefilter(), e)) {
+					toRun.add(b);
+				}
+			} catch (PrefilterNonMatchException ex) {
+				//Not running this one
+			}
+		}
 		return toRun;
 	}
 
     /**
      * Triggers an event by name. The event name is the primary filter for this event, but
-     * to increase event lookup efficiency, the driver is required. This will run in O(n),
-     * where n is the number of bound events driven by type <code>type</code>.
+     * to increase event lookup efficiency, the driver is required. Only the bound events
+     * that might match this event are checked, see {@link #GetMatchingEvents}.
      * @param type
      * @param e 
      */
@@ -236,48 +339,37 @@ public final class EventUtils {
         return ca;
     }
 	
-	public static void TriggerExternal(BindableEvent mce) {
-		for(Method m : ClassDiscovery.GetMethodsWithAnnotation(event.class)){
-			Class<?>[] params = m.getParameterTypes();
-			if(params.length != 1 || !BindableEvent.class.isAssignableFrom(params[0])){
-				Logger.getLogger(EventUtils.class.getName()).log(Level.SEVERE, "An event handler annotated with @"
-						+ event.class.getSimpleName() + " may only contain one parameter, which extends "
-						+ BindableEvent.class.getName());
-			} else {
-				try {
-					Object instance = null;
-					if((m.getModifiers() & Modifier.STATIC) == 0){
-						//It's not static, so we need an instance. Ideally we could skip
-						//this step, but it's harder to enforce that across jars.
-						//We could emit a warning, but the end user wouldn't know what
-						//to do with that. However, if this step fails (no no-arg constructors
-						//exist) we will be forced to fail.
-						try{
-							instance = m.getDeclaringClass().newInstance();
-						} catch(Exception e){
-							throw new RuntimeException("Could not instantiate the superclass " + m.getDeclaringClass().getName()
-									+ ". There is no no-arg constructor present. Ideally however, the method " + m.getName()
-									+ " would simply be static, which would decrease overhead in general. "
-									+ " Note to the end user: This error is not a CommandHelper error,"
-									+ " it is an error in the extension that provides the event handler for"
-									+ " " + mce.getClass().getName() + ", and should be reported to the extension"
-									+ " author.", e);
-						}
-					}
-					m.invoke(instance, mce);
-				} catch (IllegalAccessException ex) {
-					Logger.getLogger(EventUtils.class.getName()).log(Level.SEVERE, null, ex);
-				} catch (IllegalArgumentException ex) {
-					// If we do this, console gets spammed for hooks that don't apply for
-					// the event being fired. Need to check if mce is instance of params[0].
-					
-					//Logger.getLogger(EventUtils.class.getName()).log(Level.SEVERE, null, ex);
-				} catch (InvocationTargetException ex) {
-					Logger.getLogger(EventUtils.class.getName()).log(Level.SEVERE, null, ex);
-				}
-			}
-			
+	/**
+	 * The handlers that extensions have provided for events, or null if they
+	 * haven't been looked up yet.
+	 */
+	private static volatile ExternalHandlers external_handlers = null;
+
+	private static ExternalHandlers GetExternalHandlers() {
+		ExternalHandlers h = external_handlers;
+		if (h == null) {
+			h = new ExternalHandlers();
+			external_handlers = h;
 		}
+		return h;
+	}
+
+	/**
+	 * Forgets the extensions' event handlers, so that they are looked up again
+	 * the next time an event is triggered. This should be called whenever
+	 * extensions are loaded.
+	 */
+	public static void RefreshExternalHandlers() {
+		external_handlers = null;
+	}
+
+	/**
+	 * Triggers each of the extensions' {@link event} handlers that accepts this
+	 * type of event.
+	 * @param mce 
+	 */
+	public static void TriggerExternal(BindableEvent mce) {
+		GetExternalHandlers().trigger(mce);
 	}
 	
 }
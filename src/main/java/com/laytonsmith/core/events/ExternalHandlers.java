@@ -0,0 +1,139 @@
+package com.laytonsmith.core.events;
+
+import com.laytonsmith.PureUtilities.ClassDiscovery;
+import com.laytonsmith.annotations.event;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The {@link event} handlers provided by extensions, looked up once, and then
+ * grouped by the type of event they accept. Each event type's handlers are
+ * worked out the first time an event of that type is triggered, so after that,
+ * triggering an event is a single lookup.
+ * <p>
+ * Handlers that aren't static are all called on one instance of their class,
+ * made when the handlers are looked up.
+ *
+ * @author Layton
+ */
+class ExternalHandlers {
+
+	private final List<Handler> handlers = new ArrayList<Handler>();
+	private final Map<Class<?>, Handler[]> dispatch = new ConcurrentHashMap<Class<?>, Handler[]>();
+
+	/**
+	 * Uses every method that is annotated with {@link event}.
+	 */
+	ExternalHandlers() {
+		this(Arrays.asList(ClassDiscovery.GetMethodsWithAnnotation(event.class)));
+	}
+
+	/**
+	 * Uses the given methods, whether or not they are annotated.
+	 *
+	 * @param methods
+	 */
+	ExternalHandlers(List<Method> methods) {
+		Map<Class<?>, Object> instances = new HashMap<Class<?>, Object>();
+		for (Method m : methods) {
+			Class<?>[] params = m.getParameterTypes();
+			if (params.length != 1 || !BindableEvent.class.isAssignableFrom(params[0])) {
+				Logger.getLogger(ExternalHandlers.class.getName()).log(Level.SEVERE, "An event handler annotated with @"
+						+ event.class.getSimpleName() + " may only contain one parameter, which extends "
+						+ BindableEvent.class.getName());
+				continue;
+			}
+			Object instance = null;
+			if ((m.getModifiers() & Modifier.STATIC) == 0) {
+				//It's not static, so we need an instance. Ideally we could skip
+				//this step, but it's harder to enforce that across jars.
+				//If this step fails (no no-arg constructors exist) we will
+				//be forced to skip the handler.
+				Class<?> c = m.getDeclaringClass();
+				if (!instances.containsKey(c)) {
+					try {
+						instances.put(c, c.newInstance());
+					} catch (Exception e) {
+						Logger.getLogger(ExternalHandlers.class.getName()).log(Level.SEVERE, "Could not instantiate the superclass "
+								+ c.getName() + ". There is no no-arg constructor present. Ideally however, the method " + m.getName()
+								+ " would simply be static, which would decrease overhead in general. "
+								+ " Note to the end user: This error is not a CommandHelper error,"
+								+ " it is an error in the extension that provides the event handler for"
+								+ " " + params[0].getName() + ", and should be reported to the extension"
+								+ " author.", e);
+						instances.put(c, null);
+					}
+				}
+				instance = instances.get(c);
+				if (instance == null) {
+					continue;
+				}
+			}
+			try {
+				m.setAccessible(true);
+			} catch (SecurityException e) {
+				//We'll find out when we try to call it
+			}
+			handlers.add(new Handler(m, instance, params[0]));
+		}
+	}
+
+	/**
+	 * Returns true if there are no handlers at all.
+	 *
+	 * @return
+	 */
+	boolean isEmpty() {
+		return handlers.isEmpty();
+	}
+
+	/**
+	 * Calls each of the handlers that accepts this type of event.
+	 *
+	 * @param e
+	 */
+	void trigger(BindableEvent e) {
+		Handler[] toRun = dispatch.get(e.getClass());
+		if (toRun == null) {
+			List<Handler> list = new ArrayList<Handler>();
+			for (Handler h : handlers) {
+				if (h.type.isAssignableFrom(e.getClass())) {
+					list.add(h);
+				}
+			}
+			toRun = list.toArray(new Handler[list.size()]);
+			dispatch.put(e.getClass(), toRun);
+		}
+		for (Handler h : toRun) {
+			try {
+				h.method.invoke(h.instance, e);
+			} catch (IllegalAccessException ex) {
+				Logger.getLogger(EventUtils.class.getName()).log(Level.SEVERE, null, ex);
+			} catch (InvocationTargetException ex) {
+				Logger.getLogger(EventUtils.class.getName()).log(Level.SEVERE, null, ex);
+			}
+		}
+	}
+
+	private static class Handler {
+
+		private final Method method;
+		private final Object instance;
+		private final Class<?> type;
+
+		private Handler(Method method, Object instance, Class<?> type) {
+			this.method = method;
+			this.instance = instance;
+			this.type = type;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package com.laytonsmith.core.events;
+
+import com.laytonsmith.core.constructs.Construct;
+import com.laytonsmith.core.events.Prefilters.PrefilterType;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An empty prefilter, which can be passed to {@link Event#matches} to find out
+ * which values an event would be matched on, without actually matching it
+ * against anything. Each call to {@link Prefilters#match} with this map is
+ * recorded instead of being checked.
+ *
+ * @author Layton
+ */
+class PrefilterProbe extends AbstractMap<String, Construct> {
+
+	private final Map<String, Construct> values = new HashMap<String, Construct>();
+	private final Map<String, PrefilterType> types = new HashMap<String, PrefilterType>();
+
+	void record(String key, Construct actualValue, PrefilterType type) {
+		if (!types.containsKey(key)) {
+			values.put(key, actualValue);
+			types.put(key, type);
+		}
+	}
+
+	/**
+	 * Returns the keys that the event matched on, and how they were matched.
+	 *
+	 * @return
+	 */
+	Map<String, PrefilterType> getTypes() {
+		return types;
+	}
+
+	/**
+	 * Returns the actual value of the event that the given key was matched
+	 * against, or null if it wasn't.
+	 *
+	 * @param key
+	 * @return
+	 */
+	Construct getValue(String key) {
+		return values.get(key);
+	}
+
+	@Override
+	public Set<Map.Entry<String, Construct>> entrySet() {
+		return Collections.emptySet();
+	}
+}
@@ -9,7 +9,10 @@ import com.laytonsmith.core.exceptions.PrefilterNonMatchException;
 import com.laytonsmith.core.functions.Exceptions.ExceptionType;
 import com.sk89q.worldedit.expression.Expression;
 import com.sk89q.worldedit.expression.ExpressionException;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  *
@@ -76,6 +79,18 @@ public final class Prefilters {
      */
     public static void match(Map<String, Construct> map, String key,
             Construct actualValue, PrefilterType type) throws PrefilterNonMatchException{
+        if(map instanceof PrefilterProbe){
+            //Nothing is being matched, the event is just being asked for its values
+            ((PrefilterProbe)map).record(key, actualValue, type);
+            return;
+        }
+        if(map instanceof CompiledMap){
+            Compiled compiled = ((CompiledMap)map).compiled.get(key);
+            if(compiled != null){
+                compiled.match(actualValue, type);
+            }
+            return;
+        }
         if(map.containsKey(key)){
             switch(type){
                 case ITEM_MATCH:
@@ -188,4 +203,185 @@ public final class Prefilters {
     private static Construct MathReplace(String key, Construct expression, Construct value){
         return new CString(expression.val().replaceAll(key, value.val()), expression.getTarget());
     }
+
+    /**
+     * A prefilter map whose values are parsed once, as they're put in the map,
+     * rather than each time they're matched. {@link #match} uses the parsed
+     * values when it's given one of these. Bound events keep their prefilters
+     * in one of these.
+     */
+    static final class CompiledMap extends HashMap<String, Construct>{
+        private final Map<String, Compiled> compiled = new HashMap<String, Compiled>();
+
+        @Override
+        public Construct put(String key, Construct value){
+            compiled.put(key, new Compiled(key, value));
+            return super.put(key, value);
+        }
+
+        @Override
+        public void putAll(Map<? extends String, ? extends Construct> m){
+            for(Map.Entry<? extends String, ? extends Construct> e : m.entrySet()){
+                put(e.getKey(), e.getValue());
+            }
+        }
+
+        @Override
+        public Construct remove(Object key){
+            compiled.remove(key);
+            return super.remove(key);
+        }
+
+        @Override
+        public void clear(){
+            compiled.clear();
+            super.clear();
+        }
+    }
+
+    /**
+     * A single prefilter value, parsed into every form it might be matched
+     * as, since the type of match isn't known until the event is triggered.
+     * If part of the value can't be parsed, that type of match falls back to
+     * the normal matching, so that it fails the same way.
+     */
+    private static final class Compiled{
+        private final String key;
+        private final Construct value;
+        private final String item;
+        private final Double number;
+        private final boolean isRegex;
+        private final Pattern regex;
+        private final boolean isExpression;
+        private final boolean inequality;
+        private final Expression expression;
+
+        private Compiled(String key, Construct value){
+            this.key = key;
+            this.value = value;
+            String val = value.val();
+            String i = val;
+            if(i.contains(":")){
+                String[] split = i.split(":");
+                i = split.length == 0 ? null : split[0];
+            }
+            item = i == null ? null : i.trim();
+            Double n;
+            try{
+                n = Static.getNumber(value, Target.UNKNOWN);
+            } catch(ConfigRuntimeException e){
+                n = null;
+            }
+            number = n;
+            isRegex = val.matches("/.*/");
+            Pattern p = null;
+            if(isRegex){
+                try{
+                    p = Pattern.compile(val.substring(1, val.length() - 1));
+                } catch(PatternSyntaxException e){
+                    //Fall back, and throw it when it's matched
+                }
+            }
+            regex = p;
+            isExpression = val.matches("\\(.*\\)");
+            Expression ex = null;
+            String exp = isExpression ? val.substring(1, val.length() - 1) : "";
+            inequality = exp.contains("<") || exp.contains(">") || exp.contains("==");
+            if(isExpression && key.matches("[a-zA-Z_][a-zA-Z0-9_]*")){
+                //Rather than replacing the key with the actual value each time,
+                //the key is a variable in the expression
+                try{
+                    ex = Expression.compile(exp, key);
+                } catch(ExpressionException e){
+                    //Fall back, and throw it when it's matched
+                }
+            }
+            expression = ex;
+        }
+
+        private void match(Construct actualValue, PrefilterType type) throws PrefilterNonMatchException{
+            switch(type){
+                case ITEM_MATCH:
+                    if(item == null){
+                        ItemMatch(value, actualValue);
+                    } else {
+                        String i2 = actualValue.val();
+                        if(i2.contains(":")){
+                            i2 = i2.split(":")[0];
+                        }
+                        if(!item.equalsIgnoreCase(i2.trim())){
+                            throw new PrefilterNonMatchException();
+                        }
+                    }
+                    break;
+                case STRING_MATCH:
+                    StringMatch(value.val(), actualValue.val());
+                    break;
+                case MATH_MATCH:
+                    if(number == null){
+                        throw new PrefilterNonMatchException();
+                    }
+                    try{
+                        if(number.doubleValue() != Static.getNumber(actualValue, Target.UNKNOWN)){
+                            throw new PrefilterNonMatchException();
+                        }
+                    } catch(ConfigRuntimeException e){
+                        throw new PrefilterNonMatchException();
+                    }
+                    break;
+                case EXPRESSION:
+                    expressionMatch(actualValue);
+                    break;
+                case REGEX:
+                    regexMatch(actualValue);
+                    break;
+                case MACRO:
+                    if(isExpression){
+                        expressionMatch(actualValue);
+                    } else if(isRegex){
+                        regexMatch(actualValue);
+                    } else {
+                        StringMatch(value.val(), actualValue.val());
+                    }
+            }
+        }
+
+        private void regexMatch(Construct actualValue) throws PrefilterNonMatchException{
+            if(regex == null){
+                RegexMatch(value, actualValue);
+            } else if(!regex.matcher(actualValue.val()).matches()){
+                throw new PrefilterNonMatchException();
+            }
+        }
+
+        private void expressionMatch(Construct actualValue) throws PrefilterNonMatchException{
+            double d;
+            try{
+                d = Double.parseDouble(actualValue.val());
+            } catch(NumberFormatException e){
+                d = Double.NaN;
+            }
+            if(expression == null || Double.isNaN(d)){
+                ExpressionMatch(MathReplace(key, value, actualValue), actualValue);
+                return;
+            }
+            double val;
+            try{
+                //Expressions keep their variables' values in themselves
+                synchronized(expression){
+                    val = expression.evaluate(d);
+                }
+            } catch(ExpressionException e){
+                throw new ConfigRuntimeException("Your expression is invalidly formatted",
+                        ExceptionType.FormatException, value.getTarget());
+            }
+            if(inequality){
+                if(val == 0){
+                    throw new PrefilterNonMatchException();
+                }
+            } else if(val != d){
+                throw new PrefilterNonMatchException();
+            }
+        }
+    }
 }
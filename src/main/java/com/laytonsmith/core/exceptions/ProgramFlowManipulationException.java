@@ -30,5 +30,18 @@ public abstract class ProgramFlowManipulationException extends RuntimeException
 	public Target getTarget() {
 		return t;
 	}
+
+	/**
+	 * These exceptions are used for normal control flow, and are thrown for every
+	 * return(), break() and continue(), so filling in the java stacktrace, which is
+	 * by far the most expensive part of throwing them, is skipped. The java
+	 * stacktrace is meaningless anyways, the script location is available
+	 * through {@link #getTarget()}.
+	 * @return 
+	 */
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return this;
+	}
     
 }
@@ -19,6 +19,7 @@ import com.laytonsmith.core.natives.interfaces.ArrayAccess;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Random;
@@ -824,8 +825,9 @@ public class ArrayHandling {
 			if (args[0] instanceof CArray) {
 				CArray ca = (CArray) args[0];
 				CArray ca2 = new CArray(t);
-				for (String c : ca.keySet()) {
-					ca2.push(new CString(c, t));
+				Iterator<Construct> keys = ca.keyIterator(t);
+				while (keys.hasNext()) {
+					ca2.push(new CString(keys.next().val(), t));
 				}
 				return ca2;
 			} else {
@@ -878,8 +880,9 @@ public class ArrayHandling {
 			if (args[0] instanceof CArray) {
 				CArray ca = (CArray) args[0];
 				CArray ca2 = new CArray(t);
-				for (String c : ca.keySet()) {
-					ca2.push(ca.get(c, t));
+				Iterator<Construct> keys = ca.keyIterator(t);
+				while (keys.hasNext()) {
+					ca2.push(ca.get(keys.next(), t));
 				}
 				return ca2;
 			} else {
@@ -1055,8 +1058,9 @@ public class ArrayHandling {
 				glue = args[1].val();
 			}
 			boolean first = true;
-			for (String key : ca.keySet()) {
-				Construct value = ca.get(key, t);
+			Iterator<Construct> keys = ca.keyIterator(t);
+			while (keys.hasNext()) {
+				Construct value = ca.get(keys.next(), t);
 				if (!first) {
 					b.append(glue).append(value.val());
 				} else {
@@ -4,6 +4,7 @@ import com.laytonsmith.annotations.api;
 import com.laytonsmith.core.*;
 import com.laytonsmith.core.compiler.FileOptions;
 import com.laytonsmith.core.compiler.OptimizationUtilities;
+import com.laytonsmith.core.compiler.TypeInference;
 import com.laytonsmith.core.constructs.*;
 import com.laytonsmith.core.environments.Environment;
 import com.laytonsmith.core.environments.GlobalEnv;
@@ -559,7 +560,7 @@ public class BasicLogic {
 	}
 
 	@api
-	public static class equals extends AbstractFunction implements Optimizable {
+	public static class equals extends AbstractFunction implements Optimizable, Specializable {
 
 		private static equals self = new equals();
 
@@ -640,6 +641,28 @@ public class BasicLogic {
 			}
 		}
 
+		public TypeInference.Type returnType(TypeInference.Type[] args) {
+			return null;
+		}
+
+		public Function specialize(TypeInference.Type[] args) {
+			//Doubles aren't done, because NaN isn't equal to itself, but its string form is
+			if (args.length < 2 || !TypeInference.AllInts(args)) {
+				return null;
+			}
+			return new equals() {
+				@Override
+				public Construct exec(Target t, Environment env, Construct... args) {
+					for (int i = 1; i < args.length; i++) {
+						if (Static.getKnownNumber(args[i - 1]) != Static.getKnownNumber(args[i])) {
+							return new CBoolean(false, t);
+						}
+					}
+					return new CBoolean(true, t);
+				}
+			};
+		}
+
 		public ExceptionType[] thrown() {
 			return new ExceptionType[]{ExceptionType.InsufficientArgumentsException};
 		}
@@ -1057,7 +1080,7 @@ public class BasicLogic {
 	}
 
 	@api
-	public static class lt extends AbstractFunction implements Optimizable {
+	public static class lt extends AbstractFunction implements Optimizable, Specializable {
 
 		public String getName() {
 			return "lt";
@@ -1073,6 +1096,22 @@ public class BasicLogic {
 			return new CBoolean(arg1 < arg2, t);
 		}
 
+		public TypeInference.Type returnType(TypeInference.Type[] args) {
+			return null;
+		}
+
+		public Function specialize(TypeInference.Type[] args) {
+			if (!TypeInference.AllNumeric(args)) {
+				return null;
+			}
+			return new lt() {
+				@Override
+				public Construct exec(Target t, Environment env, Construct... args) {
+					return new CBoolean(Static.getKnownNumber(args[0]) < Static.getKnownNumber(args[1]), t);
+				}
+			};
+		}
+
 		public ExceptionType[] thrown() {
 			return new ExceptionType[]{ExceptionType.CastException};
 		}
@@ -1112,7 +1151,7 @@ public class BasicLogic {
 	}
 
 	@api
-	public static class gt extends AbstractFunction implements Optimizable {
+	public static class gt extends AbstractFunction implements Optimizable, Specializable {
 
 		public String getName() {
 			return "gt";
@@ -1128,6 +1167,22 @@ public class BasicLogic {
 			return new CBoolean(arg1 > arg2, t);
 		}
 
+		public TypeInference.Type returnType(TypeInference.Type[] args) {
+			return null;
+		}
+
+		public Function specialize(TypeInference.Type[] args) {
+			if (!TypeInference.AllNumeric(args)) {
+				return null;
+			}
+			return new gt() {
+				@Override
+				public Construct exec(Target t, Environment env, Construct... args) {
+					return new CBoolean(Static.getKnownNumber(args[0]) > Static.getKnownNumber(args[1]), t);
+				}
+			};
+		}
+
 		public ExceptionType[] thrown() {
 			return new ExceptionType[]{ExceptionType.CastException};
 		}
@@ -1167,7 +1222,7 @@ public class BasicLogic {
 	}
 
 	@api
-	public static class lte extends AbstractFunction implements Optimizable {
+	public static class lte extends AbstractFunction implements Optimizable, Specializable {
 
 		public String getName() {
 			return "lte";
@@ -1183,6 +1238,22 @@ public class BasicLogic {
 			return new CBoolean(arg1 <= arg2, t);
 		}
 
+		public TypeInference.Type returnType(TypeInference.Type[] args) {
+			return null;
+		}
+
+		public Function specialize(TypeInference.Type[] args) {
+			if (!TypeInference.AllNumeric(args)) {
+				return null;
+			}
+			return new lte() {
+				@Override
+				public Construct exec(Target t, Environment env, Construct... args) {
+					return new CBoolean(Static.getKnownNumber(args[0]) <= Static.getKnownNumber(args[1]), t);
+				}
+			};
+		}
+
 		public ExceptionType[] thrown() {
 			return new ExceptionType[]{ExceptionType.CastException};
 		}
@@ -1223,7 +1294,7 @@ public class BasicLogic {
 	}
 
 	@api
-	public static class gte extends AbstractFunction implements Optimizable {
+	public static class gte extends AbstractFunction implements Optimizable, Specializable {
 
 		public String getName() {
 			return "gte";
@@ -1239,6 +1310,22 @@ public class BasicLogic {
 			return new CBoolean(arg1 >= arg2, t);
 		}
 
+		public TypeInference.Type returnType(TypeInference.Type[] args) {
+			return null;
+		}
+
+		public Function specialize(TypeInference.Type[] args) {
+			if (!TypeInference.AllNumeric(args)) {
+				return null;
+			}
+			return new gte() {
+				@Override
+				public Construct exec(Target t, Environment env, Construct... args) {
+					return new CBoolean(Static.getKnownNumber(args[0]) >= Static.getKnownNumber(args[1]), t);
+				}
+			};
+		}
+
 		public ExceptionType[] thrown() {
 			return new ExceptionType[]{ExceptionType.CastException};
 		}
@@ -16,6 +16,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
@@ -157,12 +158,10 @@ public class DataHandling {
 			Construct c = args[1];
 			while (c instanceof IVariable) {
 				IVariable cur = (IVariable) c;
-				c = env.getEnv(GlobalEnv.class).GetVarList().get(cur.getName(), cur.getTarget()).ival();
+				c = env.getEnv(GlobalEnv.class).GetVarList().get(cur).ival();
 			}
 			if (args[0] instanceof IVariable) {
-				IVariable v = new IVariable(((IVariable) args[0]).getName(), c, t);
-				env.getEnv(GlobalEnv.class).GetVarList().set(v);
-				return v;
+				return env.getEnv(GlobalEnv.class).GetVarList().set((IVariable) args[0], c, t);
 			}
 			throw new ConfigRuntimeException("assign only accepts an ivariable or array reference as the first argument", ExceptionType.CastException, t);
 		}
@@ -507,52 +506,31 @@ public class DataHandling {
 				if (finish < start) {
 					throw new ConfigRuntimeException("When using the .. notation, the left number may not be greater than the right number. Recieved " + start + " and " + finish, ExceptionType.RangeException, t);
 				}
-				arr = new ArrayHandling.range().exec(t, env, new CInt(start, t), new CInt(finish + 1, t));
 			}
 			if (arr instanceof CArray) {
 				if (iv instanceof IVariable) {
 					CArray one = (CArray) arr;
 					IVariable kkey = (IVariable) ik;
 					IVariable two = (IVariable) iv;
-					if (!one.inAssociativeMode()) {
-						for (int i = 0; i < one.size(); i++) {
-							if(kkey != null){
-								env.getEnv(GlobalEnv.class).GetVarList().set(new IVariable(kkey.getName(), new CInt(i, t), t));
-							}
-							env.getEnv(GlobalEnv.class).GetVarList().set(new IVariable(two.getName(), one.get(i, t), t));
-							try {
-								parent.eval(code, env);
-							} catch (LoopBreakException e) {
-								int num = e.getTimes();
-								if (num > 1) {
-									e.setTimes(--num);
-									throw e;
-								}
-								return new CVoid(t);
-							} catch (LoopContinueException e) {
-								i += e.getTimes() - 1;
-								continue;
-							}
+					Iterator<Construct> keys = one.keyIterator(t);
+					while (keys.hasNext()) {
+						Construct index = keys.next();
+						if(kkey != null){
+							env.getEnv(GlobalEnv.class).GetVarList().set(kkey, index, t);
 						}
-					} else {
-						for (int i = 0; i < one.size(); i++) {
-							String index = one.keySet().toArray(new String[]{})[i];
-							if(kkey != null){
-								env.getEnv(GlobalEnv.class).GetVarList().set(new IVariable(kkey.getName(), new CString(index, t), t));
+						env.getEnv(GlobalEnv.class).GetVarList().set(two, one.get(index, t), t);
+						try {
+							parent.eval(code, env);
+						} catch (LoopBreakException e) {
+							int num = e.getTimes();
+							if (num > 1) {
+								e.setTimes(--num);
+								throw e;
 							}
-							env.getEnv(GlobalEnv.class).GetVarList().set(new IVariable(two.getName(), one.get(index, t), t));
-							try {
-								parent.eval(code, env);
-							} catch (LoopBreakException e) {
-								int num = e.getTimes();
-								if (num > 1) {
-									e.setTimes(--num);
-									throw e;
-								}
-								return new CVoid(t);
-							} catch (LoopContinueException e) {
-								i += e.getTimes() - 1;
-								continue;
+							return new CVoid(t);
+						} catch (LoopContinueException e) {
+							for (int i = 1; i < e.getTimes() && keys.hasNext(); i++) {
+								keys.next();
 							}
 						}
 					}
@@ -643,7 +621,7 @@ public class DataHandling {
 			} else {
 				ParseTree pass [] = new ParseTree[nodes.length - 1];
 				System.arraycopy(nodes, 0, pass, 0, nodes.length - 1);
-				nodes[0] = new ParseTree(data, null);
+				pass[0] = new ParseTree(data, nodes[0].getFileOptions());
 				return super.execs(t, env, parent, pass);
 			}
 
@@ -1548,7 +1526,7 @@ public class DataHandling {
 		@Override
 		public Construct execs(Target t, Environment env, Script parent, ParseTree... nodes) {
 			Procedure myProc = getProcedure(t, env, parent, nodes);
-			env.getEnv(GlobalEnv.class).GetProcs().put(myProc.getName(), myProc);
+			env.getEnv(GlobalEnv.class).AddProc(myProc);
 			return new CVoid(t);
 		}
 
@@ -1820,7 +1798,7 @@ public class DataHandling {
 			if (args.length < 1) {
 				throw new ConfigRuntimeException("Expecting at least one argument to " + getName(), ExceptionType.InsufficientArgumentsException, t);
 			}
-			Procedure proc = env.getEnv(GlobalEnv.class).GetProcs().get(args[0].val());
+			Procedure proc = env.getEnv(GlobalEnv.class).GetProc(args[0].val());
 			if (proc != null) {
 				List<Construct> vars = new ArrayList<Construct>(Arrays.asList(args));
 				vars.remove(0);
@@ -1939,7 +1917,7 @@ public class DataHandling {
 		}
 
 		public Construct exec(Target t, Environment env, Construct... args) {
-			return new CBoolean(env.getEnv(GlobalEnv.class).GetProcs().get(args[0].val()) == null ? false : true, t);
+			return new CBoolean(env.getEnv(GlobalEnv.class).GetProc(args[0].val()) == null ? false : true, t);
 		}
 	}
 
@@ -2175,7 +2153,9 @@ public class DataHandling {
 			if (args.length == 1) {
 				if (args[0] instanceof IVariable) {
 					IVariable cur = (IVariable) args[0];
-					Globals.SetGlobal(environment.getEnv(GlobalEnv.class).GetVarList().get(cur.getName(), cur.getTarget()));
+					//The variable list may update its holder in place, so the global gets its own copy
+					IVariable var = environment.getEnv(GlobalEnv.class).GetVarList().get(cur);
+					Globals.SetGlobal(new IVariable(var.getName(), var.ival(), var.getTarget()));
 				} else {
 					throw new ConfigRuntimeException("Expecting a IVariable when only one parameter is specified", ExceptionType.InsufficientArgumentsException, t);
 				}
@@ -12,6 +12,7 @@ import com.laytonsmith.core.constructs.Construct;
 import com.laytonsmith.core.constructs.Target;
 import com.laytonsmith.core.exceptions.ConfigCompileException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -25,7 +26,9 @@ public class FunctionList {
     private final static Map<String, Set<api.Platforms>> supportedPlatforms = new HashMap<String, Set<api.Platforms>>();
     static {
         for(api.Platforms p : api.Platforms.values()){
-            functions.put(p, new HashMap<String, FunctionBase>());
+            //registerFunction is public, and the compiler may be looking up functions
+            //on several threads at once, so these need to be safe for concurrent use
+            functions.put(p, new ConcurrentHashMap<String, FunctionBase>());
         }
         //Initialize all our functions as soon as we start up
         initFunctions();
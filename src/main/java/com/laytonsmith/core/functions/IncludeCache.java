@@ -5,60 +5,247 @@ package com.laytonsmith.core.functions;
 import com.laytonsmith.PureUtilities.ZipReader;
 import com.laytonsmith.core.CHLog;
 import com.laytonsmith.core.LogLevel;
-import com.laytonsmith.core.MethodScriptCompiler;
 import com.laytonsmith.core.ParseTree;
 import com.laytonsmith.core.Security;
+import com.laytonsmith.core.compiler.ParseTreeCache;
 import com.laytonsmith.core.constructs.Target;
 import com.laytonsmith.core.exceptions.ConfigCompileException;
 import com.laytonsmith.core.exceptions.ConfigRuntimeException;
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- *
+ * Since include() may be called from several threads at once, and compiling a
+ * file may include other files, access to the cache is synchronized. Files are
+ * compiled outside of the lock though, so one slow compile doesn't hold up
+ * includes of files that are already cached.
+ * <p>
+ * Each entry remembers the modification time and size of the file, and a hash
+ * of its contents. If the time or size changes, the file is read again, and is
+ * only recompiled if the hash changed too. Files inside of zips don't have a
+ * modification time of their own, so they're never rechecked. The cache is
+ * limited to an estimated memory budget, and when it's over budget, the least
+ * recently used entries are dropped.
  * @author Layton
  */
 public class IncludeCache {
     private static final CHLog.Tags TAG = CHLog.Tags.INCLUDES;
-    private static HashMap<File, ParseTree> cache = new HashMap<File, ParseTree>();
-    
-    private static void add(File file, ParseTree tree){
-        cache.put(file, tree);
+    /**
+     * A rough estimate of how much memory each node of a compiled tree takes,
+     * counting the node, its construct, and its target.
+     */
+    private static final long BYTES_PER_NODE = 200;
+    private static final long DEFAULT_BUDGET = 16 * 1024 * 1024;
+    private static final LinkedHashMap<File, Entry> cache = new LinkedHashMap<File, Entry>(16, 0.75f, true);
+    private static long budget = DEFAULT_BUDGET;
+    private static long size = 0;
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    /**
+     * The files that have included some other file (canonicalized), and the
+     * files that have been included, so that hot reloading knows which files
+     * can't be reloaded on their own. These are kept separately from the cache,
+     * since entries may be evicted.
+     */
+    private static final Set<File> includers = new HashSet<File>();
+    private static final Set<File> included = new HashSet<File>();
+
+    private static class Entry {
+        private final ParseTree tree;
+        private final String hash;
+        private final long size;
+        private long modified;
+        private long length;
+
+        private Entry(ParseTree tree, String hash, long modified, long length){
+            this.tree = tree;
+            this.hash = hash;
+            this.modified = modified;
+            this.length = length;
+            this.size = countNodes(tree) * BYTES_PER_NODE;
+        }
     }
-    
+
     public static ParseTree get(File file, Target t){
-        CHLog.GetLogger().Log(TAG, LogLevel.DEBUG, "Loading " + file.getAbsolutePath(), t);
-        if(!cache.containsKey(file)){
-            CHLog.GetLogger().Log(TAG, LogLevel.VERBOSE, "Cache does not already contain include file, compiling, then caching.", t);
-            //We have to pull the file from the FS, and compile it.
-            if(Security.CheckSecurity(file.getAbsolutePath())){
-                CHLog.GetLogger().Log(TAG, LogLevel.VERBOSE, "Security check passed", t);
-                try {
-                    String s = new ZipReader(file).getFileContents();
-					//TODO: Is the g() really needed now?
-                    ParseTree tree = MethodScriptCompiler.compile(MethodScriptCompiler.lex(s, file, true));
-                    CHLog.GetLogger().Log(TAG, LogLevel.VERBOSE, "Compilation succeeded, adding to cache.", t);
-                    IncludeCache.add(file, tree);
-                } catch (ConfigCompileException ex) {
-                    throw new ConfigRuntimeException("There was a compile error when trying to include the script at " + file
-                            + "\n" + ex.getMessage() + " :: " + file.getName() + ":" + ex.getLineNum(), 
-                            Exceptions.ExceptionType.IncludeException, t);
-                } catch (IOException ex) {
-                    throw new ConfigRuntimeException("The script at " + file + " could not be found or read in.", 
-                            Exceptions.ExceptionType.IOException, t);
+        CHLog log = CHLog.GetLogger();
+        if(log.WillLog(TAG, LogLevel.DEBUG)){
+            log.Log(TAG, LogLevel.DEBUG, "Loading " + file.getAbsolutePath(), t);
+        }
+        synchronized(IncludeCache.class){
+            if(t.file() != null && !t.file().equals(file)){
+                includers.add(canonical(t.file()));
+            }
+            included.add(file);
+        }
+        long modified = file.lastModified();
+        long length = file.length();
+        Entry entry;
+        synchronized(IncludeCache.class){
+            entry = cache.get(file);
+            if(entry != null && entry.modified == modified && entry.length == length){
+                hits.incrementAndGet();
+                if(log.WillLog(TAG, LogLevel.VERBOSE)){
+                    log.Log(TAG, LogLevel.VERBOSE, "Returning " + file.getAbsolutePath() + " from cache", t);
                 }
-            } else {
-                throw new ConfigRuntimeException("The script cannot access " + file + " due to restrictions imposed by the base-dir setting.", 
-                        Exceptions.ExceptionType.SecurityException, t);
+                return entry.tree;
+            }
+        }
+        //We have to pull the file from the FS, and possibly compile it.
+        if(!Security.CheckSecurity(file.getAbsolutePath())){
+            throw new ConfigRuntimeException("The script cannot access " + file + " due to restrictions imposed by the base-dir setting.",
+                    Exceptions.ExceptionType.SecurityException, t);
+        }
+        String s;
+        try {
+            s = new ZipReader(file).getFileContents();
+        } catch (IOException ex) {
+            throw new ConfigRuntimeException("The script at " + file + " could not be found or read in.",
+                    Exceptions.ExceptionType.IOException, t);
+        }
+        String hash = hash(s);
+        if(entry != null && entry.hash.equals(hash)){
+            //Touched, but not actually changed
+            synchronized(IncludeCache.class){
+                entry.modified = modified;
+                entry.length = length;
+            }
+            hits.incrementAndGet();
+            return entry.tree;
+        }
+        misses.incrementAndGet();
+        if(log.WillLog(TAG, LogLevel.VERBOSE)){
+            log.Log(TAG, LogLevel.VERBOSE, (entry == null ? "Cache does not already contain " : "Cache is out of date for ")
+                    + file.getAbsolutePath() + ", compiling, then caching.", t);
+        }
+        ParseTree tree;
+        try {
+            tree = ParseTreeCache.Compile(s, file);
+        } catch (ConfigCompileException ex) {
+            throw new ConfigRuntimeException("There was a compile error when trying to include the script at " + file
+                    + "\n" + ex.getMessage() + " :: " + file.getName() + ":" + ex.getLineNum(),
+                    Exceptions.ExceptionType.IncludeException, t);
+        }
+        add(file, new Entry(tree, hash, modified, length));
+        return tree;
+    }
+
+    private static synchronized void add(File file, Entry entry){
+        Entry old = cache.put(file, entry);
+        if(old != null){
+            size -= old.size;
+        }
+        size += entry.size;
+        //The newest entry is always kept, even if it's over budget by itself
+        Iterator<Map.Entry<File, Entry>> it = cache.entrySet().iterator();
+        while(size > budget && cache.size() > 1){
+            Map.Entry<File, Entry> eldest = it.next();
+            size -= eldest.getValue().size;
+            it.remove();
+            if(CHLog.GetLogger().WillLog(TAG, LogLevel.DEBUG)){
+                CHLog.GetLogger().Log(TAG, LogLevel.DEBUG, "Evicted " + eldest.getKey().getAbsolutePath()
+                        + " from the include cache", Target.UNKNOWN);
             }
         }
-        CHLog.GetLogger().Log(TAG, LogLevel.INFO, "Returning " + file.getAbsolutePath() + " from cache", t);
-        return cache.get(file);
     }
-    
-    public static void clearCache(){
-        CHLog.GetLogger().Log(TAG, LogLevel.INFO, "Clearing include cache", Target.UNKNOWN);
+
+    public static synchronized void clearCache(){
+        if(CHLog.GetLogger().WillLog(TAG, LogLevel.INFO)){
+            CHLog.GetLogger().Log(TAG, LogLevel.INFO, "Clearing include cache (" + hits.get() + " hits, "
+                    + misses.get() + " misses)", Target.UNKNOWN);
+        }
         cache.clear();
+        size = 0;
+        includers.clear();
+        included.clear();
+        hits.set(0);
+        misses.set(0);
+    }
+
+    /**
+     * Sets roughly how much memory the cached trees may take up, in bytes.
+     * If the cache is already over budget, entries are evicted the next time
+     * a file is added.
+     * @param bytes
+     */
+    public static synchronized void SetMemoryBudget(long bytes){
+        budget = bytes;
+    }
+
+    /**
+     * Returns the number of includes that were served from the cache since it
+     * was last cleared.
+     * @return
+     */
+    public static long GetHits(){
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of includes that had to be compiled since the cache
+     * was last cleared.
+     * @return
+     */
+    public static long GetMisses(){
+        return misses.get();
+    }
+
+    /**
+     * Returns true if this file has been included by some other file, or has itself
+     * included some other file, since the cache was last cleared. Such a file can't
+     * be reloaded on its own, since the code it defines is shared with other files.
+     * @param file
+     * @return
+     */
+    public static synchronized boolean IsShared(File file){
+        File f = canonical(file);
+        if(includers.contains(f)){
+            return true;
+        }
+        for(File i : included){
+            if(canonical(i).equals(f)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long countNodes(ParseTree tree){
+        long count = 1;
+        for(ParseTree child : tree.getChildren()){
+            count += countNodes(child);
+        }
+        return count;
+    }
+
+    private static String hash(String contents){
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA1");
+            StringBuilder b = new StringBuilder();
+            for(byte by : digest.digest(contents.getBytes("UTF-8"))){
+                b.append(Integer.toString((by & 0xff) + 0x100, 16).substring(1));
+            }
+            return b.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new Error(ex);
+        } catch (UnsupportedEncodingException ex) {
+            throw new Error(ex);
+        }
+    }
+
+    private static File canonical(File file){
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException ex) {
+            return file.getAbsoluteFile();
+        }
     }
 }
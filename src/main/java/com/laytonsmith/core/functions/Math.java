@@ -6,8 +6,10 @@ import com.laytonsmith.core.Optimizable;
 import com.laytonsmith.core.Optimizable.OptimizationOption;
 import com.laytonsmith.core.ParseTree;
 import com.laytonsmith.core.Script;
+import com.laytonsmith.core.Specializable;
 import com.laytonsmith.core.Static;
 import com.laytonsmith.core.compiler.OptimizationUtilities;
+import com.laytonsmith.core.compiler.TypeInference;
 import com.laytonsmith.core.constructs.*;
 import com.laytonsmith.core.environments.Environment;
 import com.laytonsmith.core.environments.GlobalEnv;
@@ -38,7 +40,7 @@ public class Math {
 	}
 
 	@api
-	public static class add extends AbstractFunction implements Optimizable{
+	public static class add extends AbstractFunction implements Optimizable, Specializable{
 
 		public String getName() {
 			return "add";
@@ -60,6 +62,31 @@ public class Math {
 			}
 		}
 
+		public TypeInference.Type returnType(TypeInference.Type[] args) {
+			return TypeInference.Arithmetic(args);
+		}
+
+		public Function specialize(TypeInference.Type[] args) {
+			if (!TypeInference.AllNumeric(args)) {
+				return null;
+			}
+			final boolean doubles = TypeInference.Arithmetic(args) == TypeInference.Type.DOUBLE;
+			return new add() {
+				@Override
+				public Construct exec(Target t, Environment env, Construct... args) {
+					double tally = Static.getKnownNumber(args[0]);
+					for (int i = 1; i < args.length; i++) {
+						tally += Static.getKnownNumber(args[i]);
+					}
+					if (doubles) {
+						return new CDouble(tally, t);
+					} else {
+						return new CInt((long) tally, t);
+					}
+				}
+			};
+		}
+
 		public ExceptionType[] thrown() {
 			return new ExceptionType[]{ExceptionType.CastException};
 		}
@@ -106,7 +133,7 @@ public class Math {
 	}
 
 	@api
-	public static class subtract extends AbstractFunction implements Optimizable{
+	public static class subtract extends AbstractFunction implements Optimizable, Specializable{
 
 		public String getName() {
 			return "subtract";
@@ -128,6 +155,31 @@ public class Math {
 			}
 		}
 
+		public TypeInference.Type returnType(TypeInference.Type[] args) {
+			return TypeInference.Arithmetic(args);
+		}
+
+		public Function specialize(TypeInference.Type[] args) {
+			if (!TypeInference.AllNumeric(args)) {
+				return null;
+			}
+			final boolean doubles = TypeInference.Arithmetic(args) == TypeInference.Type.DOUBLE;
+			return new subtract() {
+				@Override
+				public Construct exec(Target t, Environment env, Construct... args) {
+					double tally = Static.getKnownNumber(args[0]);
+					for (int i = 1; i < args.length; i++) {
+						tally -= Static.getKnownNumber(args[i]);
+					}
+					if (doubles) {
+						return new CDouble(tally, t);
+					} else {
+						return new CInt((long) tally, t);
+					}
+				}
+			};
+		}
+
 		public ExceptionType[] thrown() {
 			return new ExceptionType[]{ExceptionType.CastException};
 		}
@@ -171,7 +223,7 @@ public class Math {
 	}
 
 	@api
-	public static class multiply extends AbstractFunction implements Optimizable{
+	public static class multiply extends AbstractFunction implements Optimizable, Specializable{
 
 		public String getName() {
 			return "multiply";
@@ -193,6 +245,31 @@ public class Math {
 			}
 		}
 
+		public TypeInference.Type returnType(TypeInference.Type[] args) {
+			return TypeInference.Arithmetic(args);
+		}
+
+		public Function specialize(TypeInference.Type[] args) {
+			if (!TypeInference.AllNumeric(args)) {
+				return null;
+			}
+			final boolean doubles = TypeInference.Arithmetic(args) == TypeInference.Type.DOUBLE;
+			return new multiply() {
+				@Override
+				public Construct exec(Target t, Environment env, Construct... args) {
+					double tally = Static.getKnownNumber(args[0]);
+					for (int i = 1; i < args.length; i++) {
+						tally *= Static.getKnownNumber(args[i]);
+					}
+					if (doubles) {
+						return new CDouble(tally, t);
+					} else {
+						return new CInt((long) tally, t);
+					}
+				}
+			};
+		}
+
 		public ExceptionType[] thrown() {
 			return new ExceptionType[]{ExceptionType.CastException};
 		}
@@ -236,7 +313,7 @@ public class Math {
 	}
 
 	@api
-	public static class divide extends AbstractFunction implements Optimizable{
+	public static class divide extends AbstractFunction implements Optimizable, Specializable{
 
 		public String getName() {
 			return "divide";
@@ -262,6 +339,35 @@ public class Math {
 			}
 		}
 
+		public TypeInference.Type returnType(TypeInference.Type[] args) {
+			//Depends on whether or not the result happens to be whole
+			return null;
+		}
+
+		public Function specialize(TypeInference.Type[] args) {
+			if (!TypeInference.AllNumeric(args)) {
+				return null;
+			}
+			return new divide() {
+				@Override
+				public Construct exec(Target t, Environment env, Construct... args) {
+					double tally = Static.getKnownNumber(args[0]);
+					for (int i = 1; i < args.length; i++) {
+						double next = Static.getKnownNumber(args[i]);
+						if (next == 0) {
+							throw new ConfigRuntimeException("Division by 0!", ExceptionType.RangeException, t);
+						}
+						tally /= next;
+					}
+					if (tally == (int) tally) {
+						return new CInt((long) tally, t);
+					} else {
+						return new CDouble(tally, t);
+					}
+				}
+			};
+		}
+
 		public ExceptionType[] thrown() {
 			return new ExceptionType[]{ExceptionType.CastException, ExceptionType.RangeException};
 		}
@@ -308,7 +414,7 @@ public class Math {
 	}
 
 	@api
-	public static class mod extends AbstractFunction implements Optimizable{
+	public static class mod extends AbstractFunction implements Optimizable, Specializable{
 
 		public String getName() {
 			return "mod";
@@ -324,6 +430,22 @@ public class Math {
 			return new CInt(arg1 % arg2, t);
 		}
 
+		public TypeInference.Type returnType(TypeInference.Type[] args) {
+			return TypeInference.Type.INT;
+		}
+
+		public Function specialize(TypeInference.Type[] args) {
+			if (!TypeInference.AllInts(args)) {
+				return null;
+			}
+			return new mod() {
+				@Override
+				public Construct exec(Target t, Environment env, Construct... args) {
+					return new CInt(((CInt) args[0]).getInt() % ((CInt) args[1]).getInt(), t);
+				}
+			};
+		}
+
 		public ExceptionType[] thrown() {
 			return new ExceptionType[]{ExceptionType.CastException};
 		}
@@ -509,22 +631,20 @@ public class Math {
 			if (args.length == 2) {
 				if (args[1] instanceof IVariable) {
 					IVariable cur2 = (IVariable) args[1];
-					args[1] = env.getEnv(GlobalEnv.class).GetVarList().get(cur2.getName(), cur2.getTarget());
+					args[1] = env.getEnv(GlobalEnv.class).GetVarList().get(cur2);
 				}
 				value = Static.getInt(args[1], t);
 			}
 			if (args[0] instanceof IVariable) {
 				IVariable cur = (IVariable) args[0];
-				IVariable v = env.getEnv(GlobalEnv.class).GetVarList().get(cur.getName(), cur.getTarget());
+				IVariable v = env.getEnv(GlobalEnv.class).GetVarList().get(cur);
 				Construct newVal;
 				if (Static.anyDoubles(v.ival())) {
 					newVal = new CDouble(Static.getDouble(v.ival(), t) + value, t);
 				} else {
 					newVal = new CInt(Static.getInt(v.ival(), t) + value, t);
 				}
-				v = new IVariable(v.getName(), newVal, t);
-				env.getEnv(GlobalEnv.class).GetVarList().set(v);
-				return v;
+				return env.getEnv(GlobalEnv.class).GetVarList().set(cur, newVal, t);
 			} else {
 				if (Static.anyDoubles(args[0])) {
 					return new CDouble(Static.getNumber(args[0], t) + value, t);
@@ -610,13 +730,13 @@ public class Math {
 			if (args.length == 2) {
 				if (args[1] instanceof IVariable) {
 					IVariable cur2 = (IVariable) args[1];
-					args[1] = env.getEnv(GlobalEnv.class).GetVarList().get(cur2.getName(), cur2.getTarget());
+					args[1] = env.getEnv(GlobalEnv.class).GetVarList().get(cur2);
 				}
 				value = Static.getInt(args[1], t);
 			}
 			if (args[0] instanceof IVariable) {
 				IVariable cur = (IVariable) args[0];
-				IVariable v = env.getEnv(GlobalEnv.class).GetVarList().get(cur.getName(), cur.getTarget());
+				IVariable v = env.getEnv(GlobalEnv.class).GetVarList().get(cur);
 				Construct newVal;
 				if (Static.anyDoubles(v.ival())) {
 					newVal = new CDouble(Static.getDouble(v.ival(), t) + value, t);
@@ -629,8 +749,7 @@ public class Math {
 				} catch (CloneNotSupportedException ex) {
 					Logger.getLogger(Math.class.getName()).log(Level.SEVERE, null, ex);
 				}
-				v = new IVariable(v.getName(), newVal, t);
-				env.getEnv(GlobalEnv.class).GetVarList().set(v);
+				env.getEnv(GlobalEnv.class).GetVarList().set(cur, newVal, t);
 				return oldVal;
 			} else {
 				if (Static.anyDoubles(args[0])) {
@@ -711,22 +830,20 @@ public class Math {
 			if (args.length == 2) {
 				if (args[1] instanceof IVariable) {
 					IVariable cur2 = (IVariable) args[1];
-					args[1] = env.getEnv(GlobalEnv.class).GetVarList().get(cur2.getName(), cur2.getTarget());
+					args[1] = env.getEnv(GlobalEnv.class).GetVarList().get(cur2);
 				}
 				value = Static.getInt(args[1], t);
 			}
 			if (args[0] instanceof IVariable) {
 				IVariable cur = (IVariable) args[0];
-				IVariable v = env.getEnv(GlobalEnv.class).GetVarList().get(cur.getName(), cur.getTarget());
+				IVariable v = env.getEnv(GlobalEnv.class).GetVarList().get(cur);
 				Construct newVal;
 				if (Static.anyDoubles(v.ival())) {
 					newVal = new CDouble(Static.getDouble(v.ival(), t) - value, t);
 				} else {
 					newVal = new CInt(Static.getInt(v.ival(), t) - value, t);
 				}
-				v = new IVariable(v.getName(), newVal, t);
-				env.getEnv(GlobalEnv.class).GetVarList().set(v);
-				return v;
+				return env.getEnv(GlobalEnv.class).GetVarList().set(cur, newVal, t);
 			} else {
 				if (Static.anyDoubles(args[0])) {
 					return new CDouble(Static.getNumber(args[0], t) + value, t);
@@ -805,13 +922,13 @@ public class Math {
 			if (args.length == 2) {
 				if (args[1] instanceof IVariable) {
 					IVariable cur2 = (IVariable) args[1];
-					args[1] = env.getEnv(GlobalEnv.class).GetVarList().get(cur2.getName(), cur2.getTarget());
+					args[1] = env.getEnv(GlobalEnv.class).GetVarList().get(cur2);
 				}
 				value = Static.getInt(args[1], t);
 			}
 			if (args[0] instanceof IVariable) {
 				IVariable cur = (IVariable) args[0];
-				IVariable v = env.getEnv(GlobalEnv.class).GetVarList().get(cur.getName(), cur.getTarget());
+				IVariable v = env.getEnv(GlobalEnv.class).GetVarList().get(cur);
 				Construct newVal;
 				if (Static.anyDoubles(v.ival())) {
 					newVal = new CDouble(Static.getDouble(v.ival(), t) - value, t);
@@ -824,8 +941,7 @@ public class Math {
 				} catch (CloneNotSupportedException ex) {
 					Logger.getLogger(Math.class.getName()).log(Level.SEVERE, null, ex);
 				}
-				v = new IVariable(v.getName(), newVal, t);
-				env.getEnv(GlobalEnv.class).GetVarList().set(v);
+				env.getEnv(GlobalEnv.class).GetVarList().set(cur, newVal, t);
 				return oldVal;
 			} else {
 				if (Static.anyDoubles(args[0])) {
@@ -1851,7 +1967,7 @@ public class Math {
 	}
 
 	@api
-	public static class neg extends AbstractFunction implements Optimizable {
+	public static class neg extends AbstractFunction implements Optimizable, Specializable {
 
 		public String getName() {
 			return "neg";
@@ -1865,6 +1981,18 @@ public class Math {
 			return "number {number} Negates a number, essentially multiplying the number by -1";
 		}
 
+		public TypeInference.Type returnType(TypeInference.Type[] args) {
+			if (args.length != 1) {
+				//The wrong number of arguments, so nothing is known about it
+				return null;
+			}
+			return args[0];
+		}
+
+		public Function specialize(TypeInference.Type[] args) {
+			return null;
+		}
+
 		public ExceptionType[] thrown() {
 			return new ExceptionType[]{ExceptionType.CastException};
 		}
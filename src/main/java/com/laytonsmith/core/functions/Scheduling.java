@@ -19,7 +19,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.io.File;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
@@ -31,8 +33,35 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class Scheduling {
 
+	/**
+	 * The file each interval was set in, by task id, so the intervals from a single
+	 * file can be stopped when just that file is reloaded.
+	 */
+	private static final Map<Integer, File> intervals = new HashMap<Integer, File>();
+
 	public static void ClearScheduledRunners() {
 		StaticLayer.ClearAllRunnables();
+		synchronized (intervals) {
+			intervals.clear();
+		}
+	}
+
+	/**
+	 * Stops all the intervals that were set in the given file.
+	 *
+	 * @param file
+	 */
+	public static void ClearScheduledRunners(File file) {
+		synchronized (intervals) {
+			Iterator<Map.Entry<Integer, File>> it = intervals.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<Integer, File> entry = it.next();
+				if (file.equals(entry.getValue())) {
+					StaticLayer.ClearFutureRunnable(entry.getKey());
+					it.remove();
+				}
+			}
+		}
 	}
 
 	public static String docs() {
@@ -229,6 +258,9 @@ public class Scheduling {
 					}
 				}
 			}));
+			synchronized (intervals) {
+				intervals.put(ret.get(), t.file());
+			}
 			return new CInt(ret.get(), t);
 		}
 
@@ -331,13 +363,18 @@ public class Scheduling {
 		}
 
 		public Construct exec(Target t, Environment environment, Construct... args) throws ConfigRuntimeException {
+			int id;
 			if (args.length == 0 && environment.getEnv(GlobalEnv.class).GetCustom("timeout-id") != null) {
-				StaticLayer.ClearFutureRunnable((Integer) environment.getEnv(GlobalEnv.class).GetCustom("timeout-id"));
+				id = (Integer) environment.getEnv(GlobalEnv.class).GetCustom("timeout-id");
 			} else if (args.length == 1) {
-				StaticLayer.ClearFutureRunnable(Static.getInt32(args[0], t));
+				id = Static.getInt32(args[0], t);
 			} else {
 				throw new ConfigRuntimeException("No id was passed to clear_task, and it's not running inside a task either.", ExceptionType.InsufficientArgumentsException, t);
 			}
+			StaticLayer.ClearFutureRunnable(id);
+			synchronized (intervals) {
+				intervals.remove(id);
+			}
 			return new CVoid(t);
 		}
 
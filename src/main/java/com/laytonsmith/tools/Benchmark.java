@@ -0,0 +1,132 @@
+package com.laytonsmith.tools;
+
+import com.laytonsmith.PureUtilities.FileUtility;
+import static com.laytonsmith.PureUtilities.TermColors.*;
+import com.laytonsmith.core.MethodScriptCompiler;
+import com.laytonsmith.core.ParseTree;
+import com.laytonsmith.core.Static;
+import com.laytonsmith.core.environments.Environment;
+import com.laytonsmith.core.exceptions.ConfigCompileException;
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runs scripts repeatedly in a standalone environment, and reports how long each
+ * run took. This is meant as a development tool, to compare the interpreter's
+ * performance before and after a change, so the numbers are only meaningful
+ * relative to each other, on the same machine.
+ *
+ * @author Layton
+ */
+public class Benchmark {
+
+	/**
+	 * The built in suite, which is run if no file is specified. Each entry should
+	 * stress one particular part of the interpreter.
+	 */
+	private static final Map<String, String> SUITE = new LinkedHashMap<String, String>();
+	/**
+	 * Scripts are repeated until they're at least this many characters long
+	 * before they're lexed, so the lexer throughput isn't just measuring the
+	 * timer.
+	 */
+	private static final int LEX_SIZE = 1024 * 1024;
+
+	static {
+		SUITE.put("for loop, 1M iterations", "for(@i = 0, @i < 1000000, @i++){ }");
+		SUITE.put("arithmetic, 1M iterations", "@j = 0\nfor(@i = 0, @i < 1000000, @i++){ @j = @j + @i * 2 }");
+		SUITE.put("proc calls, 100K iterations", "proc(_add, @a, @b, return(@a + @b))\n"
+				+ "for(@i = 0, @i < 100000, @i++){ _add(@i, 1) }");
+		SUITE.put("early return from a loop in a proc, 100K iterations", "proc(_find, @n,\n"
+				+ "\tforeach(1..10, @j, if(@j == @n, return(@j)))\n"
+				+ "\treturn(-1)\n)\n"
+				+ "for(@i = 0, @i < 100000, @i++){ _find(3) }");
+		SUITE.put("break and continue, 100K iterations", "for(@i = 0, @i < 100000, @i++){\n"
+				+ "\tforeach(1..10, @j, if(@j < 3, continue(), break()))\n}");
+	}
+
+	private Benchmark() {
+	}
+
+	/**
+	 * Runs the benchmark. If path is empty, the built in suite is run, otherwise
+	 * the specified file is compiled once, and run the specified number of times.
+	 * Afterwards, the lexer's throughput is measured on the same source.
+	 *
+	 * @param path
+	 * @param iterations
+	 * @throws Exception
+	 */
+	public static void start(String path, int iterations) throws Exception {
+		Map<String, String> scripts = new LinkedHashMap<String, String>();
+		if (path == null || path.isEmpty()) {
+			scripts.putAll(SUITE);
+		} else {
+			scripts.put(path, FileUtility.read(new File(path)));
+		}
+		Environment env = Static.GenerateStandaloneEnvironment();
+		StringBuilder source = new StringBuilder();
+		for (Map.Entry<String, String> entry : scripts.entrySet()) {
+			run(entry.getKey(), entry.getValue(), iterations, env);
+			source.append(entry.getValue()).append('\n');
+		}
+		lex(source.toString(), iterations);
+	}
+
+	private static void run(String name, String script, int iterations, Environment env) throws ConfigCompileException, CloneNotSupportedException {
+		long compileStart = System.nanoTime();
+		ParseTree tree = MethodScriptCompiler.compile(MethodScriptCompiler.lex(script, new File("Benchmark"), true));
+		long compileTime = System.nanoTime() - compileStart;
+		//The first run is thrown away, to give the JIT a chance to warm up
+		MethodScriptCompiler.execute(tree, env.clone(), null, null);
+		long min = Long.MAX_VALUE;
+		long total = 0;
+		for (int i = 0; i < iterations; i++) {
+			Environment runEnv = env.clone();
+			long start = System.nanoTime();
+			MethodScriptCompiler.execute(tree, runEnv, null, null);
+			long time = System.nanoTime() - start;
+			min = java.lang.Math.min(min, time);
+			total += time;
+		}
+		pl(GREEN + name + reset());
+		pl("\tcompile: " + ms(compileTime) + "; runs: " + iterations
+				+ "; min: " + ms(min) + "; avg: " + ms(total / java.lang.Math.max(iterations, 1)));
+	}
+
+	/**
+	 * Lexes the source repeatedly, and reports the throughput, in MB of script
+	 * source per second.
+	 */
+	private static void lex(String script, int iterations) throws ConfigCompileException {
+		StringBuilder b = new StringBuilder(script);
+		while (b.length() < LEX_SIZE) {
+			b.append(script);
+		}
+		String source = b.toString();
+		File file = new File("Benchmark");
+		//The first run is thrown away, to give the JIT a chance to warm up
+		MethodScriptCompiler.lex(source, file, true);
+		long min = Long.MAX_VALUE;
+		long total = 0;
+		for (int i = 0; i < iterations; i++) {
+			long start = System.nanoTime();
+			MethodScriptCompiler.lex(source, file, true);
+			long time = System.nanoTime() - start;
+			min = java.lang.Math.min(min, time);
+			total += time;
+		}
+		pl(GREEN + "lexer" + reset());
+		pl("\tsource: " + String.format("%.2f MB", source.length() / (1024.0 * 1024.0)) + "; runs: " + iterations
+				+ "; best: " + mbps(source.length(), min) + "; avg: " + mbps(source.length(), total / java.lang.Math.max(iterations, 1)));
+	}
+
+	private static String mbps(long chars, long nanos) {
+		return String.format("%.2f MB/s", (chars / (1024.0 * 1024.0)) / (java.lang.Math.max(nanos, 1) / 1000000000.0));
+	}
+
+	private static String ms(long nanos) {
+		return String.format("%.3f ms", nanos / 1000000.0);
+	}
+}
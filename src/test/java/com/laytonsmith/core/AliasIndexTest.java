@@ -0,0 +1,59 @@
+package com.laytonsmith.core;
+
+import com.laytonsmith.core.exceptions.ConfigCompileException;
+import com.laytonsmith.testing.StaticTest;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Layton
+ */
+public class AliasIndexTest {
+
+	List<Script> scripts;
+
+	@Before
+	public void setUp() throws ConfigCompileException {
+		StaticTest.InstallFakeServerFrontend();
+		scripts = MethodScriptCompiler.preprocess(MethodScriptCompiler.lex(
+				"/warp $name = msg('0')\n"
+				+ "/warp home = msg('1')\n"
+				+ "/spawn = msg('2')\n"
+				+ "/warp home [$player] = msg('3')\n"
+				+ "/tp $ = msg('4')\n", null, false));
+		for (Script s : scripts) {
+			s.compile();
+		}
+	}
+
+	private List<Script> scripts(int... indexes) {
+		Script[] s = new Script[indexes.length];
+		for (int i = 0; i < indexes.length; i++) {
+			s[i] = scripts.get(indexes[i]);
+		}
+		return Arrays.asList(s);
+	}
+
+	@Test
+	public void testCandidatesAreInOrder() {
+		AliasIndex index = new AliasIndex(scripts, false);
+		assertEquals(scripts(0, 1, 3), index.getCandidates("/warp home"));
+		assertEquals(scripts(0, 1, 3), index.getCandidates("/warp home me"));
+		assertEquals(scripts(0), index.getCandidates("/warp work"));
+		assertEquals(scripts(2), index.getCandidates("/spawn"));
+		assertEquals(scripts(4), index.getCandidates("/tp a b c"));
+		assertTrue(index.getCandidates("/other").isEmpty());
+		assertTrue(index.getCandidates(" ").isEmpty());
+	}
+
+	@Test
+	public void testCaseSensitivity() {
+		assertEquals(scripts(0, 1, 3), new AliasIndex(scripts, false).getCandidates("/WARP Home"));
+		assertEquals(scripts(0), new AliasIndex(scripts, true).getCandidates("/warp Home"));
+		assertTrue(new AliasIndex(scripts, true).getCandidates("/WARP home").isEmpty());
+	}
+}
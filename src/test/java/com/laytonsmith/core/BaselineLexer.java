@@ -0,0 +1,682 @@
+package com.laytonsmith.core;
+
+import com.laytonsmith.core.constructs.Target;
+import com.laytonsmith.core.constructs.Token;
+import com.laytonsmith.core.constructs.Token.TType;
+import com.laytonsmith.core.exceptions.ConfigCompileException;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The lexer as it was before it was rewritten to work on a char array. This
+ * is kept unchanged, so that LexerEquivalenceTest can check that the new
+ * lexer still produces exactly the same tokens.
+ *
+ * @author Layton
+ */
+final class BaselineLexer {
+
+	private BaselineLexer() {
+	}
+
+	static List<Token> lex(String config, File file, boolean inPureMScript) throws ConfigCompileException {
+		config = config.replaceAll("\r\n", "\n");
+		config = config + "\n";
+		List<Token> token_list = new ArrayList<Token>();
+		//Set our state variables
+		boolean state_in_quote = false;
+		int quoteLineNumberStart = 1;
+		boolean in_smart_quote = false;
+		int smartQuoteLineNumberStart = 1;
+		boolean in_comment = false;
+		int commentLineNumberStart = 1;
+		boolean comment_is_block = false;
+		boolean in_opt_var = false;
+		boolean inCommand = (inPureMScript?false:true);
+		boolean inMultiline = false;
+		StringBuilder buf = new StringBuilder();
+		int line_num = 1;
+		int column = 1;
+		int lastColumn = 0;
+		Target target = Target.UNKNOWN;
+		//first we lex
+		for (int i = 0; i < config.length(); i++) {
+			Character c = config.charAt(i);
+			Character c2 = null;
+			Character c3 = null;
+			if (i < config.length() - 1) {
+				c2 = config.charAt(i + 1);
+			}
+			if (i < config.length() - 2) {
+				c3 = config.charAt(i + 2);
+			}
+
+			column += i - lastColumn;
+			lastColumn = i;
+			if (c == '\n') {
+				line_num++;
+				column = 1;
+				if(!inMultiline && !inPureMScript){
+					inCommand = true;
+				}
+			}
+			target = new Target(line_num, file, column);
+
+			//Comment handling. If we're inside a string, bypass this though
+			if (!state_in_quote && !in_smart_quote) {
+				//Block comments start
+				if (c == '/' && c2 == '*' && !in_comment) {
+					in_comment = true;
+					comment_is_block = true;
+					commentLineNumberStart = line_num;
+					i++;
+					continue;
+				}
+				//Line comment start
+				if (c == '#' && !in_comment) {
+					in_comment = true;
+					comment_is_block = false;
+					continue;
+				}
+				//Block comment end
+				if (c == '*' && c2 == '/' && in_comment && comment_is_block) {
+					if (in_comment && comment_is_block) {
+						in_comment = false;
+						comment_is_block = false;
+						i++;
+						continue;
+					} else if (!in_comment) {
+						throw new ConfigCompileException("Unexpected block comment end", target);
+					} //else they put it in a line comment, which is fine
+				}
+				//Line comment end
+				if (c == '\n' && in_comment && !comment_is_block) {
+					in_comment = false;
+					continue;
+				}
+			}
+			//Currently, if they are in a comment, we completely throw this away. Eventually block
+			//comments that were started with /** will be kept and applied to the next identifier, but for the time
+			//being, nothing.
+			if (in_comment) {
+				continue;
+			}
+			if(c == '+' && c2 == '=' && !state_in_quote){
+				if(buf.length() > 0){
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.PLUS_ASSIGNMENT, "+=", target));
+				i++;
+				continue;
+			}
+			if(c == '-' && c2 == '=' && !state_in_quote){
+				if(buf.length() > 0){
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.MINUS_ASSIGNMENT, "-=", target));
+				i++;
+				continue;
+			}
+			if(c == '*' && c2 == '=' && !state_in_quote){
+				if(buf.length() > 0){
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.MULTIPLICATION_ASSIGNMENT, "*=", target));
+				i++;
+				continue;
+			}
+			//This has to come before division and equals
+			if(c == '/' && c2 == '=' && !state_in_quote){
+				if(buf.length() > 0){
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.DIVISION_ASSIGNMENT, "/=", target));
+				i++;
+				continue;
+			}
+			if(c == '.' && c2 == '=' && !state_in_quote){
+				if(buf.length() > 0){
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.CONCAT_ASSIGNMENT, "/=", target));
+				i++;
+				continue;				
+			}
+			//This has to come before subtraction and greater than
+			if (c == '-' && c2 == '>' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.DEREFERENCE, "->", target));
+				i++;
+				continue;
+			}
+			//Increment and decrement must come before plus and minus
+			if (c == '+' && c2 == '+' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.INCREMENT, "++", target));
+				i++;
+				continue;
+			}
+			if (c == '-' && c2 == '-' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.DECREMENT, "--", target));
+				i++;
+				continue;
+			}
+
+			if (c == '%' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.MODULO, "%", target));
+				continue;
+			}
+
+			//Math symbols must come after comment parsing, due to /* and */ block comments
+			//Block comments are caught above
+			if (c == '*' && c2 == '*' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.EXPONENTIAL, "**", target));
+				i++;
+				continue;
+			}
+			if (c == '*' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.MULTIPLICATION, "*", target));
+				continue;
+			}
+			if (c == '+' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.PLUS, "+", target));
+				continue;
+			}
+			if (c == '-' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.MINUS, "-", target));
+				continue;
+			}
+			//Protect against commands
+			if (c == '/' && !Character.isLetter(c2) && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.DIVISION, "/", target));
+				continue;
+			}
+			//Logic symbols
+			if (c == '>' && c2 == '=' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.GTE, ">=", target));
+				i++;
+				continue;
+			}
+			if (c == '<' && c2 == '=' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.LTE, "<=", target));
+				i++;
+				continue;
+			}
+			//multiline has to come before gt/lt
+			if (c == '<' && c2 == '<' && c3 == '<' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.MULTILINE_END, "<<<", target));
+				inMultiline = false;
+				i++;
+				i++;
+				continue;
+			}
+			if (c == '>' && c2 == '>' && c3 == '>' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.MULTILINE_START, ">>>", target));
+				inMultiline = true;
+				i++;
+				i++;
+				continue;
+			}
+			if (c == '<' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.LT, "<", target));
+				continue;
+			}
+			if (c == '>' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.GT, ">", target));
+				continue;
+			}
+			if (c == '=' && c2 == '=' && c3 == '=' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.STRICT_EQUALS, "===", target));
+				i++;
+				i++;
+				continue;
+			}
+			if (c == '!' && c2 == '=' && c3 == '=' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.STRICT_NOT_EQUALS, "!==", target));
+				i++;
+				i++;
+				continue;
+			}
+			if (c == '=' && c2 == '=' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.EQUALS, "==", target));
+				i++;
+				i++;
+				continue;
+			}
+			if (c == '!' && c2 == '=' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.NOT_EQUALS, "!=", target));
+				i++;
+				i++;
+				continue;
+			}
+			if (c == '&' && c2 == '&' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.LOGICAL_AND, "&&", target));
+				i++;
+				continue;
+			}
+			if (c == '|' && c2 == '|' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.LOGICAL_OR, "||", target));
+				i++;
+				continue;
+			}
+			if (c == '!' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.LOGICAL_NOT, "!", target));
+				continue;
+			}
+			if (c == '{' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.LCURLY_BRACKET, "{", target));
+				continue;
+			}
+			if (c == '}' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.RCURLY_BRACKET, "}", target));
+				continue;
+			}
+			//I don't want to use these symbols yet, especially since bitwise operations are rare.
+//            if(c == '&' && !state_in_quote){
+//                if (buf.length() > 0) {
+//                    token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+//                    buf = new StringBuilder();
+//                }
+//                token_list.add(new Token(TType.BIT_AND, "&", target));  
+//                continue;
+//            }
+//            if(c == '|' && !state_in_quote){
+//                if (buf.length() > 0) {
+//                    token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+//                    buf = new StringBuilder();
+//                }
+//                token_list.add(new Token(TType.BIT_OR, "|", target));  
+//                continue;
+//            }
+//            if(c == '^' && !state_in_quote){
+//                if (buf.length() > 0) {
+//                    token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+//                    buf = new StringBuilder();
+//                }
+//                token_list.add(new Token(TType.BIT_XOR, "^", target));  
+//                continue;
+//            }
+
+			if (c == '.' && c2 == '.' && !state_in_quote) {
+				//This one has to come before plain .
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.SLICE, "..", target));
+				i++;
+				continue;
+			}
+			if (c == '.' && !Character.isDigit(c2) && !state_in_quote) {
+				//if it's a number after this, it's a decimal
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.CONCAT, ".", target));
+				continue;
+			}
+			if (c == ':' && c2 == ':' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.DEREFERENCE, "::", target));
+				i++;
+				continue;
+			}
+			if (c == '[' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.LSQUARE_BRACKET, "[", target));
+				in_opt_var = true;
+				continue;
+			}
+			//This has to come after == and ===
+			if (c == '=' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				if(inCommand){
+					if (in_opt_var) {
+						token_list.add(new Token(TType.OPT_VAR_ASSIGN, "=", target));
+					} else {
+						token_list.add(new Token(TType.ALIAS_END, "=", target));
+						inCommand = false;
+					}
+				} else {
+					token_list.add(new Token(TType.ASSIGNMENT, "=", target));
+				}
+				continue;
+			}
+			if (c == ']' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.RSQUARE_BRACKET, "]", target));
+				in_opt_var = false;
+				continue;
+			}
+			if (c == ':' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.LABEL, ":", target));
+				continue;
+			}
+			if (c == ',' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.COMMA, ",", target));
+				continue;
+			}
+			if (c == '(' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.FUNC_NAME, buf.toString(), target));
+					buf = new StringBuilder();
+				} else {
+					//The previous token, if unknown, should be changed to a FUNC_NAME. If it's not
+					//unknown, we may be doing standalone parenthesis, so auto tack on the __autoconcat__ function
+					try {
+						int count = 1;
+						while (token_list.get(token_list.size() - count).type == TType.WHITESPACE) {
+							count++;
+						}
+						if (token_list.get(token_list.size() - count).type == TType.UNKNOWN) {
+							token_list.get(token_list.size() - count).type = TType.FUNC_NAME;
+							//Go ahead and remove the whitespace here too, it breaks things
+							count--;
+							for (int a = 0; a < count; a++) {
+								token_list.remove(token_list.size() - 1);
+							}
+						} else {
+							token_list.add(new Token(TType.FUNC_NAME, "__autoconcat__", target));
+						}
+					} catch (IndexOutOfBoundsException e) {
+						//This is the first element on the list, so, it's another autoconcat.
+						token_list.add(new Token(TType.FUNC_NAME, "__autoconcat__", target));
+					}
+				}
+				token_list.add(new Token(TType.FUNC_START, "(", target));
+				continue;
+			}
+			if (c == ')' && !state_in_quote) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.FUNC_END, ")", target));
+				continue;
+			}
+			if (Character.isWhitespace(c) && !state_in_quote && c != '\n') {
+				//keep the whitespace, but end the previous token, unless the last character
+				//was also whitespace. All whitespace is added as a single space.                
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				if (token_list.size() > 0
+						&& token_list.get(token_list.size() - 1).type != TType.WHITESPACE) {
+					token_list.add(new Token(TType.WHITESPACE, " ", target));
+				}
+				continue;
+			}
+			if (c == '\'') {
+				if (state_in_quote && !in_smart_quote) {
+					token_list.add(new Token(TType.STRING, buf.toString(), target));
+					buf = new StringBuilder();
+					state_in_quote = false;
+					continue;
+				} else if (!state_in_quote) {
+					state_in_quote = true;
+					quoteLineNumberStart = line_num;
+					in_smart_quote = false;
+					if (buf.length() > 0) {
+						token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+						buf = new StringBuilder();
+					}
+					continue;
+				} else {
+					//we're in a smart quote
+					buf.append("'");
+				}
+			} else if (c == '"') {
+				if (state_in_quote && in_smart_quote) {
+					//For now, since this feature isn't fully implemented, just throw an exception
+					if (true) {
+						throw new ConfigCompileException("Doubly quoted strings are not yet supported.", target);
+					}
+					token_list.add(new Token(TType.SMART_STRING, buf.toString(), target));
+					buf = new StringBuilder();
+					state_in_quote = false;
+					continue;
+				} else if (!state_in_quote) {
+					state_in_quote = true;
+					in_smart_quote = true;
+					smartQuoteLineNumberStart = line_num;
+					if (buf.length() > 0) {
+						token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+						buf = new StringBuilder();
+					}
+					continue;
+				} else {
+					//we're in normal quotes
+					buf.append('"');
+				}
+			} else if (c == '\\') {
+				//escaped characters
+				if (state_in_quote) {
+					if (c2 == '\\') {
+						buf.append("\\");
+					} else if (c2 == '\'' && !in_smart_quote) {
+						buf.append("'");
+					} else if (c2 == '"' && in_smart_quote) {
+						buf.append('"');
+					} else if (c2 == 'n') {
+						buf.append("\n");
+					} else if (c2 == 'u') {
+						//Grab the next 4 characters, and check to see if they are numbers
+						StringBuilder unicode = new StringBuilder();
+						for (int m = 0; m < 4; m++) {
+							unicode.append(config.charAt(i + 2 + m));
+						}
+						try {
+							Integer.parseInt(unicode.toString(), 16);
+						} catch (NumberFormatException e) {
+							throw new ConfigCompileException("Unrecognized unicode escape sequence", target);
+						}
+						buf.append(Character.toChars(Integer.parseInt(unicode.toString(), 16)));
+						i += 4;
+					} else {
+						//Since we might expand this list later, don't let them
+						//use unescaped backslashes
+						throw new ConfigCompileException("The escape sequence \\" + c2 + " is not a recognized escape sequence", target);
+					}
+
+					i++;
+					continue;
+				} else {
+					//Control character backslash
+					token_list.add(new Token(TType.SEPERATOR, "\\", target));
+				}
+			} else if (state_in_quote) {
+				buf.append(c);
+				continue;
+			} else if (c == '\n' && !comment_is_block) {
+				if (buf.length() > 0) {
+					token_list.add(new Token(TType.UNKNOWN, buf.toString(), target));
+					buf = new StringBuilder();
+				}
+				token_list.add(new Token(TType.NEWLINE, "\n", target));
+				in_comment = false;
+				comment_is_block = false;
+				continue;
+			} else { //in a literal
+				buf.append(c);
+				continue;
+			}
+		} //end lexing
+		if (state_in_quote) {
+			if (in_smart_quote) {
+				throw new ConfigCompileException("Unended string literal. You started the last double quote on line " + smartQuoteLineNumberStart, target);
+			} else {
+				throw new ConfigCompileException("Unended string literal. You started the last single quote on line " + quoteLineNumberStart, target);
+			}
+		}
+		if (in_comment || comment_is_block) {
+			throw new ConfigCompileException("Unended block comment. You started the comment on line " + commentLineNumberStart, target);
+		}
+		//look at the tokens, and get meaning from them. Also, look for improper symbol locations,
+		//and go ahead and absorb unary +- into the token
+		for (int i = 0; i < token_list.size(); i++) {
+			Token t = token_list.get(i);
+			Token prev2 = i - 2 >= 0 ? token_list.get(i - 2) : new Token(TType.UNKNOWN, "", t.target);
+			Token prev1 = i - 1 >= 0 ? token_list.get(i - 1) : new Token(TType.UNKNOWN, "", t.target);
+			Token next = i + 1 < token_list.size() ? token_list.get(i + 1) : new Token(TType.UNKNOWN, "", t.target);
+
+			if (t.type == TType.UNKNOWN && prev1.type.isPlusMinus()
+					&& !prev2.type.isIdentifier()) {
+				//It is a negative/positive number. Absorb the sign
+				t.value = prev1.value + t.value;
+				token_list.remove(i - 1);
+				i--;
+			}
+
+			if (t.type.equals(TType.UNKNOWN)) {
+				if (t.val().matches("/.*")) {
+					t.type = TType.COMMAND;
+				} else if (t.val().matches("\\\\")) {
+					t.type = TType.SEPERATOR;
+				} else if (t.val().matches("\\$[a-zA-Z0-9_]+")) {
+					t.type = TType.VARIABLE;
+				} else if (t.val().matches("\\@[a-zA-Z0-9_]+")) {
+					t.type = TType.IVARIABLE;
+				} else if (t.val().equals("$")) {
+					t.type = TType.FINAL_VAR;
+				} else {
+					t.type = TType.LIT;
+				}
+			}
+			//Skip this check if we're not in pure mscript
+			if(inPureMScript){
+				if (t.type.isSymbol() && !t.type.isUnary() && !next.type.isUnary()) {
+					if (prev1.type.equals(TType.FUNC_START) || prev1.type.equals(TType.COMMA)
+							|| next.type.equals(TType.FUNC_END) || next.type.equals(TType.COMMA)
+							|| prev1.type.isSymbol() || next.type.isSymbol()) {
+						throw new ConfigCompileException("Unexpected symbol (" + t.val() + ")", t.getTarget());
+					}
+				}
+			}
+
+		}
+		return token_list;
+	}
+
+}
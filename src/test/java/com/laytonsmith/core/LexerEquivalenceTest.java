@@ -0,0 +1,144 @@
+package com.laytonsmith.core;
+
+import com.laytonsmith.core.constructs.Token;
+import com.laytonsmith.core.exceptions.ConfigCompileException;
+import com.laytonsmith.testing.StaticTest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link MethodScriptCompiler#lex} produces exactly the same tokens
+ * as the lexer it replaced, {@link BaselineLexer}, including their types,
+ * values, lines and columns, and fails on exactly the same inputs.
+ *
+ * @author Layton
+ */
+public class LexerEquivalenceTest {
+
+	private static final String[] CORPUS = {
+		"",
+		"\n",
+		"\r\n\r\n",
+		"msg('hi')",
+		"msg(\"hi @player\")",
+		"msg(\"@{a} and @b[0] and \\\"quoted\\\"\")",
+		"msg('escapes: \\n \\t \\\\ \\' \\u00e9 \\u263A')",
+		"msg('bad escape \\q')",
+		"msg('bad unicode \\u12')",
+		"msg('unterminated",
+		"msg(\"unterminated",
+		"# a line comment\nmsg('after')",
+		"/* a block\ncomment */ msg('after') # trailing",
+		"/** doc\n * comment\n */\nproc(_a, @b, return(@b))",
+		"msg('# not a comment /* nor this */')",
+		"msg(\"# not a comment either\")",
+		"*/",
+		"/* unterminated block",
+		"/test = msg('hi')",
+		"/test $a [$b = 'default'] $ = msg($a $b $)",
+		"label:/test = msg('labelled')",
+		"~group1/group2:/perm = msg('permission label')",
+		"*:/all = msg('star label')",
+		"/multi = >>>\nmsg('line 1')\nmsg('line 2')\n<<<",
+		"/a = msg(1)\n/b = msg(2)\n\n\n/c = msg(3)",
+		"@a = 1 + 2 * 3 / 4 % 5 - -6",
+		"@a += 1; @a -= 2; @a *= 3; @a /= 4; @a .= 'x'",
+		"@a++ @b-- ++@c --@d",
+		"if(@a == 1 && @b != 2 || !@c){ msg('yes') } else { msg('no') }",
+		"@a === @b !== @c <= @d >= @e < @f > @g",
+		"@x = 1.5 + .5 + 5. + 1e3 + 0x1F",
+		"@arr = array(a: 1, 'b': 2, 3: 'c')[0][1..2][-1]",
+		"@s = 'single' . \"double\" . `backtick`",
+		"closure(@a, @b){ return(@a @b) }",
+		"foreach(@arr, @k, @v){ continue() break() }",
+		"msg(@player) msg(@arguments) msg($) msg($var)",
+		"tab\tseparated\tvalues",
+		"\"smart\nstring spanning lines\"",
+		"'plain\nstring spanning lines'",
+		"a:b:c",
+		"sconcat(1,2,3)",
+		"\\",
+	};
+
+	@BeforeClass
+	public static void setUpClass() {
+		StaticTest.InstallFakeServerFrontend();
+	}
+
+	/**
+	 * Lexes the script with the given lexer, and describes each token, or the
+	 * compile error, as a string.
+	 */
+	private static List<String> describe(String script, boolean inPureMScript, boolean baseline) {
+		List<String> out = new ArrayList<String>();
+		try {
+			List<Token> tokens = baseline ? BaselineLexer.lex(script, null, inPureMScript)
+					: MethodScriptCompiler.lex(script, null, inPureMScript);
+			for (Token t : tokens) {
+				out.add(t.type + " " + t.value + " " + t.target.line() + ":" + t.target.col());
+			}
+		} catch (ConfigCompileException e) {
+			out.add("error " + e.getMessage() + " " + e.getLineNum());
+		} catch (RuntimeException e) {
+			//Some broken input crashes the lexer, which should still happen the same way
+			out.add(e.getClass().getName());
+		}
+		return out;
+	}
+
+	private static void assertLexedAlike(String script) {
+		for (boolean inPureMScript : new boolean[]{true, false}) {
+			String message = "Lexing " + script + (inPureMScript ? " as pure MethodScript" : " as an alias file");
+			List<String> expected = describe(script, inPureMScript, true);
+			List<String> actual = describe(script, inPureMScript, false);
+			if (expected.equals(Arrays.asList(StringIndexOutOfBoundsException.class.getName()))) {
+				//The one intended difference: when a unicode escape is cut short by the end of
+				//the input, the old lexer read past the end, instead of reporting it
+				assertEquals(message, 1, actual.size());
+				assertTrue(message, actual.get(0).startsWith("error Unrecognized unicode escape sequence"));
+			} else {
+				assertEquals(message, expected, actual);
+			}
+		}
+	}
+
+	@Test
+	public void testCorpus() {
+		for (String script : CORPUS) {
+			assertLexedAlike(script);
+		}
+	}
+
+	@Test
+	public void testCombinations() {
+		//Each pair of scripts, so that every kind of token is followed by every other kind
+		for (String a : CORPUS) {
+			for (String b : CORPUS) {
+				assertLexedAlike(a + b);
+				assertLexedAlike(a + "\n" + b);
+			}
+		}
+	}
+
+	@Test
+	public void testRandomSplices() {
+		//Pieces of the corpus cut at random points, to catch anything left unterminated
+		Random r = new Random(0);
+		for (int i = 0; i < 5000; i++) {
+			StringBuilder b = new StringBuilder();
+			int pieces = 1 + r.nextInt(4);
+			for (int j = 0; j < pieces; j++) {
+				String s = CORPUS[r.nextInt(CORPUS.length)];
+				int start = s.isEmpty() ? 0 : r.nextInt(s.length());
+				int end = start + (s.length() == start ? 0 : r.nextInt(s.length() - start + 1));
+				b.append(s, start, end);
+			}
+			assertLexedAlike(b.toString());
+		}
+	}
+}
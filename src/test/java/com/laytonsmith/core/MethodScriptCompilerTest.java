@@ -9,6 +9,7 @@ import com.laytonsmith.core.constructs.Target;
 import com.laytonsmith.core.constructs.Token;
 import com.laytonsmith.core.constructs.Variable;
 import com.laytonsmith.core.environments.CommandHelperEnvironment;
+import com.laytonsmith.core.environments.GlobalEnv;
 import com.laytonsmith.core.exceptions.ConfigCompileException;
 import com.laytonsmith.core.exceptions.ConfigRuntimeException;
 import com.laytonsmith.testing.StaticTest;
@@ -568,7 +569,48 @@ public class MethodScriptCompilerTest {
         assertFalse(s.match("/test"));
         s.run(Arrays.asList(new Variable[]{new Variable("$var", "2", true, false, Target.UNKNOWN)}), env, null);
     }
-    
+
+    @Test
+    public void testDollarVarsArePerRun() throws ConfigCompileException{
+        String config = "/set $var = export($var, closure(msg($var)))\n"
+                + "/run $var = execute(import($var))";
+        List<Script> scripts = MethodScriptCompiler.preprocess(MethodScriptCompiler.lex(config, null, false));
+        env.getEnv(CommandHelperEnvironment.class).SetPlayer(fakePlayer);
+        Script set = scripts.get(0).compile();
+        Script run = scripts.get(1).compile();
+        set.run(Arrays.asList(new Variable("$var", "1", Target.UNKNOWN)), env, null);
+        set.run(Arrays.asList(new Variable("$var", "2", Target.UNKNOWN)), env, null);
+        run.run(Arrays.asList(new Variable("$var", "1", Target.UNKNOWN)), env, null);
+        verify(fakePlayer).sendMessage("1");
+    }
+
+    @Test
+    public void testDollarVarsDontOutliveTheirRun() throws ConfigCompileException{
+        Script s = MethodScriptCompiler.preprocess(MethodScriptCompiler.lex("/cmd $var = msg($var)", null, false)).get(0).compile();
+        env.getEnv(CommandHelperEnvironment.class).SetPlayer(fakePlayer);
+        s.run(Arrays.asList(new Variable("$var", "1", Target.UNKNOWN)), env, null);
+        verify(fakePlayer).sendMessage("1");
+        assertNull(env.getEnv(GlobalEnv.class).GetDollarVars());
+        MethodScriptCompiler.execute(MethodScriptCompiler.compile(MethodScriptCompiler.lex("msg($var)", null, true)), env, null, null,
+                Arrays.asList(new Variable("$var", "2", Target.UNKNOWN)));
+        verify(fakePlayer).sendMessage("2");
+        assertNull(env.getEnv(GlobalEnv.class).GetDollarVars());
+    }
+
+    @Test
+    public void testDollarVarsOutsideOfAliases() throws ConfigCompileException{
+        //The check is cached with the tree, but must still fail each time the script is run
+        ParseTree tree = MethodScriptCompiler.compile(MethodScriptCompiler.lex("msg($var)", null, true));
+        for (int i = 0; i < 2; i++) {
+            try {
+                Script.GenerateScript(tree, null).run(null, env, null);
+                fail("Expected $var to be rejected");
+            } catch (ConfigRuntimeException e) {
+                //Expected
+            }
+        }
+    }
+
     //TODO: Make this test possible
 //    @Test public void testCompile11() throws ConfigCompileException{
 //        
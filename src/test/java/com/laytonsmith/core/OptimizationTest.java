@@ -1,6 +1,9 @@
 package com.laytonsmith.core;
 
 import com.laytonsmith.core.compiler.OptimizationUtilities;
+import com.laytonsmith.core.constructs.CBoolean;
+import com.laytonsmith.core.constructs.CInt;
+import com.laytonsmith.core.constructs.Construct;
 import com.laytonsmith.core.exceptions.ConfigCompileException;
 import com.laytonsmith.testing.StaticTest;
 import org.junit.*;
@@ -58,21 +61,20 @@ public class OptimizationTest {
                 + "}"));
     }
     
-	//TODO: These tests are not intended to be corrected in master, so I'm removing them for now
-//    @Test public void testProcOptimization1() throws ConfigCompileException{
-//        //The proc stays there, but the call to it should be consolidated
-//        assertEquals("sconcat(proc('_add',@a,@b,return(add(@a,@b))),4)", optimize("proc(_add, @a, @b, return(@a + @b)) _add(2, 2)"));
-//    }
+    @Test public void testProcOptimization1() throws ConfigCompileException{
+        //The proc stays there, but the call to it should be consolidated
+        assertEquals("sconcat(proc('_add',@a,@b,return(add(@a,@b))),4)", optimize("proc(_add, @a, @b, return(@a + @b)) _add(2, 2)"));
+    }
 	
 	@Test public void testProcOptimizationRecursion() throws Exception{
 		assertEquals("sconcat(proc('_loop',@a,ifelse(gt(@a,0),_loop(subtract(@a,1)),return(@a))),_loop(2))", 
 				optimize("proc(_loop, @a, if(@a > 0, _loop(@a - 1), return(@a))) _loop(2)"));
 	}
     
-//    @Test(expected=ConfigCompileException.class) 
-//    public void testProcOptimization2() throws ConfigCompileException{
-//        optimize("proc(_divide, @a, return(@a / 0)) _divide(1)");
-//    }
+    @Test(expected=ConfigCompileException.class) 
+    public void testProcOptimization2() throws ConfigCompileException{
+        optimize("proc(_divide, @a, return(@a / 0)) _divide(1)");
+    }
     
     @Test
     public void testProcOptimization3() throws ConfigCompileException{
@@ -87,6 +89,17 @@ public class OptimizationTest {
 //                optimize("proc(_outer, proc(_inner, @a, return(@a)) _inner('blah')) _inner('huh')"));
 //    }
     
+    @Test public void testProcInlining() throws ConfigCompileException{
+        //The arguments aren't constant, so it can't be folded, but the body is copied in
+        assertEquals("sconcat(proc('_first',@a,return(array_get(@a,0))),msg(array_get(@b,0)))",
+                optimize("proc(_first, @a, return(@a[0])) msg(_first(@b))"));
+    }
+
+    @Test public void testProcRedefinitionIsNotInlined() throws ConfigCompileException{
+        assertEquals("sconcat(proc('_one',return(1)),proc('_one',return(2)),msg(_one()))",
+                optimize("proc(_one, return(1)) proc(_one, return(2)) msg(_one())"));
+    }
+
     @Test public void testProcReturn() throws ConfigCompileException{
         assertEquals("sconcat(proc('_proc',return(array(1))),array_get(_proc(),0))", 
                 optimize("proc(_proc, return(array(1))) _proc()[0]"));
@@ -211,6 +224,27 @@ public class OptimizationTest {
 		assertEquals("msg('hi')", optimize("if(reg_count('hi', dyn('hi'))){ } msg('hi')"));
 	}
 	
+	private static Construct findConstant(ParseTree tree){
+		if(tree.getData() instanceof CInt || tree.getData() instanceof CBoolean){
+			return tree.getData();
+		}
+		for(ParseTree child : tree.getChildren()){
+			Construct c = findConstant(child);
+			if(c != null){
+				return c;
+			}
+		}
+		return null;
+	}
+	
+	@Test public void testFoldedConstantsKeepTheirTarget() throws Exception {
+		Construct c = findConstant(MethodScriptCompiler.compile(MethodScriptCompiler.lex("\n\nmsg(add(1, 2))", null, true)));
+		assertEquals(3, ((CInt) c).getInt());
+		assertEquals(3, c.getTarget().line());
+		c = findConstant(MethodScriptCompiler.compile(MethodScriptCompiler.lex("\nmsg(lt(1, 2))", null, true)));
+		assertTrue(((CBoolean) c).getBoolean());
+		assertEquals(2, c.getTarget().line());
+	}
     
     //TODO: This is a bit ambitious for now, put this back at some point, and then make it pass.
 //    @Test public void testAssign() throws ConfigCompileException{
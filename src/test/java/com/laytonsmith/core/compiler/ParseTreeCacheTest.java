@@ -0,0 +1,100 @@
+package com.laytonsmith.core.compiler;
+
+import com.laytonsmith.core.MethodScriptCompiler;
+import com.laytonsmith.core.MethodScriptComplete;
+import com.laytonsmith.core.ParseTree;
+import com.laytonsmith.core.Static;
+import com.laytonsmith.testing.StaticTest;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Layton
+ */
+public class ParseTreeCacheTest {
+
+	private static final String SCRIPT = "proc(_add, @a, @b = 2, return(@a + @b))\n"
+			+ "@array = array(one: 1, 'two': 2.5, 3: true, null)\n"
+			+ "foreach(0..2, @i, array_push(@array, _add(@i)))\n"
+			+ "@array\n"
+			+ "1 + 2 * 3 . 'string' . -4.5";
+	private File dir;
+	private File file;
+
+	@BeforeClass
+	public static void setUpClass() {
+		StaticTest.InstallFakeServerFrontend();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("ParseTreeCacheTest", "");
+		dir.delete();
+		file = new File(dir.getParentFile(), "test.ms");
+		ParseTreeCache.Initialize(dir);
+	}
+
+	@After
+	public void tearDown() {
+		ParseTreeCache.Initialize(null);
+		for (File f : dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	private String run(ParseTree tree) throws Exception {
+		final StringBuilder b = new StringBuilder();
+		MethodScriptCompiler.execute(tree, Static.GenerateStandaloneEnvironment(), new MethodScriptComplete() {
+
+			public void done(String output) {
+				b.append(output);
+			}
+		}, null);
+		return b.toString();
+	}
+
+	private int entries() {
+		return dir.list().length - 1;
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		String expected = run(MethodScriptCompiler.compile(MethodScriptCompiler.lex(SCRIPT, file, true)));
+		ParseTree compiled = ParseTreeCache.Compile(SCRIPT, file);
+		assertEquals(1, entries());
+		ParseTree cached = ParseTreeCache.Compile(SCRIPT, file);
+		assertNotSame(compiled, cached);
+		assertEquals(compiled.toStringVerbose(), cached.toStringVerbose());
+		assertEquals(expected, run(cached));
+	}
+
+	@Test
+	public void testTokens() throws Exception {
+		String expected = run(ParseTreeCache.Compile(MethodScriptCompiler.lex(SCRIPT, file, true)));
+		assertEquals(1, entries());
+		assertEquals(expected, run(ParseTreeCache.Compile(MethodScriptCompiler.lex(SCRIPT, file, true))));
+		assertEquals(1, entries());
+	}
+
+	@Test
+	public void testCorruptEntryIsDiscarded() throws Exception {
+		String expected = run(ParseTreeCache.Compile(SCRIPT, file));
+		for (File f : dir.listFiles()) {
+			if (!f.getName().equals("version.txt")) {
+				FileWriter w = new FileWriter(f);
+				w.write("garbage");
+				w.close();
+			}
+		}
+		assertEquals(expected, run(ParseTreeCache.Compile(SCRIPT, file)));
+		assertEquals(expected, run(ParseTreeCache.Compile(SCRIPT, file)));
+	}
+}
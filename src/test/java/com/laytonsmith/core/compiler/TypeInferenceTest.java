@@ -0,0 +1,107 @@
+package com.laytonsmith.core.compiler;
+
+import com.laytonsmith.abstraction.MCPlayer;
+import com.laytonsmith.core.MethodScriptCompiler;
+import com.laytonsmith.core.ParseTree;
+import com.laytonsmith.core.constructs.CFunction;
+import com.laytonsmith.core.exceptions.ConfigCompileException;
+import com.laytonsmith.core.functions.BasicLogic;
+import com.laytonsmith.core.functions.Function;
+import com.laytonsmith.core.functions.Math;
+import com.laytonsmith.testing.StaticTest;
+import static com.laytonsmith.testing.StaticTest.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.verify;
+
+/**
+ *
+ * @author Layton
+ */
+public class TypeInferenceTest {
+
+	MCPlayer fakePlayer;
+
+	@Before
+	public void setUp() {
+		StaticTest.InstallFakeServerFrontend();
+		fakePlayer = GetOnlinePlayer();
+	}
+
+	private Function function(String script, String name) throws ConfigCompileException {
+		ParseTree node = find(MethodScriptCompiler.compile(MethodScriptCompiler.lex(script, null, true)), name);
+		assertNotNull("No " + name + " in the tree", node);
+		return ((CFunction) node.getData()).getFunction();
+	}
+
+	private ParseTree find(ParseTree tree, String name) {
+		if (tree.getData() instanceof CFunction && tree.getData().val().equals(name)) {
+			return tree;
+		}
+		for (ParseTree child : tree.getChildren()) {
+			ParseTree found = find(child, name);
+			if (found != null) {
+				return found;
+			}
+		}
+		return null;
+	}
+
+	@Test
+	public void testLoopIsSpecialized() throws Exception {
+		String script = "assign(@total, 0) for(assign(@i, 0), @i < 10, @i++, assign(@total, @total + @i)) msg(@total)";
+		Function add = function(script, "add");
+		assertTrue(add instanceof Math.add);
+		assertNotSame(Math.add.class, add.getClass());
+		assertNotSame(BasicLogic.lt.class, function(script, "lt").getClass());
+		SRun(script, fakePlayer);
+		verify(fakePlayer).sendMessage("45");
+	}
+
+	@Test
+	public void testCasts() throws Exception {
+		String script = "assign(@x, '3') msg(integer(@x) * 2.5)";
+		assertNotSame(Math.multiply.class, function(script, "multiply").getClass());
+		SRun(script, fakePlayer);
+		verify(fakePlayer).sendMessage("7.5");
+	}
+
+	@Test
+	public void testUseBeforeAssignment() throws Exception {
+		assertSame(Math.add.class, function("msg(@a) assign(@a, 1) msg(@a + 1)", "add").getClass());
+	}
+
+	@Test
+	public void testMixedAssignments() throws Exception {
+		assertSame(Math.multiply.class, function("assign(@a, 1) if(@b, assign(@a, 1.5)) msg(@a * 2)", "multiply").getClass());
+		assertSame(Math.multiply.class, function("assign(@a, 1) if(@b, assign(@a, 'string')) msg(@a * 2)", "multiply").getClass());
+	}
+
+	@Test
+	public void testConditionalAssignment() throws Exception {
+		assertSame(Math.add.class, function("if(@b, assign(@a, 1)) msg(@a + 1)", "add").getClass());
+	}
+
+	@Test
+	public void testClosure() throws Exception {
+		assertSame(Math.add.class, function("assign(@a, 1) assign(@c, closure(msg(@a + 1)))", "add").getClass());
+	}
+
+	@Test
+	public void testForeach() throws Exception {
+		assertSame(Math.add.class, function("assign(@a, 1) foreach(array(1.5), @a, msg(@a + 1))", "add").getClass());
+	}
+
+	@Test
+	public void testEval() throws Exception {
+		assertSame(Math.add.class, function("assign(@a, 1) eval('assign(@a, 2.5)') msg(@a + 1)", "add").getClass());
+	}
+
+	@Test
+	public void testWrongArgumentCount() throws Exception {
+		assertNull(new Math.neg().returnType(new TypeInference.Type[0]));
+		assertNull(new Math.neg().returnType(new TypeInference.Type[]{TypeInference.Type.INT, TypeInference.Type.INT}));
+		assertSame(TypeInference.Type.INT, new Math.neg().returnType(new TypeInference.Type[]{TypeInference.Type.INT}));
+	}
+}
@@ -0,0 +1,93 @@
+package com.laytonsmith.core.constructs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Layton
+ */
+public class AssociativeMapTest {
+
+	private static CString s(String value) {
+		return new CString(value, Target.UNKNOWN);
+	}
+
+	private static List<String> keys(AssociativeMap map) {
+		return new ArrayList<String>(map.keySet());
+	}
+
+	@Test public void testNumericKeysAreOrderedNumerically() {
+		AssociativeMap map = new AssociativeMap();
+		map.put("10", s("a"));
+		map.put("9", s("b"));
+		map.put("1.5", s("c"));
+		map.put("100", s("d"));
+		assertEquals(Arrays.asList("1.5", "9", "10", "100"), keys(map));
+	}
+
+	@Test public void testStringKeysAreOrderedAsStrings() {
+		AssociativeMap map = new AssociativeMap();
+		map.put("b", s("1"));
+		map.put("a", s("2"));
+		map.put("-1", s("3"));
+		map.put("1", s("4"));
+		assertEquals(Arrays.asList("-1", "1", "a", "b"), keys(map));
+	}
+
+	@Test public void testNumericallyEqualKeysAreTheSameKey() {
+		AssociativeMap map = new AssociativeMap();
+		map.put("1", s("a"));
+		map.put("1.0", s("b"));
+		map.put("01", s("c"));
+		assertEquals(1, map.size());
+		assertEquals("c", map.get("1").val());
+		assertEquals(Arrays.asList("1"), keys(map));
+	}
+
+	@Test public void testRemove() {
+		AssociativeMap map = new AssociativeMap();
+		for (int i = 0; i < 100; i++) {
+			map.put(Integer.toString(i), s(Integer.toString(i)));
+		}
+		for (int i = 0; i < 100; i += 2) {
+			assertEquals(Integer.toString(i), map.remove(Integer.toString(i)).val());
+		}
+		assertEquals(50, map.size());
+		assertFalse(map.containsKey("0"));
+		assertTrue(map.containsKey("1"));
+		assertEquals("1", keys(map).get(0));
+		assertEquals(Integer.valueOf(99), map.maxIntegerKey());
+		map.remove("99");
+		assertEquals(Integer.valueOf(97), map.maxIntegerKey());
+	}
+
+	@Test public void testIteratorRemove() {
+		AssociativeMap map = new AssociativeMap();
+		map.put("a", s("1"));
+		map.put("b", s("2"));
+		map.put("c", s("1"));
+		Iterator<Construct> it = map.values().iterator();
+		while (it.hasNext()) {
+			if (it.next().val().equals("1")) {
+				it.remove();
+			}
+		}
+		assertEquals(Arrays.asList("b"), keys(map));
+	}
+
+	@Test public void testCopyIsIndependent() {
+		AssociativeMap map = new AssociativeMap();
+		map.put("a", s("1"));
+		AssociativeMap copy = new AssociativeMap(map);
+		copy.put("a", s("2"));
+		copy.put("b", s("3"));
+		assertEquals("1", map.get("a").val());
+		assertEquals(1, map.size());
+		assertEquals(2, copy.size());
+	}
+}
@@ -0,0 +1,90 @@
+package com.laytonsmith.core.events;
+
+import com.laytonsmith.core.constructs.CArray;
+import com.laytonsmith.core.constructs.Construct;
+import com.laytonsmith.core.constructs.Target;
+import com.laytonsmith.core.events.Prefilters.PrefilterType;
+import com.laytonsmith.testing.C;
+import com.laytonsmith.testing.StaticTest;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ *
+ * @author Layton
+ */
+public class BoundEventIndexTest {
+
+	Event driver;
+	BindableEvent event = mock(BindableEvent.class);
+	String item;
+	String player;
+
+	@BeforeClass
+	public static void setUpClass() {
+		StaticTest.InstallFakeServerFrontend();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		driver = mock(Event.class);
+		when(driver.matches(any(Map.class), any(BindableEvent.class))).thenAnswer(new Answer<Boolean>() {
+			public Boolean answer(InvocationOnMock invocation) throws Throwable {
+				Map<String, Construct> prefilter = (Map<String, Construct>) invocation.getArguments()[0];
+				Prefilters.match(prefilter, "item", item, PrefilterType.ITEM_MATCH);
+				Prefilters.match(prefilter, "player", player, PrefilterType.MACRO);
+				return true;
+			}
+		});
+	}
+
+	private BoundEvent bind(String key, String value) throws Exception {
+		CArray prefilter = new CArray(Target.UNKNOWN);
+		if (key != null) {
+			prefilter.set(C.String(key), C.String(value), Target.UNKNOWN);
+		}
+		return new BoundEvent("player_interact", null, prefilter, "@event", null, null, Target.UNKNOWN);
+	}
+
+	@Test
+	public void testCandidates() throws Exception {
+		BoundEvent stone = bind("item", "1");
+		BoundEvent wool = bind("item", "35:4");
+		BoundEvent me = bind("player", "me");
+		BoundEvent regex = bind("player", "/m.*/");
+		BoundEvent any = bind(null, null);
+		SortedSet<BoundEvent> events = new TreeSet<BoundEvent>(Arrays.asList(stone, wool, me, regex, any));
+		BoundEventIndex index = new BoundEventIndex(events);
+
+		item = "35:14";
+		player = "me";
+		assertEquals(new HashSet<BoundEvent>(Arrays.asList(wool, me, regex, any)),
+				new HashSet<BoundEvent>(index.getCandidates(driver, event)));
+		item = "2";
+		player = "you";
+		assertEquals(new HashSet<BoundEvent>(Arrays.asList(regex, any)),
+				new HashSet<BoundEvent>(index.getCandidates(driver, event)));
+	}
+
+	@Test
+	public void testKeys() {
+		assertEquals(BoundEventIndex.key(PrefilterType.MATH_MATCH, C.String("1.0"), true),
+				BoundEventIndex.key(PrefilterType.MATH_MATCH, C.Int(1), false));
+		assertEquals(BoundEventIndex.key(PrefilterType.ITEM_MATCH, C.String("35:1"), true),
+				BoundEventIndex.key(PrefilterType.ITEM_MATCH, C.String(" 35 "), false));
+		assertNull(BoundEventIndex.key(PrefilterType.MACRO, C.String("(1 + 1)"), true));
+		assertNull(BoundEventIndex.key(PrefilterType.REGEX, C.String("/.*/"), true));
+	}
+}
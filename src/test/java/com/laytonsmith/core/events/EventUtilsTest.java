@@ -0,0 +1,108 @@
+package com.laytonsmith.core.events;
+
+import com.laytonsmith.abstraction.Convertor;
+import com.laytonsmith.abstraction.StaticLayer;
+import com.laytonsmith.core.constructs.Target;
+import com.laytonsmith.testing.StaticTest;
+import java.io.File;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+/**
+ *
+ * @author Layton
+ */
+public class EventUtilsTest {
+
+	File a = new File("a.ms");
+	File b = new File("b.ms");
+	Convertor original;
+	Convertor convertor;
+
+	@BeforeClass
+	public static void setUpClass() {
+		StaticTest.InstallFakeServerFrontend();
+		//The events need the real convertor when they're loaded
+		EventList.getEvent("player_kick");
+	}
+
+	@Before
+	public void setUp() {
+		EventUtils.UnregisterAll();
+		original = StaticTest.GetPrivate(StaticLayer.class, "convertor", Convertor.class);
+		convertor = mock(Convertor.class);
+		StaticTest.SetPrivate(StaticLayer.class, "convertor", convertor, Convertor.class);
+	}
+
+	@After
+	public void tearDown() {
+		StaticTest.SetPrivate(StaticLayer.class, "convertor", original, Convertor.class);
+		EventUtils.UnregisterAll();
+	}
+
+	private BoundEvent bind(String name, File file) throws Exception {
+		BoundEvent e = new BoundEvent(name, null, null, "@event", null, null, new Target(1, file, 0));
+		EventUtils.RegisterEvent(e);
+		return e;
+	}
+
+	@Test
+	public void testFirstBindAndLastUnbind() throws Exception {
+		assertFalse(EventUtils.IsListening(Driver.PLAYER_KICK));
+		BoundEvent one = bind("player_kick", a);
+		assertTrue(EventUtils.IsListening(Driver.PLAYER_KICK));
+		verify(convertor).SetListening(Driver.PLAYER_KICK, true);
+		BoundEvent two = bind("player_kick", a);
+		assertTrue(EventUtils.IsListening(Driver.PLAYER_KICK));
+
+		EventUtils.UnregisterEvent(one.getId());
+		assertTrue(EventUtils.IsListening(Driver.PLAYER_KICK));
+		verify(convertor, never()).SetListening(Driver.PLAYER_KICK, false);
+		EventUtils.UnregisterEvent(two.getId());
+		assertFalse(EventUtils.IsListening(Driver.PLAYER_KICK));
+		verify(convertor).SetListening(Driver.PLAYER_KICK, false);
+		verifyNoMoreInteractions(convertor);
+	}
+
+	@Test
+	public void testUnregisterEventsInFile() throws Exception {
+		bind("player_kick", a);
+		bind("player_kick", b);
+		bind("player_teleport", a);
+		verify(convertor).SetListening(Driver.PLAYER_KICK, true);
+		verify(convertor).SetListening(Driver.PLAYER_TELEPORT, true);
+
+		EventUtils.UnregisterEvents(a);
+		assertTrue(EventUtils.IsListening(Driver.PLAYER_KICK));
+		assertFalse(EventUtils.IsListening(Driver.PLAYER_TELEPORT));
+		verify(convertor).SetListening(Driver.PLAYER_TELEPORT, false);
+
+		EventUtils.UnregisterEvents(b);
+		assertFalse(EventUtils.IsListening(Driver.PLAYER_KICK));
+		verify(convertor).SetListening(Driver.PLAYER_KICK, false);
+		verifyNoMoreInteractions(convertor);
+	}
+
+	@Test
+	public void testUnregisterAll() throws Exception {
+		bind("player_kick", a);
+		bind("player_teleport", b);
+		EventUtils.UnregisterAll();
+		assertFalse(EventUtils.IsListening(Driver.PLAYER_KICK));
+		assertFalse(EventUtils.IsListening(Driver.PLAYER_TELEPORT));
+		verify(convertor).SetListening(Driver.PLAYER_KICK, false);
+		verify(convertor).SetListening(Driver.PLAYER_TELEPORT, false);
+
+		EventUtils.UnregisterAll();
+		verify(convertor).SetListening(Driver.PLAYER_KICK, true);
+		verify(convertor).SetListening(Driver.PLAYER_TELEPORT, true);
+		verifyNoMoreInteractions(convertor);
+	}
+}
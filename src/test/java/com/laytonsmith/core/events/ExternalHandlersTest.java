@@ -0,0 +1,44 @@
+package com.laytonsmith.core.events;
+
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ *
+ * @author Layton
+ */
+public class ExternalHandlersTest {
+
+	static int instances = 0;
+	static int calls = 0;
+
+	/**
+	 * This isn't annotated with event, since the test classes are scanned too,
+	 * and it would then be a handler for every event in every test.
+	 */
+	public static class Handler {
+
+		public Handler() {
+			instances++;
+		}
+
+		public void onEvent(BindableEvent e) {
+			calls++;
+		}
+	}
+
+	@Test
+	public void testTrigger() throws Exception {
+		instances = 0;
+		calls = 0;
+		ExternalHandlers handlers = new ExternalHandlers(Arrays.asList(Handler.class.getMethod("onEvent", BindableEvent.class)));
+		assertFalse(handlers.isEmpty());
+		BindableEvent e = mock(BindableEvent.class);
+		handlers.trigger(e);
+		handlers.trigger(e);
+		assertEquals(2, calls);
+		assertEquals(1, instances);
+	}
+}
@@ -9,7 +9,7 @@ import com.laytonsmith.testing.C;
 import java.util.HashMap;
 import java.util.Map;
 import org.junit.*;
-import static org.junit.Assert.fail;
+import static org.junit.Assert.*;
 
 /**
  *
@@ -146,4 +146,36 @@ public class PrefiltersTest {
         } catch (PrefilterNonMatchException e) {
         }
     }
+
+    private boolean matches(Map<String, Construct> map, String actual, PrefilterType type) {
+        try {
+            Prefilters.match(map, "x", actual, type);
+            return true;
+        } catch (PrefilterNonMatchException e) {
+            return false;
+        }
+    }
+
+    @Test public void testCompiledMap(){
+        Map<String, Construct> map = new Prefilters.CompiledMap();
+        map.put("x", C.String("35:2"));
+        assertTrue(matches(map, "35:4", PrefilterType.ITEM_MATCH));
+        assertFalse(matches(map, "36:2", PrefilterType.ITEM_MATCH));
+        map.put("x", C.String("2"));
+        assertTrue(matches(map, "2.0", PrefilterType.MATH_MATCH));
+        assertFalse(matches(map, "2.00001", PrefilterType.MATH_MATCH));
+        assertTrue(matches(map, "2", PrefilterType.MACRO));
+        assertFalse(matches(map, "2.0", PrefilterType.STRING_MATCH));
+        map.put("x", C.String("/1|2|3/"));
+        assertTrue(matches(map, "2", PrefilterType.REGEX));
+        assertFalse(matches(map, "4", PrefilterType.MACRO));
+        map.put("x", C.String("(x > 4)"));
+        assertTrue(matches(map, "5", PrefilterType.EXPRESSION));
+        assertFalse(matches(map, "4", PrefilterType.MACRO));
+        map.put("x", C.String("(2 + 3)"));
+        assertTrue(matches(map, "5", PrefilterType.EXPRESSION));
+        assertFalse(matches(map, "4", PrefilterType.EXPRESSION));
+        map.remove("x");
+        assertTrue(matches(map, "4", PrefilterType.STRING_MATCH));
+    }
 }
@@ -150,7 +150,15 @@ public class DataHandlingTest {
 		verify(fakePlayer).sendMessage("one:1");
 		verify(fakePlayer).sendMessage("two:2");
 	}
-	
+
+	@Test(timeout = 10000)
+	public void testForeachModifyingAssociativeArray() throws Exception{
+		SRun("@array = array('one': 1, 'two': 2, 'three': 3) @string = ''"
+				+ " foreach(@array, @key, @value, array_remove(@array, 'three') array_set(@array, 'four', 4) @string .= @key.';')"
+				+ " msg(@string)", fakePlayer);
+		verify(fakePlayer).sendMessage("one;two;");
+	}
+
 	@Test
 	public void testForelse() throws Exception{
 		SRun("forelse(assign(@i, 0), @i < 0, @i++, msg('fail'), msg('pass'))", fakePlayer);
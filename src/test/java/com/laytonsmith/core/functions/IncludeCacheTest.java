@@ -0,0 +1,88 @@
+package com.laytonsmith.core.functions;
+
+import com.laytonsmith.PureUtilities.FileUtility;
+import com.laytonsmith.core.ParseTree;
+import com.laytonsmith.core.constructs.Target;
+import com.laytonsmith.testing.StaticTest;
+import java.io.File;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Layton
+ */
+public class IncludeCacheTest {
+
+	private File one = new File("unit_test_include_cache_1.ms");
+	private File two = new File("unit_test_include_cache_2.ms");
+
+	@BeforeClass
+	public static void setUpClass() {
+		StaticTest.InstallFakeServerFrontend();
+	}
+
+	@Before
+	public void setUp() {
+		IncludeCache.clearCache();
+	}
+
+	@After
+	public void tearDown() {
+		IncludeCache.SetMemoryBudget(16 * 1024 * 1024);
+		IncludeCache.clearCache();
+		one.delete();
+		two.delete();
+	}
+
+	private ParseTree get(File f) {
+		return IncludeCache.get(f, Target.UNKNOWN);
+	}
+
+	private void write(String script, File f) throws IOException {
+		FileUtility.write(script, f, FileUtility.OVERWRITE, true);
+	}
+
+	@Test
+	public void testUnchangedFileIsCached() throws Exception {
+		write("msg('one')", one);
+		assertSame(get(one), get(one));
+		assertEquals(1, IncludeCache.GetHits());
+		assertEquals(1, IncludeCache.GetMisses());
+	}
+
+	@Test
+	public void testChangedFileIsRecompiled() throws Exception {
+		write("msg('one')", one);
+		ParseTree first = get(one);
+		write("msg('changed')", one);
+		assertNotSame(first, get(one));
+		assertEquals(2, IncludeCache.GetMisses());
+	}
+
+	@Test
+	public void testTouchedFileIsNotRecompiled() throws Exception {
+		write("msg('one')", one);
+		ParseTree first = get(one);
+		one.setLastModified(one.lastModified() + 10000);
+		assertSame(first, get(one));
+		assertEquals(1, IncludeCache.GetMisses());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() throws Exception {
+		write("msg('one')", one);
+		write("msg('two')", two);
+		IncludeCache.SetMemoryBudget(1);
+		get(one);
+		ParseTree second = get(two);
+		assertSame(second, get(two));
+		get(one);
+		assertEquals(3, IncludeCache.GetMisses());
+		assertTrue(IncludeCache.IsShared(one));
+	}
+}
@@ -220,4 +220,22 @@ public class MathTest {
 		assertEquals("8", SRun("2 + 2 + 2 + 2", null));
 		assertEquals("20", SRun("2 * 2 + 2 * 2 * 2 + 2 * 2 * 2", null));
 	}
+
+	@Test
+	public void testRuntimeResultsKeepTheirTarget() throws Exception{
+		//array_remove reports errors at the index it's given, so the line of the
+		//error is the line the index was computed on
+		try {
+			SRun("assign(@i, 1)\nassign(@a, array())\narray_remove(@a, @i + 1)", fakePlayer);
+			fail("Expected a RangeException");
+		} catch (ConfigRuntimeException e) {
+			assertEquals(3, e.getTarget().line());
+		}
+		try {
+			SRun("assign(@i, 1)\nassign(@a, array())\n\narray_remove(@a, @i < 2)", fakePlayer);
+			fail("Expected a CastException");
+		} catch (ConfigRuntimeException e) {
+			assertEquals(4, e.getTarget().line());
+		}
+	}
 }
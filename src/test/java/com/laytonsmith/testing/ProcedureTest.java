@@ -1,12 +1,26 @@
 package com.laytonsmith.testing;
 
 import com.laytonsmith.abstraction.MCPlayer;
+import com.laytonsmith.core.MethodScriptCompiler;
+import com.laytonsmith.core.Procedure;
+import com.laytonsmith.core.Static;
+import com.laytonsmith.core.constructs.CInt;
+import com.laytonsmith.core.constructs.Construct;
+import com.laytonsmith.core.constructs.Target;
+import com.laytonsmith.core.environments.Environment;
+import com.laytonsmith.core.environments.GlobalEnv;
 import com.laytonsmith.core.exceptions.ConfigCompileException;
 import static com.laytonsmith.testing.StaticTest.SRun;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 import org.bukkit.plugin.Plugin;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 /**
@@ -73,5 +87,41 @@ public class ProcedureTest {
         
         verify(fakePlayer, times(3)).sendMessage("{1, 3, 5, 7}");
     }
-    
+
+    @Test public void testSharedProcCalledFromManyThreads() throws Exception{
+        //The auto includes share their procs between every environment this way
+        StaticTest.InstallFakeServerFrontend();
+        Environment env = Static.GenerateStandaloneEnvironment();
+        MethodScriptCompiler.execute(MethodScriptCompiler.compile(MethodScriptCompiler.lex(
+                "proc(_twice, @a, assign(@b, @a) return(@a + @b))", null, true)), env, null, null);
+        Map<String, Procedure> shared = Collections.unmodifiableMap(new HashMap<String, Procedure>(env.getEnv(GlobalEnv.class).GetProcs()));
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[8];
+        for(int i = 0; i < threads.length; i++){
+            final int offset = i * 1000;
+            final Environment e = Static.GenerateStandaloneEnvironment();
+            e.getEnv(GlobalEnv.class).ShareProcs(shared);
+            threads[i] = new Thread(new Runnable() {
+
+                public void run() {
+                    try {
+                        for(int j = offset; j < offset + 1000; j++){
+                            Construct ret = e.getEnv(GlobalEnv.class).GetProc("_twice")
+                                    .execute(Arrays.<Construct>asList(new CInt(j, Target.UNKNOWN)), e, Target.UNKNOWN);
+                            assertEquals(Long.toString(2 * j), ret.val());
+                        }
+                    } catch(Throwable t){
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for(Thread t : threads){
+            t.join();
+        }
+        if(failure.get() != null){
+            throw new AssertionError(failure.get());
+        }
+    }
 }